@@ -28,30 +28,11 @@ public class IterativeParallelism implements AdvancedIP {
             final Function<? super Stream<? extends T>, ? extends R> threadFunction,
             final Function<? super Stream<R>, ? extends R> mergeFunction
     ) throws InterruptedException {
-        checkThreads(threads);
-        final int realThreads = Math.min(threads, values.size());
-        final List<Stream<? extends T>> groups = realThreads == 0 ? Collections.emptyList() : split(realThreads, values);
-        final List<R> result;
-        if (parallelMapper == null) {
-            result = new ArrayList<>(Collections.nCopies(groups.size(), null));
-            joinAll(initAndStart(groups.size(),i -> () -> result.set(i, threadFunction.apply(groups.get(i)))));
-        } else {
-            result = parallelMapper.map(threadFunction, groups);
-        }
+        final List<R> result = mapRanges(parallelMapper, threads, 0, values.size(),
+                (from, to) -> threadFunction.apply(values.subList(from, to).stream()));
         return mergeFunction.apply(result.stream());
     }
 
-    private static <T> List<Stream<? extends T>> split(final int threads, final List<? extends T> values) {
-        final int groupSize = values.size() / threads;
-        final List<Stream<? extends T>> groups = new ArrayList<>(threads);
-        for (int i = 0, r = 0, rest = values.size() % threads; i < threads; i++, rest--) {
-            final int l = r;
-            r += groupSize + (rest > 0 ? 1 : 0);
-            groups.add(values.subList(l, r).stream());
-        }
-        return groups;
-    }
-
     private <T, R> List<R> parallelMissionToList(
             final int threads,
             final List<? extends T> values,
@@ -79,8 +60,16 @@ public class IterativeParallelism implements AdvancedIP {
 
     @Override
     public <T> boolean all(final int threads, final List<? extends T> values, final Predicate<? super T> predicate) throws InterruptedException {
+        // Once some group finds a counterexample, others stop at their next element
+        final Decision decision = new Decision();
         return parallelMission(threads, values,
-                stream -> stream.allMatch(predicate),
+                stream -> {
+                    final boolean result = stream.takeWhile(value -> !decision.isDecided).allMatch(predicate);
+                    if (!result) {
+                        decision.isDecided = true;
+                    }
+                    return result;
+                },
                 stream -> stream.allMatch(Boolean::booleanValue)
         );
     }
@@ -119,4 +108,7 @@ public class IterativeParallelism implements AdvancedIP {
         return parallelMission(threads, values, stream -> threadReduce.apply(stream.map(lift)), threadReduce);
     }
 
+    private static class Decision {
+        volatile boolean isDecided;
+    }
 }
@@ -3,43 +3,101 @@ package info.kgeorgiy.ja.slastin.concurrent;
 import info.kgeorgiy.java.advanced.mapper.ParallelMapper;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
 import java.util.function.Function;
-import java.util.stream.IntStream;
 
 import static info.kgeorgiy.ja.slastin.concurrent.ParallelUtils.*;
 
 public class ParallelMapperImpl implements ParallelMapper {
-    private final Queue<Runnable> missions;
+    public static final int DEFAULT_CAPACITY = 1 << 12;
+    // Several chunks per thread even out chunks of different cost
+    private static final int CHUNKS_PER_THREAD = 4;
+
+    // Every worker takes missions from its own buffer first and steals the oldest missions of others when it is empty
+    private final List<RingBuffer<Runnable>> missions;
+    // Missions that did not fit into the buffers, so adding a mission never blocks
+    private final Queue<Runnable> overflow = new ConcurrentLinkedQueue<>();
+    private final ThreadLocal<Integer> executorIndex = new ThreadLocal<>();
     private final List<Thread> executors;
+    private final Queue<Thread> idle = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger nextBuffer = new AtomicInteger();
+    private final Set<Thread> waiting = ConcurrentHashMap.newKeySet();
     private volatile boolean isClosed;
 
     public ParallelMapperImpl(final int threads) {
+        this(threads, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Creates mapper with buffers of {@code capacity} missions per thread.
+     * Missions beyond the capacity wait in a shared unbounded queue.
+     */
+    public ParallelMapperImpl(final int threads, final int capacity) {
         checkThreads(threads);
-        missions = new ArrayDeque<>();
-        final Runnable executorMission = () -> {
+        missions = new ArrayList<>(threads);
+        for (int i = 0; i < threads; i++) {
+            missions.add(new RingBuffer<>(capacity));
+        }
+        executors = initAndStart(threads, i -> () -> {
+            executorIndex.set(i);
             try {
                 while (!Thread.interrupted()) {
-                    getMission().run();
+                    final Runnable mission = awaitMission(i);
+                    if (mission != null) {
+                        mission.run();
+                    }
                 }
             } catch (final InterruptedException ignored) {
             }
-        };
-        executors = initAndStart(threads, i -> executorMission);
+        });
     }
 
-    private Runnable getMission() throws InterruptedException {
-        synchronized (missions) {
-            while (missions.isEmpty()) {
-                missions.wait();
+    private Runnable findMission(final int executor) {
+        for (int i = 0; i < missions.size(); i++) {
+            final Runnable mission = missions.get((executor + i) % missions.size()).poll();
+            if (mission != null) {
+                return mission;
             }
-            return missions.poll();
         }
+        return overflow.poll();
+    }
+
+    // Returns null if the thread was woken up before a mission appeared
+    private Runnable awaitMission(final int executor) throws InterruptedException {
+        Runnable mission = findMission(executor);
+        if (mission == null) {
+            final Thread current = Thread.currentThread();
+            idle.add(current);
+            try {
+                mission = findMission(executor);
+                if (mission == null) {
+                    LockSupport.park(this);
+                    if (Thread.interrupted()) {
+                        throw new InterruptedException();
+                    }
+                }
+            } finally {
+                idle.remove(current);
+            }
+        }
+        return mission;
     }
 
     private void addMission(final Runnable mission) {
-        synchronized (missions) {
-            missions.add(mission);
-            missions.notify();
+        final int first = Math.floorMod(nextBuffer.getAndIncrement(), missions.size());
+        boolean isAdded = false;
+        for (int i = 0; i < missions.size() && !isAdded; i++) {
+            isAdded = missions.get((first + i) % missions.size()).offer(mission);
+        }
+        if (!isAdded) {
+            overflow.add(mission);
+        }
+        final Thread executor = idle.poll();
+        if (executor != null) {
+            LockSupport.unpark(executor);
         }
     }
 
@@ -49,6 +107,7 @@ public class ParallelMapperImpl implements ParallelMapper {
             return;
         }
         isClosed = true;
+        waiting.forEach(LockSupport::unpark);
         executors.forEach(Thread::interrupt);
         try {
             joinAll(executors);
@@ -61,34 +120,61 @@ public class ParallelMapperImpl implements ParallelMapper {
         if (isClosed) {
             throw new IllegalStateException("ParallelMapper is closed");
         }
-        final ResultGatherer<R> gatherer = new ResultGatherer<>(args.size());
-        IntStream.range(0, args.size()).forEach(i -> addMission(() -> gatherer.set(i, f.apply(args.get(i)))));
+        final int size = args.size();
+        final int chunks = Math.min(size, executors.size() * CHUNKS_PER_THREAD);
+        final ResultGatherer<R> gatherer = new ResultGatherer<>(size, chunks);
+        for (int i = 0, r = 0, rest = chunks == 0 ? 0 : size % chunks; i < chunks; i++, rest--) {
+            final int l = r;
+            r += size / chunks + (rest > 0 ? 1 : 0);
+            final int to = r;
+            addMission(() -> gatherer.compute(l, to, f, args));
+        }
         return gatherer.gatherResult();
     }
 
-    private class ResultGatherer<T> {
-        private final List<T> result;
-        private int gathered;
+    private class ResultGatherer<R> {
+        private final Object[] result;
+        private final AtomicInteger remaining;
+        private final Thread caller = Thread.currentThread();
 
-        ResultGatherer(int size) {
-            result = new ArrayList<>(Collections.nCopies(size, null));
+        ResultGatherer(final int size, final int chunks) {
+            result = new Object[size];
+            remaining = new AtomicInteger(chunks);
         }
 
-        public void set(final int index, final T value) {
-            result.set(index, value);
-            synchronized (this) {
-                ++gathered;
-                if (isClosed || gathered == result.size()) {
-                    notify();
-                }
+        public <T> void compute(final int from, final int to,
+                                final Function<? super T, ? extends R> f, final List<? extends T> args) {
+            for (int i = from; i < to; i++) {
+                result[i] = f.apply(args.get(i));
+            }
+            if (remaining.decrementAndGet() == 0) {
+                LockSupport.unpark(caller);
             }
         }
 
-        public synchronized List<T> gatherResult() throws InterruptedException {
-            while (!isClosed && gathered != result.size()) {
-                wait();
+        @SuppressWarnings("unchecked")
+        public List<R> gatherResult() throws InterruptedException {
+            final Integer executor = executorIndex.get();
+            waiting.add(caller);
+            try {
+                while (!isClosed && remaining.get() != 0) {
+                    if (executor != null) {
+                        // Worker mapping inside a mission runs pending missions instead of blocking one more thread
+                        final Runnable mission = awaitMission(executor);
+                        if (mission != null) {
+                            mission.run();
+                        }
+                    } else {
+                        LockSupport.park(this);
+                        if (Thread.interrupted()) {
+                            throw new InterruptedException();
+                        }
+                    }
+                }
+            } finally {
+                waiting.remove(caller);
             }
-            return result;
+            return Arrays.asList((R[]) result);
         }
     }
 }
@@ -1,6 +1,10 @@
 package info.kgeorgiy.ja.slastin.concurrent;
 
+import info.kgeorgiy.java.advanced.mapper.ParallelMapper;
+
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.function.IntFunction;
 import java.util.stream.Collectors;
@@ -40,4 +44,47 @@ public class ParallelUtils {
             throw interrupted;
         }
     }
+
+    /**
+     * Splits {@code [from, to)} into at most {@code threads} ranges of almost equal size and applies {@code f}
+     * to every range in its own thread or via {@code mapper} if it is not {@code null}.
+     */
+    static <R> List<R> mapRanges(
+            final ParallelMapper mapper,
+            final int threads,
+            final int from,
+            final int to,
+            final RangeFunction<? extends R> f
+    ) throws InterruptedException {
+        checkThreads(threads);
+        final int size = to - from;
+        final int groups = Math.min(threads, size);
+        final List<Range> ranges = new ArrayList<>(groups);
+        for (int i = 0, r = from, rest = groups == 0 ? 0 : size % groups; i < groups; i++, rest--) {
+            final int l = r;
+            r += size / groups + (rest > 0 ? 1 : 0);
+            ranges.add(new Range(l, r));
+        }
+        if (mapper != null) {
+            return mapper.map(range -> f.apply(range.from, range.to), ranges);
+        }
+        final List<R> result = new ArrayList<>(Collections.nCopies(groups, null));
+        joinAll(initAndStart(groups, i -> () -> result.set(i, f.apply(ranges.get(i).from, ranges.get(i).to))));
+        return result;
+    }
+
+    @FunctionalInterface
+    interface RangeFunction<R> {
+        R apply(int from, int to);
+    }
+
+    private static class Range {
+        private final int from;
+        private final int to;
+
+        Range(final int from, final int to) {
+            this.from = from;
+            this.to = to;
+        }
+    }
 }
@@ -0,0 +1,333 @@
+package info.kgeorgiy.ja.slastin.concurrent;
+
+import info.kgeorgiy.java.advanced.mapper.ParallelMapper;
+
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.function.*;
+
+import static info.kgeorgiy.ja.slastin.concurrent.ParallelUtils.mapRanges;
+
+/**
+ * Counterpart of {@link IterativeParallelism} for {@code int}, {@code long} and {@code double} arrays.
+ * Every method works on a whole array or on its slice {@code [from, to)}, threads get ranges of indices,
+ * so elements are never boxed.
+ */
+public class PrimitiveParallelism {
+    private final ParallelMapper parallelMapper;
+
+    public PrimitiveParallelism() {
+        parallelMapper = null;
+    }
+
+    public PrimitiveParallelism(final ParallelMapper parallelMapper) {
+        this.parallelMapper = parallelMapper;
+    }
+
+    private <R> List<R> parallelMission(
+            final int threads,
+            final int length,
+            final int from,
+            final int to,
+            final ParallelUtils.RangeFunction<? extends R> threadFunction
+    ) throws InterruptedException {
+        Objects.checkFromToIndex(from, to, length);
+        return mapRanges(parallelMapper, threads, from, to, threadFunction);
+    }
+
+    private static void checkNotEmpty(final int length, final int from, final int to) {
+        Objects.checkFromToIndex(from, to, length);
+        if (from == to) {
+            throw new NoSuchElementException("values can not be empty");
+        }
+    }
+
+    // int[]
+
+    /**
+     * Returns sum of {@code int}s as {@code long}, so it does not overflow.
+     */
+    public long sum(final int threads, final int[] values) throws InterruptedException {
+        return sum(threads, values, 0, values.length);
+    }
+
+    public long sum(final int threads, final int[] values, final int from, final int to) throws InterruptedException {
+        long result = 0L;
+        for (final long part : parallelMission(threads, values.length, from, to, (l, r) -> {
+            long sum = 0L;
+            for (int i = l; i < r; i++) {
+                sum += values[i];
+            }
+            return sum;
+        })) {
+            result += part;
+        }
+        return result;
+    }
+
+    public int minimum(final int threads, final int[] values) throws InterruptedException {
+        return minimum(threads, values, 0, values.length);
+    }
+
+    public int minimum(final int threads, final int[] values, final int from, final int to) throws InterruptedException {
+        checkNotEmpty(values.length, from, to);
+        return reduce(threads, values, from, to, Integer.MAX_VALUE, Math::min);
+    }
+
+    public int maximum(final int threads, final int[] values) throws InterruptedException {
+        return maximum(threads, values, 0, values.length);
+    }
+
+    public int maximum(final int threads, final int[] values, final int from, final int to) throws InterruptedException {
+        checkNotEmpty(values.length, from, to);
+        return reduce(threads, values, from, to, Integer.MIN_VALUE, Math::max);
+    }
+
+    public int count(final int threads, final int[] values, final IntPredicate predicate) throws InterruptedException {
+        return count(threads, values, 0, values.length, predicate);
+    }
+
+    public int count(final int threads, final int[] values, final int from, final int to,
+                     final IntPredicate predicate) throws InterruptedException {
+        int result = 0;
+        for (final int part : parallelMission(threads, values.length, from, to, (l, r) -> {
+            int count = 0;
+            for (int i = l; i < r; i++) {
+                if (predicate.test(values[i])) {
+                    count++;
+                }
+            }
+            return count;
+        })) {
+            result += part;
+        }
+        return result;
+    }
+
+    /**
+     * Replaces every element with result of {@code f}.
+     */
+    public void mapInPlace(final int threads, final int[] values, final IntUnaryOperator f) throws InterruptedException {
+        mapInPlace(threads, values, 0, values.length, f);
+    }
+
+    public void mapInPlace(final int threads, final int[] values, final int from, final int to,
+                           final IntUnaryOperator f) throws InterruptedException {
+        parallelMission(threads, values.length, from, to, (l, r) -> {
+            for (int i = l; i < r; i++) {
+                values[i] = f.applyAsInt(values[i]);
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Reduces elements by associative {@code operator} with {@code identity} as its neutral element.
+     */
+    public int reduce(final int threads, final int[] values, final int identity,
+                      final IntBinaryOperator operator) throws InterruptedException {
+        return reduce(threads, values, 0, values.length, identity, operator);
+    }
+
+    public int reduce(final int threads, final int[] values, final int from, final int to, final int identity,
+                      final IntBinaryOperator operator) throws InterruptedException {
+        int result = identity;
+        for (final int part : parallelMission(threads, values.length, from, to, (l, r) -> {
+            int reduced = identity;
+            for (int i = l; i < r; i++) {
+                reduced = operator.applyAsInt(reduced, values[i]);
+            }
+            return reduced;
+        })) {
+            result = operator.applyAsInt(result, part);
+        }
+        return result;
+    }
+
+    // long[]
+
+    public long sum(final int threads, final long[] values) throws InterruptedException {
+        return sum(threads, values, 0, values.length);
+    }
+
+    public long sum(final int threads, final long[] values, final int from, final int to) throws InterruptedException {
+        long result = 0L;
+        for (final long part : parallelMission(threads, values.length, from, to, (l, r) -> {
+            long sum = 0L;
+            for (int i = l; i < r; i++) {
+                sum += values[i];
+            }
+            return sum;
+        })) {
+            result += part;
+        }
+        return result;
+    }
+
+    public long minimum(final int threads, final long[] values) throws InterruptedException {
+        return minimum(threads, values, 0, values.length);
+    }
+
+    public long minimum(final int threads, final long[] values, final int from, final int to) throws InterruptedException {
+        checkNotEmpty(values.length, from, to);
+        return reduce(threads, values, from, to, Long.MAX_VALUE, Math::min);
+    }
+
+    public long maximum(final int threads, final long[] values) throws InterruptedException {
+        return maximum(threads, values, 0, values.length);
+    }
+
+    public long maximum(final int threads, final long[] values, final int from, final int to) throws InterruptedException {
+        checkNotEmpty(values.length, from, to);
+        return reduce(threads, values, from, to, Long.MIN_VALUE, Math::max);
+    }
+
+    public int count(final int threads, final long[] values, final LongPredicate predicate) throws InterruptedException {
+        return count(threads, values, 0, values.length, predicate);
+    }
+
+    public int count(final int threads, final long[] values, final int from, final int to,
+                     final LongPredicate predicate) throws InterruptedException {
+        int result = 0;
+        for (final int part : parallelMission(threads, values.length, from, to, (l, r) -> {
+            int count = 0;
+            for (int i = l; i < r; i++) {
+                if (predicate.test(values[i])) {
+                    count++;
+                }
+            }
+            return count;
+        })) {
+            result += part;
+        }
+        return result;
+    }
+
+    public void mapInPlace(final int threads, final long[] values, final LongUnaryOperator f) throws InterruptedException {
+        mapInPlace(threads, values, 0, values.length, f);
+    }
+
+    public void mapInPlace(final int threads, final long[] values, final int from, final int to,
+                           final LongUnaryOperator f) throws InterruptedException {
+        parallelMission(threads, values.length, from, to, (l, r) -> {
+            for (int i = l; i < r; i++) {
+                values[i] = f.applyAsLong(values[i]);
+            }
+            return null;
+        });
+    }
+
+    public long reduce(final int threads, final long[] values, final long identity,
+                       final LongBinaryOperator operator) throws InterruptedException {
+        return reduce(threads, values, 0, values.length, identity, operator);
+    }
+
+    public long reduce(final int threads, final long[] values, final int from, final int to, final long identity,
+                       final LongBinaryOperator operator) throws InterruptedException {
+        long result = identity;
+        for (final long part : parallelMission(threads, values.length, from, to, (l, r) -> {
+            long reduced = identity;
+            for (int i = l; i < r; i++) {
+                reduced = operator.applyAsLong(reduced, values[i]);
+            }
+            return reduced;
+        })) {
+            result = operator.applyAsLong(result, part);
+        }
+        return result;
+    }
+
+    // double[]
+
+    public double sum(final int threads, final double[] values) throws InterruptedException {
+        return sum(threads, values, 0, values.length);
+    }
+
+    public double sum(final int threads, final double[] values, final int from, final int to) throws InterruptedException {
+        double result = 0.0;
+        for (final double part : parallelMission(threads, values.length, from, to, (l, r) -> {
+            double sum = 0.0;
+            for (int i = l; i < r; i++) {
+                sum += values[i];
+            }
+            return sum;
+        })) {
+            result += part;
+        }
+        return result;
+    }
+
+    public double minimum(final int threads, final double[] values) throws InterruptedException {
+        return minimum(threads, values, 0, values.length);
+    }
+
+    public double minimum(final int threads, final double[] values, final int from, final int to) throws InterruptedException {
+        checkNotEmpty(values.length, from, to);
+        return reduce(threads, values, from, to, Double.POSITIVE_INFINITY, Math::min);
+    }
+
+    public double maximum(final int threads, final double[] values) throws InterruptedException {
+        return maximum(threads, values, 0, values.length);
+    }
+
+    public double maximum(final int threads, final double[] values, final int from, final int to) throws InterruptedException {
+        checkNotEmpty(values.length, from, to);
+        return reduce(threads, values, from, to, Double.NEGATIVE_INFINITY, Math::max);
+    }
+
+    public int count(final int threads, final double[] values, final DoublePredicate predicate) throws InterruptedException {
+        return count(threads, values, 0, values.length, predicate);
+    }
+
+    public int count(final int threads, final double[] values, final int from, final int to,
+                     final DoublePredicate predicate) throws InterruptedException {
+        int result = 0;
+        for (final int part : parallelMission(threads, values.length, from, to, (l, r) -> {
+            int count = 0;
+            for (int i = l; i < r; i++) {
+                if (predicate.test(values[i])) {
+                    count++;
+                }
+            }
+            return count;
+        })) {
+            result += part;
+        }
+        return result;
+    }
+
+    public void mapInPlace(final int threads, final double[] values, final DoubleUnaryOperator f) throws InterruptedException {
+        mapInPlace(threads, values, 0, values.length, f);
+    }
+
+    public void mapInPlace(final int threads, final double[] values, final int from, final int to,
+                           final DoubleUnaryOperator f) throws InterruptedException {
+        parallelMission(threads, values.length, from, to, (l, r) -> {
+            for (int i = l; i < r; i++) {
+                values[i] = f.applyAsDouble(values[i]);
+            }
+            return null;
+        });
+    }
+
+    public double reduce(final int threads, final double[] values, final double identity,
+                         final DoubleBinaryOperator operator) throws InterruptedException {
+        return reduce(threads, values, 0, values.length, identity, operator);
+    }
+
+    public double reduce(final int threads, final double[] values, final int from, final int to, final double identity,
+                         final DoubleBinaryOperator operator) throws InterruptedException {
+        double result = identity;
+        for (final double part : parallelMission(threads, values.length, from, to, (l, r) -> {
+            double reduced = identity;
+            for (int i = l; i < r; i++) {
+                reduced = operator.applyAsDouble(reduced, values[i]);
+            }
+            return reduced;
+        })) {
+            result = operator.applyAsDouble(result, part);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,167 @@
+package test;
+
+import info.kgeorgiy.ja.slastin.concurrent.ParallelMapperImpl;
+import info.kgeorgiy.java.advanced.mapper.ParallelMapper;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+import java.util.TreeSet;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Measures {@link ParallelMapperImpl} throughput when several clients map lists of busy-spinning
+ * elements concurrently. In the skewed workload every 64th element is a hundred times more expensive.
+ * Baseline is {@link SharedQueueMapper} that splits lists into the same chunks, but keeps them
+ * in a single monitor-guarded queue.
+ * <p>
+ * Usage: {@code MapperBenchmark [elements [iterations]]}.
+ */
+public class MapperBenchmark {
+    private static final int CLIENTS = 4;
+    private static final int UNIT = 200;
+    private static final int CHUNKS_PER_THREAD = 4;
+
+    private static volatile long sink;
+
+    private static int spin(final int units) {
+        long value = units;
+        for (int i = 0; i < units * UNIT; i++) {
+            value = value * 6364136223846793005L + 1442695040888963407L;
+        }
+        sink = value;
+        return units;
+    }
+
+    public static void main(final String[] args) throws InterruptedException {
+        final int elements = args.length > 0 ? Integer.parseInt(args[0]) : 20_000;
+        final int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        final List<Integer> uniform = IntStream.range(0, elements).map(i -> 2).boxed().collect(Collectors.toList());
+        final List<Integer> skewed = IntStream.range(0, elements).map(i -> i % 64 == 0 ? 100 : 1).boxed()
+                .collect(Collectors.toList());
+
+        System.out.format("%-8s %-8s %18s %18s%n", "threads", "mapper", "uniform elements/s", "skewed elements/s");
+        final int processors = Runtime.getRuntime().availableProcessors();
+        for (final int threads : new TreeSet<>(List.of(1, 2, processors, 4 * processors))) {
+            measure("ring", ParallelMapperImpl::new, threads, uniform, skewed, iterations);
+            measure("shared", SharedQueueMapper::new, threads, uniform, skewed, iterations);
+        }
+    }
+
+    private static void measure(final String name, final IntFunction<ParallelMapper> factory, final int threads,
+                                final List<Integer> uniform, final List<Integer> skewed, final int iterations)
+            throws InterruptedException {
+        try (ParallelMapper mapper = factory.apply(threads)) {
+            double uniformRate = 0;
+            double skewedRate = 0;
+            for (int i = 0; i < iterations + 1; i++) {
+                final double uniformRun = run(mapper, uniform);
+                final double skewedRun = run(mapper, skewed);
+                // The first iteration is warmup
+                if (i > 0) {
+                    uniformRate += uniformRun / iterations;
+                    skewedRate += skewedRun / iterations;
+                }
+            }
+            System.out.format("%-8d %-8s %18.0f %18.0f%n", threads, name, uniformRate, skewedRate);
+        }
+    }
+
+    private static double run(final ParallelMapper mapper, final List<Integer> costs) throws InterruptedException {
+        final Function<Integer, Integer> f = MapperBenchmark::spin;
+        final List<Thread> clients = new ArrayList<>();
+        for (int i = 0; i < CLIENTS; i++) {
+            clients.add(new Thread(() -> {
+                try {
+                    mapper.map(f, costs);
+                } catch (final InterruptedException ignored) {
+                }
+            }));
+        }
+        final long start = System.nanoTime();
+        clients.forEach(Thread::start);
+        for (final Thread client : clients) {
+            client.join();
+        }
+        return (double) CLIENTS * costs.size() * 1e9 / (System.nanoTime() - start);
+    }
+
+    /**
+     * Workers take chunks from one queue guarded by its monitor.
+     */
+    private static class SharedQueueMapper implements ParallelMapper {
+        private final Queue<Runnable> missions = new ArrayDeque<>();
+        private final List<Thread> executors = new ArrayList<>();
+
+        SharedQueueMapper(final int threads) {
+            for (int i = 0; i < threads; i++) {
+                executors.add(new Thread(() -> {
+                    try {
+                        while (!Thread.interrupted()) {
+                            final Runnable mission;
+                            synchronized (missions) {
+                                while (missions.isEmpty()) {
+                                    missions.wait();
+                                }
+                                mission = missions.poll();
+                            }
+                            mission.run();
+                        }
+                    } catch (final InterruptedException ignored) {
+                    }
+                }));
+            }
+            executors.forEach(Thread::start);
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T, R> List<R> map(final Function<? super T, ? extends R> f, final List<? extends T> args)
+                throws InterruptedException {
+            final int size = args.size();
+            final int chunks = Math.min(size, executors.size() * CHUNKS_PER_THREAD);
+            final Object[] result = new Object[size];
+            final int[] remaining = {chunks};
+            for (int i = 0, r = 0, rest = chunks == 0 ? 0 : size % chunks; i < chunks; i++, rest--) {
+                final int l = r;
+                r += size / chunks + (rest > 0 ? 1 : 0);
+                final int to = r;
+                synchronized (missions) {
+                    missions.add(() -> {
+                        for (int j = l; j < to; j++) {
+                            result[j] = f.apply(args.get(j));
+                        }
+                        synchronized (remaining) {
+                            if (--remaining[0] == 0) {
+                                remaining.notify();
+                            }
+                        }
+                    });
+                    missions.notify();
+                }
+            }
+            synchronized (remaining) {
+                while (remaining[0] != 0) {
+                    remaining.wait();
+                }
+            }
+            return Arrays.asList((R[]) result);
+        }
+
+        @Override
+        public void close() {
+            executors.forEach(Thread::interrupt);
+            for (final Thread executor : executors) {
+                try {
+                    executor.join();
+                } catch (final InterruptedException ignored) {
+                }
+            }
+        }
+    }
+}
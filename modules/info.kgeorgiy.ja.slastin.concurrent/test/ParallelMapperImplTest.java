@@ -0,0 +1,93 @@
+package test;
+
+import info.kgeorgiy.ja.slastin.concurrent.ParallelMapperImpl;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Checks stealing, full buffers and nested calls of {@link ParallelMapperImpl}.
+ */
+public class ParallelMapperImplTest {
+    private static List<Integer> range(final int size) {
+        return IntStream.range(0, size).boxed().collect(Collectors.toList());
+    }
+
+    private static List<Integer> squares(final int size) {
+        return IntStream.range(0, size).map(i -> i * i).boxed().collect(Collectors.toList());
+    }
+
+    @Test
+    public void test01_stealing() throws InterruptedException {
+        final int size = 100;
+        final CountDownLatch others = new CountDownLatch(size / 2);
+        try (ParallelMapperImpl mapper = new ParallelMapperImpl(2)) {
+            // The worker of the first element waits for the second half, half of whose chunks are in its own buffer
+            final List<Boolean> result = mapper.map(i -> {
+                if (i == 0) {
+                    try {
+                        return others.await(10, TimeUnit.SECONDS);
+                    } catch (final InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return false;
+                    }
+                }
+                if (i >= size / 2) {
+                    others.countDown();
+                }
+                return true;
+            }, range(size));
+            Assert.assertFalse(result.contains(false));
+        }
+    }
+
+    @Test
+    public void test02_overflow() throws InterruptedException {
+        try (ParallelMapperImpl mapper = new ParallelMapperImpl(3, 1)) {
+            final List<Thread> clients = new ArrayList<>();
+            final List<Throwable> errors = new ArrayList<>();
+            for (int c = 0; c < 10; c++) {
+                clients.add(new Thread(() -> {
+                    try {
+                        for (int i = 0; i < 20; i++) {
+                            Assert.assertEquals(squares(1000), mapper.map(x -> x * x, range(1000)));
+                        }
+                    } catch (final Throwable e) {
+                        synchronized (errors) {
+                            errors.add(e);
+                        }
+                    }
+                }));
+            }
+            clients.forEach(Thread::start);
+            for (final Thread client : clients) {
+                client.join(60_000);
+                Assert.assertFalse("Client is blocked", client.isAlive());
+            }
+            Assert.assertEquals(List.of(), errors);
+        }
+    }
+
+    @Test(timeout = 60_000)
+    public void test03_nested() throws InterruptedException {
+        // Every worker maps inside a mission while buffers are full
+        try (ParallelMapperImpl mapper = new ParallelMapperImpl(2, 1)) {
+            final List<List<Integer>> result = mapper.map(i -> {
+                try {
+                    return mapper.map(x -> x * x, range(i));
+                } catch (final InterruptedException e) {
+                    throw new AssertionError(e);
+                }
+            }, range(50));
+            for (int i = 0; i < 50; i++) {
+                Assert.assertEquals(squares(i), result.get(i));
+            }
+        }
+    }
+}
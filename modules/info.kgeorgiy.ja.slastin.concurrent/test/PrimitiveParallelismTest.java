@@ -0,0 +1,174 @@
+package test;
+
+import info.kgeorgiy.ja.slastin.concurrent.ParallelMapperImpl;
+import info.kgeorgiy.ja.slastin.concurrent.PrimitiveParallelism;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.stream.DoubleStream;
+
+/**
+ * Checks {@link PrimitiveParallelism} against sequential streams on whole arrays, slices and empty ranges,
+ * with own threads and via {@link ParallelMapperImpl}.
+ */
+public class PrimitiveParallelismTest {
+    private static final int[] SIZES = {0, 1, 2, 7, 100, 10_001};
+    // Small sizes get more threads than elements
+    private static final int[] THREADS = {1, 2, 3, 10, 50};
+
+    private static final ParallelMapperImpl MAPPER = new ParallelMapperImpl(3);
+    private static final List<PrimitiveParallelism> INSTANCES =
+            List.of(new PrimitiveParallelism(), new PrimitiveParallelism(MAPPER));
+
+    private final Random random = new Random(4875239857239L);
+
+    @AfterClass
+    public static void close() {
+        MAPPER.close();
+    }
+
+    private interface Check {
+        void run(PrimitiveParallelism parallelism, int threads, int size, int from, int to) throws InterruptedException;
+    }
+
+    // Whole array, inner slice and empty slices at both ends and in the middle
+    private static void forEachCase(final Check check) throws InterruptedException {
+        for (final PrimitiveParallelism parallelism : INSTANCES) {
+            for (final int threads : THREADS) {
+                for (final int size : SIZES) {
+                    check.run(parallelism, threads, size, 0, size);
+                    check.run(parallelism, threads, size, size / 3, size - size / 4);
+                    check.run(parallelism, threads, size, 0, 0);
+                    check.run(parallelism, threads, size, size, size);
+                    check.run(parallelism, threads, size, size / 2, size / 2);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void test01_int() throws InterruptedException {
+        forEachCase((parallelism, threads, size, from, to) -> {
+            final int[] values = random.ints(size, -1000, 1000).toArray();
+            Assert.assertEquals(Arrays.stream(values, from, to).asLongStream().sum(),
+                    parallelism.sum(threads, values, from, to));
+            Assert.assertEquals(Arrays.stream(values, from, to).filter(x -> x % 3 == 0).count(),
+                    parallelism.count(threads, values, from, to, x -> x % 3 == 0));
+            Assert.assertEquals(Arrays.stream(values, from, to).reduce(0, (x, y) -> x ^ y),
+                    parallelism.reduce(threads, values, from, to, 0, (x, y) -> x ^ y));
+            if (from < to) {
+                Assert.assertEquals(Arrays.stream(values, from, to).min().getAsInt(),
+                        parallelism.minimum(threads, values, from, to));
+                Assert.assertEquals(Arrays.stream(values, from, to).max().getAsInt(),
+                        parallelism.maximum(threads, values, from, to));
+            }
+            final int[] mapped = values.clone();
+            parallelism.mapInPlace(threads, mapped, from, to, x -> x * 2 + 1);
+            for (int i = 0; i < size; i++) {
+                Assert.assertEquals(from <= i && i < to ? values[i] * 2 + 1 : values[i], mapped[i]);
+            }
+        });
+    }
+
+    @Test
+    public void test02_intOverflow() throws InterruptedException {
+        final int[] values = new int[1000];
+        Arrays.fill(values, Integer.MAX_VALUE);
+        for (final PrimitiveParallelism parallelism : INSTANCES) {
+            Assert.assertEquals(1000L * Integer.MAX_VALUE, parallelism.sum(4, values));
+        }
+    }
+
+    @Test
+    public void test03_long() throws InterruptedException {
+        forEachCase((parallelism, threads, size, from, to) -> {
+            final long[] values = random.longs(size, -1_000_000, 1_000_000).toArray();
+            Assert.assertEquals(Arrays.stream(values, from, to).sum(), parallelism.sum(threads, values, from, to));
+            Assert.assertEquals(Arrays.stream(values, from, to).filter(x -> x > 0).count(),
+                    parallelism.count(threads, values, from, to, x -> x > 0));
+            Assert.assertEquals(Arrays.stream(values, from, to).reduce(1, (x, y) -> x * y % 1_000_003),
+                    parallelism.reduce(threads, values, from, to, 1, (x, y) -> x * y % 1_000_003));
+            if (from < to) {
+                Assert.assertEquals(Arrays.stream(values, from, to).min().getAsLong(),
+                        parallelism.minimum(threads, values, from, to));
+                Assert.assertEquals(Arrays.stream(values, from, to).max().getAsLong(),
+                        parallelism.maximum(threads, values, from, to));
+            }
+            final long[] mapped = values.clone();
+            parallelism.mapInPlace(threads, mapped, from, to, x -> -x);
+            for (int i = 0; i < size; i++) {
+                Assert.assertEquals(from <= i && i < to ? -values[i] : values[i], mapped[i]);
+            }
+        });
+    }
+
+    @Test
+    public void test04_double() throws InterruptedException {
+        forEachCase((parallelism, threads, size, from, to) -> {
+            final double[] values = random.doubles(size, -1, 1).toArray();
+            Assert.assertEquals(Arrays.stream(values, from, to).sum(), parallelism.sum(threads, values, from, to), 1e-9);
+            Assert.assertEquals(Arrays.stream(values, from, to).filter(x -> x > 0).count(),
+                    parallelism.count(threads, values, from, to, x -> x > 0));
+            if (from < to) {
+                Assert.assertEquals(Arrays.stream(values, from, to).min().getAsDouble(),
+                        parallelism.minimum(threads, values, from, to), 0);
+                Assert.assertEquals(Arrays.stream(values, from, to).max().getAsDouble(),
+                        parallelism.maximum(threads, values, from, to), 0);
+            }
+            final double[] mapped = values.clone();
+            parallelism.mapInPlace(threads, mapped, from, to, x -> x / 2);
+            for (int i = 0; i < size; i++) {
+                Assert.assertEquals(from <= i && i < to ? values[i] / 2 : values[i], mapped[i], 0);
+            }
+        });
+    }
+
+    @Test
+    public void test05_nan() throws InterruptedException {
+        final double[] values = DoubleStream.concat(random.doubles(1000), DoubleStream.of(Double.NaN)).toArray();
+        for (final PrimitiveParallelism parallelism : INSTANCES) {
+            for (final int threads : THREADS) {
+                Assert.assertTrue(Double.isNaN(parallelism.sum(threads, values)));
+                Assert.assertTrue(Double.isNaN(parallelism.minimum(threads, values)));
+                Assert.assertTrue(Double.isNaN(parallelism.maximum(threads, values)));
+                Assert.assertEquals(1, parallelism.count(threads, values, Double::isNaN));
+                Assert.assertEquals(Arrays.stream(values, 0, 1000).max().getAsDouble(),
+                        parallelism.maximum(threads, values, 0, 1000), 0);
+            }
+        }
+    }
+
+    @Test
+    public void test06_bounds() throws InterruptedException {
+        final int[] values = new int[10];
+        for (final PrimitiveParallelism parallelism : INSTANCES) {
+            for (final int[] range : new int[][]{{15, 15}, {-1, 3}, {5, 3}, {0, 11}}) {
+                try {
+                    parallelism.minimum(2, values, range[0], range[1]);
+                    Assert.fail("Range " + Arrays.toString(range));
+                } catch (final IndexOutOfBoundsException ignored) {
+                }
+                try {
+                    parallelism.sum(2, values, range[0], range[1]);
+                    Assert.fail("Range " + Arrays.toString(range));
+                } catch (final IndexOutOfBoundsException ignored) {
+                }
+            }
+            try {
+                parallelism.maximum(2, values, 4, 4);
+                Assert.fail("Empty range");
+            } catch (final NoSuchElementException ignored) {
+            }
+            try {
+                parallelism.sum(0, values);
+                Assert.fail("No threads");
+            } catch (final IllegalArgumentException ignored) {
+            }
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package test;
+
+import info.kgeorgiy.ja.slastin.concurrent.RingBuffer;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.TreeSet;
+
+/**
+ * Compares {@link RingBuffer} with the monitor-guarded queue {@code ParallelMapperImpl} used before:
+ * producers and consumers pass empty tasks, so time is dominated by the queue.
+ * {@link RingBuffer} never blocks, so its producers and consumers yield while it is full or empty.
+ * <p>
+ * Usage: {@code RingBufferBenchmark [tasks [iterations]]}.
+ */
+public class RingBufferBenchmark {
+    private static final Runnable TASK = () -> {};
+
+    private interface TaskQueue {
+        void put(Runnable task) throws InterruptedException;
+
+        Runnable take() throws InterruptedException;
+    }
+
+    private static class MonitorQueue implements TaskQueue {
+        private final Queue<Runnable> tasks = new ArrayDeque<>();
+
+        @Override
+        public void put(final Runnable task) {
+            synchronized (tasks) {
+                tasks.add(task);
+                tasks.notify();
+            }
+        }
+
+        @Override
+        public Runnable take() throws InterruptedException {
+            synchronized (tasks) {
+                while (tasks.isEmpty()) {
+                    tasks.wait();
+                }
+                return tasks.poll();
+            }
+        }
+    }
+
+    private static TaskQueue ringQueue() {
+        final RingBuffer<Runnable> buffer = new RingBuffer<>(1 << 12);
+        return new TaskQueue() {
+            @Override
+            public void put(final Runnable task) {
+                while (!buffer.offer(task)) {
+                    Thread.yield();
+                }
+            }
+
+            @Override
+            public Runnable take() {
+                Runnable task;
+                while ((task = buffer.poll()) == null) {
+                    Thread.yield();
+                }
+                return task;
+            }
+        };
+    }
+
+    public static void main(final String[] args) throws InterruptedException {
+        final int tasks = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        final int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+
+        System.out.format("%-10s %-10s %15s %15s%n", "producers", "consumers", "ring tasks/s", "monitor tasks/s");
+        final int processors = Runtime.getRuntime().availableProcessors();
+        for (final int threads : new TreeSet<>(List.of(1, 2, processors, 4 * processors))) {
+            double ring = 0;
+            double monitor = 0;
+            for (int i = 0; i < iterations + 1; i++) {
+                final double ringRun = run(ringQueue(), threads, tasks);
+                final double monitorRun = run(new MonitorQueue(), threads, tasks);
+                // The first iteration is warmup
+                if (i > 0) {
+                    ring += ringRun / iterations;
+                    monitor += monitorRun / iterations;
+                }
+            }
+            System.out.format("%-10d %-10d %15.0f %15.0f%n", threads, threads, ring, monitor);
+        }
+    }
+
+    private static double run(final TaskQueue queue, final int threads, final int tasks) throws InterruptedException {
+        final int perThread = tasks / threads;
+        final List<Thread> workers = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            workers.add(new Thread(() -> {
+                try {
+                    for (int j = 0; j < perThread; j++) {
+                        queue.put(TASK);
+                    }
+                } catch (final InterruptedException ignored) {
+                }
+            }));
+            workers.add(new Thread(() -> {
+                try {
+                    for (int j = 0; j < perThread; j++) {
+                        queue.take().run();
+                    }
+                } catch (final InterruptedException ignored) {
+                }
+            }));
+        }
+        final long start = System.nanoTime();
+        workers.forEach(Thread::start);
+        for (final Thread worker : workers) {
+            worker.join();
+        }
+        return perThread * threads * 1e9 / (System.nanoTime() - start);
+    }
+}
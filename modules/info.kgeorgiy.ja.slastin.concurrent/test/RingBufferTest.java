@@ -0,0 +1,117 @@
+package test;
+
+import info.kgeorgiy.ja.slastin.concurrent.RingBuffer;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Checks {@link RingBuffer} alone and under several producers and consumers.
+ */
+public class RingBufferTest {
+    @Test
+    public void test01_sequential() {
+        final RingBuffer<Integer> buffer = new RingBuffer<>(3);
+        Assert.assertEquals(4, buffer.capacity());
+        Assert.assertNull(buffer.poll());
+        // Several laps over the ring
+        for (int lap = 0; lap < 10; lap++) {
+            for (int i = 0; i < 4; i++) {
+                Assert.assertTrue(buffer.offer(lap * 4 + i));
+            }
+            Assert.assertFalse(buffer.offer(-1));
+            Assert.assertEquals(4, buffer.size());
+            for (int i = 0; i < 4; i++) {
+                Assert.assertEquals(Integer.valueOf(lap * 4 + i), buffer.poll());
+            }
+            Assert.assertNull(buffer.poll());
+            Assert.assertEquals(0, buffer.size());
+        }
+    }
+
+    @Test
+    public void test02_singleCell() {
+        final RingBuffer<Integer> buffer = new RingBuffer<>(1);
+        for (int i = 0; i < 100; i++) {
+            Assert.assertTrue(buffer.offer(i));
+            Assert.assertEquals(Integer.valueOf(i), buffer.poll());
+        }
+    }
+
+    @Test
+    public void test03_arguments() {
+        for (final int capacity : new int[]{0, -1, (1 << 30) + 1}) {
+            try {
+                new RingBuffer<>(capacity);
+                Assert.fail("Capacity " + capacity);
+            } catch (final IllegalArgumentException ignored) {
+            }
+        }
+        try {
+            new RingBuffer<>(2).offer(null);
+            Assert.fail("Null element");
+        } catch (final NullPointerException ignored) {
+        }
+    }
+
+    // Every element is taken exactly once and elements of one producer come in order
+    private static void transfer(final int capacity, final int producers, final int consumers, final int perProducer)
+            throws InterruptedException {
+        final RingBuffer<Long> buffer = new RingBuffer<>(capacity);
+        final AtomicReferenceArray<Long> last = new AtomicReferenceArray<>(producers * consumers);
+        final AtomicInteger taken = new AtomicInteger();
+        final AtomicLong sum = new AtomicLong();
+        final AtomicReference<Throwable> error = new AtomicReference<>();
+        final List<Thread> threads = new ArrayList<>();
+        for (int p = 0; p < producers; p++) {
+            final long producer = p;
+            threads.add(new Thread(() -> {
+                for (long i = 0; i < perProducer; i++) {
+                    while (!buffer.offer(producer << 32 | i)) {
+                        Thread.yield();
+                    }
+                }
+            }));
+        }
+        final int total = producers * perProducer;
+        for (int c = 0; c < consumers; c++) {
+            final int consumer = c;
+            threads.add(new Thread(() -> {
+                while (taken.getAndIncrement() < total) {
+                    Long value;
+                    while ((value = buffer.poll()) == null) {
+                        Thread.yield();
+                    }
+                    final int producer = (int) (value >>> 32);
+                    final Long previous = last.getAndSet(consumer * producers + producer, value);
+                    if (previous != null && previous >= value) {
+                        error.set(new AssertionError("Order of producer " + producer));
+                    }
+                    sum.addAndGet(value & 0xFFFFFFFFL);
+                }
+            }));
+        }
+        threads.forEach(Thread::start);
+        for (final Thread thread : threads) {
+            thread.join(60_000);
+            Assert.assertFalse("Thread is blocked", thread.isAlive());
+        }
+        Assert.assertNull(error.get());
+        Assert.assertEquals((long) producers * perProducer * (perProducer - 1) / 2, sum.get());
+        Assert.assertNull(buffer.poll());
+    }
+
+    @Test
+    public void test04_concurrent() throws InterruptedException {
+        transfer(1, 4, 4, 20_000);
+        transfer(2, 3, 1, 20_000);
+        transfer(4, 1, 3, 20_000);
+        transfer(64, 8, 8, 20_000);
+    }
+}
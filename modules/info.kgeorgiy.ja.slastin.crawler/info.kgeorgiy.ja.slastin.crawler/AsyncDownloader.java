@@ -0,0 +1,46 @@
+package info.kgeorgiy.ja.slastin.crawler;
+
+import info.kgeorgiy.java.advanced.crawler.Document;
+import info.kgeorgiy.java.advanced.crawler.Downloader;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Downloader that does not block a thread while a page is in flight.
+ * {@link WebCrawler} holds download pool threads only to start such downloads.
+ */
+public interface AsyncDownloader extends Downloader {
+    /**
+     * Starts download of the page. Returned future fails with {@link IOException} if page can not be downloaded.
+     */
+    CompletableFuture<Document> downloadAsync(String url);
+
+    @Override
+    default Document download(String url) throws IOException {
+        try {
+            return downloadAsync(url).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while downloading " + url);
+        } catch (ExecutionException e) {
+            throw toIOException(e.getCause());
+        }
+    }
+
+    /**
+     * Returns failure of a future as {@link IOException}, {@code null} if there was none.
+     */
+    static IOException toIOException(Throwable e) {
+        while ((e instanceof CompletionException || e instanceof ExecutionException) && e.getCause() != null) {
+            e = e.getCause();
+        }
+        if (e == null || e instanceof IOException) {
+            return (IOException) e;
+        }
+        return new IOException(e);
+    }
+}
@@ -0,0 +1,79 @@
+package info.kgeorgiy.ja.slastin.crawler;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bloom filter over a CAS-updated bit array. Additions of the same URL are serialized
+ * by a lock stripe, so concurrent callers never both see it as new.
+ */
+class BloomVisitedSet implements VisitedSet {
+    private static final int STRIPES = 64;
+
+    private final AtomicLongArray words;
+    private final long bits;
+    private final int hashes;
+    private final LongAdder setBits = new LongAdder();
+    private final Object[] stripes = new Object[STRIPES];
+
+    BloomVisitedSet(long expectedUrls, double falsePositiveRate) {
+        if (expectedUrls <= 0) {
+            throw new IllegalArgumentException("expectedUrls must be positive");
+        }
+        if (!(falsePositiveRate > 0 && falsePositiveRate < 1)) {
+            throw new IllegalArgumentException("falsePositiveRate must be in (0, 1)");
+        }
+        double ln2 = Math.log(2);
+        long words = (long) Math.ceil(-expectedUrls * Math.log(falsePositiveRate) / (ln2 * ln2) / 64);
+        if (words > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("Bloom filter is too large");
+        }
+        this.words = new AtomicLongArray((int) Math.max(1, words));
+        bits = 64L * this.words.length();
+        hashes = (int) Math.max(1, Math.round((double) bits / expectedUrls * ln2));
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Object();
+        }
+    }
+
+    @Override
+    public boolean add(String url) {
+        long first = Fingerprints.hash(url, Fingerprints.FIRST_SEED);
+        long second = Fingerprints.hash(url, Fingerprints.SECOND_SEED);
+        synchronized (stripes[(int) (first >>> 58) & (STRIPES - 1)]) {
+            boolean added = false;
+            for (int i = 0; i < hashes; i++) {
+                added |= setBit(Math.floorMod(first + i * second, bits));
+            }
+            return added;
+        }
+    }
+
+    private boolean setBit(long bit) {
+        int word = (int) (bit >>> 6);
+        long mask = 1L << bit;
+        while (true) {
+            long current = words.get(word);
+            if ((current & mask) != 0) {
+                return false;
+            }
+            if (words.compareAndSet(word, current, current | mask)) {
+                setBits.increment();
+                return true;
+            }
+        }
+    }
+
+    @Override
+    public long memoryFootprint() {
+        return 8L * words.length();
+    }
+
+    /**
+     * Returns false positive rate expected at the current fill of the filter.
+     */
+    @Override
+    public double collisionRate() {
+        return Math.pow((double) setBits.sum() / bits, hashes);
+    }
+}
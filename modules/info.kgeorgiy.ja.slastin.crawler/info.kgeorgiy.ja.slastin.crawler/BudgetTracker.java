@@ -0,0 +1,138 @@
+package info.kgeorgiy.ja.slastin.crawler;
+
+import info.kgeorgiy.java.advanced.crawler.Document;
+
+import java.util.concurrent.Phaser;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Spent budget of one crawl. Reaching a limit terminates the phaser crawl waits on, so it returns
+ * without waiting for downloads and extractions in progress.
+ */
+class BudgetTracker {
+    private final CrawlBudget budget;
+    private final long deadline;
+    private final AtomicInteger pages = new AtomicInteger();
+    private final AtomicLong bytes = new AtomicLong();
+    private final AtomicReference<CrawlBudget.Limit> reached = new AtomicReference<>();
+    // Admitted pages that are not recorded yet, crawl waits for them after a limit is reached
+    private final AtomicInteger recording = new AtomicInteger();
+    private volatile boolean isAwaiting;
+    private volatile Phaser phaser;
+
+    BudgetTracker(CrawlBudget budget) {
+        this.budget = budget;
+        deadline = budget.getTimeLimit() == null ? 0 : System.nanoTime() + budget.getTimeLimit().toNanos();
+    }
+
+    boolean isReached() {
+        if (reached.get() == null && budget.getTimeLimit() != null && System.nanoTime() - deadline >= 0) {
+            reach(CrawlBudget.Limit.TIME);
+        }
+        return reached.get() != null;
+    }
+
+    CrawlBudget.Limit getReached() {
+        return reached.get();
+    }
+
+    /**
+     * Spends budget on downloaded or failed page and records it by {@code record} if it fits.
+     *
+     * @param page downloaded page or {@code null} for failed one.
+     * @return whether page fits into the budget.
+     */
+    boolean admit(Document page, Runnable record) {
+        recording.incrementAndGet();
+        CrawlBudget.Limit limit = null;
+        try {
+            if (isReached()) {
+                return false;
+            }
+            if (budget.getMaxBytes() != 0 && page instanceof SizedDocument) {
+                long size = ((SizedDocument) page).size();
+                long total = bytes.addAndGet(size);
+                if (total - size >= budget.getMaxBytes()) {
+                    return false;
+                }
+                if (total >= budget.getMaxBytes()) {
+                    limit = CrawlBudget.Limit.BYTES;
+                }
+            }
+            if (budget.getMaxPages() != 0) {
+                int count = pages.incrementAndGet();
+                if (count > budget.getMaxPages()) {
+                    return false;
+                }
+                if (count == budget.getMaxPages()) {
+                    limit = CrawlBudget.Limit.PAGES;
+                }
+            }
+            record.run();
+            return true;
+        } finally {
+            if (recording.decrementAndGet() == 0 && isAwaiting) {
+                synchronized (this) {
+                    notifyAll();
+                }
+            }
+            if (limit != null) {
+                reach(limit);
+            }
+        }
+    }
+
+    private void reach(CrawlBudget.Limit limit) {
+        if (reached.compareAndSet(null, limit)) {
+            Phaser current = phaser;
+            if (current != null) {
+                current.forceTermination();
+            }
+        }
+    }
+
+    /**
+     * Arrives at the phaser and waits for others until the budget allows.
+     */
+    void arriveAndAwait(Phaser phaser) {
+        this.phaser = phaser;
+        if (reached.get() != null) {
+            phaser.forceTermination();
+        }
+        int phase = phaser.arrive();
+        try {
+            if (budget.getTimeLimit() == null) {
+                phaser.awaitAdvance(phase);
+            } else {
+                phaser.awaitAdvanceInterruptibly(phase, deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+            }
+        } catch (TimeoutException e) {
+            reach(CrawlBudget.Limit.TIME);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        awaitRecorded();
+    }
+
+    // Recording takes no longer than adding an URL to result, so the wait is not interruptible
+    private void awaitRecorded() {
+        isAwaiting = true;
+        boolean isInterrupted = false;
+        synchronized (this) {
+            while (recording.get() != 0) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    isInterrupted = true;
+                }
+            }
+        }
+        if (isInterrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
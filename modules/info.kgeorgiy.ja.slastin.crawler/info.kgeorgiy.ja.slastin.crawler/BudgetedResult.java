@@ -0,0 +1,26 @@
+package info.kgeorgiy.ja.slastin.crawler;
+
+import info.kgeorgiy.java.advanced.crawler.Result;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Result of a crawl with {@link CrawlBudget}.
+ */
+public class BudgetedResult extends Result {
+    private final CrawlBudget.Limit reachedLimit;
+
+    BudgetedResult(List<String> downloaded, Map<String, IOException> errors, CrawlBudget.Limit reachedLimit) {
+        super(downloaded, errors);
+        this.reachedLimit = reachedLimit;
+    }
+
+    /**
+     * Returns limit that was reached, so some pages may be missing, or {@code null} if crawl was completed.
+     */
+    public CrawlBudget.Limit getReachedLimit() {
+        return reachedLimit;
+    }
+}
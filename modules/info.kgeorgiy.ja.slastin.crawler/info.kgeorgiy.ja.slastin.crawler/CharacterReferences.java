@@ -0,0 +1,80 @@
+package info.kgeorgiy.ja.slastin.crawler;
+
+import java.util.Map;
+
+/**
+ * Decodes character references in attribute values.
+ */
+final class CharacterReferences {
+    private static final Map<String, String> NAMED = Map.of(
+            "amp", "&", "lt", "<", "gt", ">", "quot", "\"", "apos", "'", "nbsp", " "
+    );
+    // References that are recognized without trailing semicolon
+    private static final Map<String, String> LEGACY = Map.of(
+            "amp", "&", "lt", "<", "gt", ">", "quot", "\"", "nbsp", " "
+    );
+
+    private CharacterReferences() {
+    }
+
+    static String decode(String value) {
+        StringBuilder sb = new StringBuilder(value.length());
+        int i = 0;
+        while (i < value.length()) {
+            char c = value.charAt(i);
+            int next = c == '&' ? decodeReference(value, i + 1, sb) : -1;
+            if (next < 0) {
+                sb.append(c);
+                i++;
+            } else {
+                i = next;
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Appends decoded reference starting after {@code &}.
+     *
+     * @return index after the reference or {@code -1} if there is no reference.
+     */
+    private static int decodeReference(String value, int from, StringBuilder sb) {
+        if (from < value.length() && value.charAt(from) == '#') {
+            return decodeNumeric(value, from + 1, sb);
+        }
+        int to = from;
+        while (to < value.length() && Character.isLetterOrDigit(value.charAt(to))) {
+            to++;
+        }
+        String name = value.substring(from, to);
+        if (to < value.length() && value.charAt(to) == ';' && NAMED.containsKey(name)) {
+            sb.append(NAMED.get(name));
+            return to + 1;
+        }
+        if (LEGACY.containsKey(name) && (to == value.length() || value.charAt(to) != '=')) {
+            sb.append(LEGACY.get(name));
+            return to;
+        }
+        return -1;
+    }
+
+    private static int decodeNumeric(String value, int from, StringBuilder sb) {
+        int radix = 10;
+        if (from < value.length() && (value.charAt(from) | 0x20) == 'x') {
+            radix = 16;
+            from++;
+        }
+        int to = from;
+        long code = 0;
+        while (to < value.length() && Character.digit(value.charAt(to), radix) >= 0) {
+            code = Math.min(code * radix + Character.digit(value.charAt(to), radix), Integer.MAX_VALUE);
+            to++;
+        }
+        if (to == from) {
+            return -1;
+        }
+        boolean valid = code != 0 && code <= Character.MAX_CODE_POINT && !(0xD800 <= code && code <= 0xDFFF);
+        sb.appendCodePoint(valid ? (int) code : 0xFFFD);
+        return to < value.length() && value.charAt(to) == ';' ? to + 1 : to;
+    }
+}
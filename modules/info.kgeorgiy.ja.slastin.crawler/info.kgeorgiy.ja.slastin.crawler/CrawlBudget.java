@@ -0,0 +1,103 @@
+package info.kgeorgiy.ja.slastin.crawler;
+
+import java.time.Duration;
+
+/**
+ * Limits of one crawl. When any of them is reached, crawl stops scheduling downloads and extractions
+ * and returns pages known so far as {@link BudgetedResult}.
+ */
+public final class CrawlBudget {
+    public static final CrawlBudget UNLIMITED = new CrawlBudget();
+
+    public enum Limit {
+        /**
+         * Number of downloaded pages, including failed ones.
+         */
+        PAGES,
+
+        /**
+         * Total size of downloaded pages, only {@link SizedDocument} sizes are known.
+         */
+        BYTES,
+
+        /**
+         * Time since crawl started.
+         */
+        TIME
+    }
+
+    private int maxPages;
+    private long maxBytes;
+    private Duration timeLimit;
+
+    private CrawlBudget() {
+    }
+
+    private CrawlBudget(CrawlBudget other) {
+        maxPages = other.maxPages;
+        maxBytes = other.maxBytes;
+        timeLimit = other.timeLimit;
+    }
+
+    /**
+     * Returns maximal number of pages in result or zero if it is not limited.
+     */
+    public int getMaxPages() {
+        return maxPages;
+    }
+
+    /**
+     * Returns maximal number of downloaded bytes or zero if it is not limited.
+     */
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    public Duration getTimeLimit() {
+        return timeLimit;
+    }
+
+    public boolean isUnlimited() {
+        return maxPages == 0 && maxBytes == 0 && timeLimit == null;
+    }
+
+    /**
+     * Limits number of pages in result, zero removes the limit.
+     */
+    public CrawlBudget withMaxPages(int maxPages) {
+        if (maxPages < 0) {
+            throw new IllegalArgumentException("maxPages must not be negative");
+        }
+        CrawlBudget copy = new CrawlBudget(this);
+        copy.maxPages = maxPages;
+        return copy;
+    }
+
+    /**
+     * Stops crawl once pages of total size {@code maxBytes} are downloaded, zero removes the limit.
+     * Page that crosses the limit is still in result.
+     * <p>
+     * Only {@link SizedDocument}s are counted, among bundled downloaders only {@link HttpDownloader}
+     * returns them. Pages of other downloaders have unknown size and do not spend this limit.
+     */
+    public CrawlBudget withMaxBytes(long maxBytes) {
+        if (maxBytes < 0) {
+            throw new IllegalArgumentException("maxBytes must not be negative");
+        }
+        CrawlBudget copy = new CrawlBudget(this);
+        copy.maxBytes = maxBytes;
+        return copy;
+    }
+
+    /**
+     * Stops crawl {@code timeLimit} after it started, {@code null} removes the limit.
+     */
+    public CrawlBudget withTimeLimit(Duration timeLimit) {
+        if (timeLimit != null && timeLimit.isNegative()) {
+            throw new IllegalArgumentException("timeLimit must not be negative");
+        }
+        CrawlBudget copy = new CrawlBudget(this);
+        copy.timeLimit = timeLimit;
+        return copy;
+    }
+}
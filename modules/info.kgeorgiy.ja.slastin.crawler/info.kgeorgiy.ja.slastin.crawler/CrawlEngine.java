@@ -0,0 +1,16 @@
+package info.kgeorgiy.ja.slastin.crawler;
+
+public enum CrawlEngine {
+    /**
+     * Fixed pools of {@code downloaders} and {@code extractors} platform threads.
+     */
+    PLATFORM_THREADS,
+
+    /**
+     * Every download and extraction runs on its own virtual thread, {@code downloaders}
+     * and {@code extractors} only limit how many of them run at once.
+     * Falls back to {@link #PLATFORM_THREADS} on runtimes without virtual threads,
+     * see {@link WebCrawler#getEngine()}.
+     */
+    VIRTUAL_THREADS
+}
@@ -0,0 +1,36 @@
+package info.kgeorgiy.ja.slastin.crawler;
+
+import java.io.IOException;
+
+/**
+ * Outcome of one page download during streaming crawl.
+ */
+public class CrawlEvent {
+    private final String url;
+    private final IOException error;
+
+    CrawlEvent(String url, IOException error) {
+        this.url = url;
+        this.error = error;
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    /**
+     * Returns download error or {@code null} if page was downloaded successfully.
+     */
+    public IOException getError() {
+        return error;
+    }
+
+    public boolean isDownloaded() {
+        return error == null;
+    }
+
+    @Override
+    public String toString() {
+        return error == null ? url : url + " : " + error;
+    }
+}
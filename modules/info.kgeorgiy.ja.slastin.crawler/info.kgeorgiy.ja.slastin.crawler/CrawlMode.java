@@ -0,0 +1,14 @@
+package info.kgeorgiy.ja.slastin.crawler;
+
+public enum CrawlMode {
+    /**
+     * Every depth level is downloaded and extracted before the next one starts.
+     */
+    LEVEL_SYNCHRONOUS,
+
+    /**
+     * Every extracted link is scheduled immediately with its remaining depth,
+     * crawl finishes when no download or extraction is pending.
+     */
+    PIPELINED
+}
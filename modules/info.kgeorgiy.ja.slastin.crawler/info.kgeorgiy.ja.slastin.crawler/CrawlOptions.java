@@ -0,0 +1,268 @@
+package info.kgeorgiy.ja.slastin.crawler;
+
+import java.time.Duration;
+import java.util.Objects;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+public final class CrawlOptions {
+    public static final CrawlOptions DEFAULT = new CrawlOptions();
+
+    private CrawlMode mode = CrawlMode.LEVEL_SYNCHRONOUS;
+    private CrawlEngine engine = CrawlEngine.PLATFORM_THREADS;
+    private Supplier<? extends VisitedSet> visitedSet = VisitedSet::exact;
+    private double rateLimit;
+    private int rateLimitBurst;
+    private Duration latencyThreshold;
+    private boolean lockFreeScheduling = true;
+    private boolean metrics;
+    private boolean requestCoalescing;
+    private String metricsName;
+    private Duration snapshotPeriod;
+    private Consumer<String> snapshotSink;
+    private UrlScorer urlScorer;
+    private CrawlBudget budget = CrawlBudget.UNLIMITED;
+    private LinkGraphBuilder linkGraph;
+    private int maxBacklogDocuments;
+    private long maxBacklogBytes;
+
+    private CrawlOptions() {
+    }
+
+    private CrawlOptions(CrawlOptions other) {
+        mode = other.mode;
+        engine = other.engine;
+        visitedSet = other.visitedSet;
+        rateLimit = other.rateLimit;
+        rateLimitBurst = other.rateLimitBurst;
+        latencyThreshold = other.latencyThreshold;
+        lockFreeScheduling = other.lockFreeScheduling;
+        metrics = other.metrics;
+        requestCoalescing = other.requestCoalescing;
+        metricsName = other.metricsName;
+        snapshotPeriod = other.snapshotPeriod;
+        snapshotSink = other.snapshotSink;
+        urlScorer = other.urlScorer;
+        budget = other.budget;
+        linkGraph = other.linkGraph;
+        maxBacklogDocuments = other.maxBacklogDocuments;
+        maxBacklogBytes = other.maxBacklogBytes;
+    }
+
+    public CrawlMode getMode() {
+        return mode;
+    }
+
+    public CrawlEngine getEngine() {
+        return engine;
+    }
+
+    public Supplier<? extends VisitedSet> getVisitedSet() {
+        return visitedSet;
+    }
+
+    public double getRateLimit() {
+        return rateLimit;
+    }
+
+    public int getRateLimitBurst() {
+        return rateLimitBurst;
+    }
+
+    public Duration getLatencyThreshold() {
+        return latencyThreshold;
+    }
+
+    public boolean isLockFreeScheduling() {
+        return lockFreeScheduling;
+    }
+
+    public boolean isRequestCoalescing() {
+        return requestCoalescing;
+    }
+
+    public boolean isMetricsEnabled() {
+        return metrics || metricsName != null || snapshotPeriod != null;
+    }
+
+    public String getMetricsName() {
+        return metricsName;
+    }
+
+    public Duration getSnapshotPeriod() {
+        return snapshotPeriod;
+    }
+
+    public Consumer<String> getSnapshotSink() {
+        return snapshotSink;
+    }
+
+    public UrlScorer getUrlScorer() {
+        return urlScorer;
+    }
+
+    public CrawlBudget getBudget() {
+        return budget;
+    }
+
+    public LinkGraphBuilder getLinkGraph() {
+        return linkGraph;
+    }
+
+    public int getMaxBacklogDocuments() {
+        return maxBacklogDocuments;
+    }
+
+    public long getMaxBacklogBytes() {
+        return maxBacklogBytes;
+    }
+
+    public CrawlOptions withMode(CrawlMode mode) {
+        CrawlOptions copy = new CrawlOptions(this);
+        copy.mode = Objects.requireNonNull(mode);
+        return copy;
+    }
+
+    public CrawlOptions withEngine(CrawlEngine engine) {
+        CrawlOptions copy = new CrawlOptions(this);
+        copy.engine = Objects.requireNonNull(engine);
+        return copy;
+    }
+
+    /**
+     * Sets factory of visited URL sets, it is called once for every {@code download}.
+     */
+    public CrawlOptions withVisitedSet(Supplier<? extends VisitedSet> visitedSet) {
+        CrawlOptions copy = new CrawlOptions(this);
+        copy.visitedSet = Objects.requireNonNull(visitedSet);
+        return copy;
+    }
+
+    /**
+     * Limits downloads from every host by token bucket, zero rate removes the limit.
+     */
+    public CrawlOptions withRateLimit(double permitsPerSecond, int burst) {
+        if (permitsPerSecond < 0 || permitsPerSecond > 0 && burst <= 0) {
+            throw new IllegalArgumentException("Rate and burst must be positive");
+        }
+        CrawlOptions copy = new CrawlOptions(this);
+        copy.rateLimit = permitsPerSecond;
+        copy.rateLimitBurst = burst;
+        return copy;
+    }
+
+    /**
+     * Adjusts simultaneous downloads from every host between one and {@code perHost}, starting from {@code perHost}.
+     * Failed downloads or recent latency above the usual one of the host by more than {@code latencyThreshold}
+     * shrink the window. {@code null} fixes it to {@code perHost}.
+     */
+    public CrawlOptions withAdaptiveConcurrency(Duration latencyThreshold) {
+        if (latencyThreshold != null && (latencyThreshold.isNegative() || latencyThreshold.isZero())) {
+            throw new IllegalArgumentException("latencyThreshold must be positive");
+        }
+        CrawlOptions copy = new CrawlOptions(this);
+        copy.latencyThreshold = latencyThreshold;
+        return copy;
+    }
+
+    /**
+     * Chooses between lock-free and synchronized scheduling of downloads from one host. Lock-free one
+     * is used only with fixed window, i.e. without rate limit and adaptive concurrency.
+     */
+    public CrawlOptions withLockFreeScheduling(boolean enabled) {
+        CrawlOptions copy = new CrawlOptions(this);
+        copy.lockFreeScheduling = enabled;
+        return copy;
+    }
+
+    /**
+     * Makes crawls running at the same time share downloads of the same page: crawl waits for download
+     * in progress or reuses page downloaded while it was running. Downloaded pages are kept until crawls that may
+     * reuse them finish. Every crawl still extracts links itself.
+     */
+    public CrawlOptions withRequestCoalescing(boolean enabled) {
+        CrawlOptions copy = new CrawlOptions(this);
+        copy.requestCoalescing = enabled;
+        return copy;
+    }
+
+    /**
+     * Enables collection of metrics available by {@link WebCrawler#getMetrics()}.
+     * Disabled metrics cost one branch per event.
+     */
+    public CrawlOptions withMetrics(boolean enabled) {
+        CrawlOptions copy = new CrawlOptions(this);
+        copy.metrics = enabled;
+        return copy;
+    }
+
+    /**
+     * Enables metrics and registers them in the platform MBean server as
+     * {@code info.kgeorgiy.ja.slastin.crawler:type=WebCrawler,name=<name>}
+     * and {@code info.kgeorgiy.ja.slastin.crawler:type=Host,crawler=<name>,host=<host>} for every host.
+     * {@code null} removes registration.
+     */
+    public CrawlOptions withMetricsName(String name) {
+        CrawlOptions copy = new CrawlOptions(this);
+        copy.metricsName = name;
+        return copy;
+    }
+
+    /**
+     * Enables metrics and passes their text snapshot to {@code sink} every {@code period}.
+     * {@code null} period stops snapshots.
+     */
+    public CrawlOptions withMetricsSnapshot(Duration period, Consumer<String> sink) {
+        if (period != null && (period.isNegative() || period.isZero())) {
+            throw new IllegalArgumentException("period must be positive");
+        }
+        CrawlOptions copy = new CrawlOptions(this);
+        copy.snapshotPeriod = period;
+        copy.snapshotSink = period == null ? null : Objects.requireNonNull(sink);
+        return copy;
+    }
+
+    /**
+     * Replaces download queues of hosts with priority frontier: hosts take turns, every host downloads
+     * its page with the highest score first. Frontier uses fixed window of {@code perHost} downloads,
+     * so it can not be combined with rate limit and adaptive concurrency. {@code null} restores discovery order.
+     */
+    public CrawlOptions withFrontier(UrlScorer scorer) {
+        CrawlOptions copy = new CrawlOptions(this);
+        copy.urlScorer = scorer;
+        return copy;
+    }
+
+    /**
+     * Limits every crawl started by {@code download}, see {@link CrawlBudget}.
+     */
+    public CrawlOptions withBudget(CrawlBudget budget) {
+        CrawlOptions copy = new CrawlOptions(this);
+        copy.budget = Objects.requireNonNull(budget);
+        return copy;
+    }
+
+    /**
+     * Records links of every extracted page into {@code builder}, {@code null} stops recording.
+     * Links are recorded before they are filtered by hosts and visited pages.
+     */
+    public CrawlOptions withLinkGraph(LinkGraphBuilder builder) {
+        CrawlOptions copy = new CrawlOptions(this);
+        copy.linkGraph = builder;
+        return copy;
+    }
+
+    /**
+     * Defers downloads while {@code maxDocuments} downloaded documents or documents of total size
+     * {@code maxBytes} wait for extraction, see {@link ExtractBacklog}. Zero removes the limit.
+     */
+    public CrawlOptions withExtractBacklog(int maxDocuments, long maxBytes) {
+        if (maxDocuments < 0 || maxBytes < 0) {
+            throw new IllegalArgumentException("Watermarks must not be negative");
+        }
+        CrawlOptions copy = new CrawlOptions(this);
+        copy.maxBacklogDocuments = maxDocuments;
+        copy.maxBacklogBytes = maxBytes;
+        return copy;
+    }
+}
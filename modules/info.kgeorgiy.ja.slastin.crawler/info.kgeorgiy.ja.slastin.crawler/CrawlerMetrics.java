@@ -0,0 +1,345 @@
+package info.kgeorgiy.ja.slastin.crawler;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Collects metrics of one {@link WebCrawler}. Disabled instance ignores all events,
+ * so the crawler calls it unconditionally.
+ */
+class CrawlerMetrics implements CrawlerMetricsMXBean {
+    static final CrawlerMetrics DISABLED = new CrawlerMetrics();
+
+    private static final String DOMAIN = "info.kgeorgiy.ja.slastin.crawler";
+    private static final double NANOS_PER_MILLI = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final long RATE_INTERVAL = TimeUnit.SECONDS.toNanos(1);
+
+    private final boolean enabled;
+    private final int downloaders;
+    private final int extractors;
+    private final String name;
+    private final ScheduledExecutorService snapshots;
+    private final ExtractBacklog backlog;
+    private final LongAdder downloads = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final ConcurrentMap<String, LongAdder> errorCounts = new ConcurrentHashMap<>();
+    private final AtomicInteger queuedDownloads = new AtomicInteger();
+    private final AtomicInteger runningDownloads = new AtomicInteger();
+    private final AtomicInteger queuedExtractions = new AtomicInteger();
+    private final AtomicInteger runningExtractions = new AtomicInteger();
+    private final AtomicInteger activeCrawls = new AtomicInteger();
+    private final LatencyHistogram extraction = new LatencyHistogram();
+    private final ConcurrentMap<String, HostMetrics> hosts = new ConcurrentHashMap<>();
+    private long rateTime = System.nanoTime();
+    private long rateDownloads;
+    private double rate;
+
+    private CrawlerMetrics() {
+        enabled = false;
+        downloaders = extractors = 0;
+        name = null;
+        snapshots = null;
+        backlog = null;
+    }
+
+    CrawlerMetrics(int downloaders, int extractors, ExtractBacklog backlog, CrawlOptions options) {
+        enabled = true;
+        this.downloaders = downloaders;
+        this.extractors = extractors;
+        this.backlog = backlog;
+        name = options.getMetricsName();
+        if (name != null) {
+            register(crawlerName(), this);
+        }
+        if (options.getSnapshotPeriod() != null) {
+            Consumer<String> sink = options.getSnapshotSink();
+            long period = options.getSnapshotPeriod().toNanos();
+            snapshots = Executors.newSingleThreadScheduledExecutor(task -> {
+                Thread thread = new Thread(task, "crawler-metrics");
+                thread.setDaemon(true);
+                return thread;
+            });
+            snapshots.scheduleAtFixedRate(() -> sink.accept(getSnapshot()), period, period, TimeUnit.NANOSECONDS);
+        } else {
+            snapshots = null;
+        }
+    }
+
+    private static MBeanServer server() {
+        return ManagementFactory.getPlatformMBeanServer();
+    }
+
+    private static void register(ObjectName objectName, Object bean) {
+        try {
+            server().registerMBean(bean, objectName);
+        } catch (JMException e) {
+            throw new IllegalArgumentException("Can not register " + objectName + ": " + e.getMessage(), e);
+        }
+    }
+
+    private ObjectName crawlerName() {
+        return objectName("type=WebCrawler,name=" + ObjectName.quote(name));
+    }
+
+    private ObjectName hostName(String host) {
+        return objectName("type=Host,crawler=" + ObjectName.quote(name) + ",host=" + ObjectName.quote(host));
+    }
+
+    private static ObjectName objectName(String properties) {
+        try {
+            return new ObjectName(DOMAIN + ":" + properties);
+        } catch (JMException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    void hostAdded(String host, HostSupervisor supervisor) {
+        if (!enabled) {
+            return;
+        }
+        HostMetrics metrics = new HostMetrics(host, supervisor);
+        hosts.put(host, metrics);
+        if (name != null) {
+            register(hostName(host), metrics);
+        }
+    }
+
+    void crawlStarted() {
+        if (enabled) {
+            activeCrawls.incrementAndGet();
+        }
+    }
+
+    void crawlFinished() {
+        if (enabled) {
+            activeCrawls.decrementAndGet();
+        }
+    }
+
+    void downloadQueued() {
+        if (enabled) {
+            queuedDownloads.incrementAndGet();
+        }
+    }
+
+    /**
+     * Called instead of start and finish for queued download that will not run.
+     */
+    void downloadDropped() {
+        if (enabled) {
+            queuedDownloads.decrementAndGet();
+        }
+    }
+
+    /**
+     * @return start time to pass to {@link #downloadFinished}.
+     */
+    long downloadStarted() {
+        if (!enabled) {
+            return 0;
+        }
+        runningDownloads.incrementAndGet();
+        return System.nanoTime();
+    }
+
+    /**
+     * @param error download error or {@code null} on success.
+     */
+    void downloadFinished(String host, long start, IOException error) {
+        if (!enabled) {
+            return;
+        }
+        long elapsed = System.nanoTime() - start;
+        downloads.increment();
+        if (error != null) {
+            errors.increment();
+            errorCounts.computeIfAbsent(error.getClass().getName(), type -> new LongAdder()).increment();
+        }
+        HostMetrics metrics = hosts.get(host);
+        if (metrics != null) {
+            metrics.downloaded(elapsed, error != null);
+        }
+        runningDownloads.decrementAndGet();
+        queuedDownloads.decrementAndGet();
+    }
+
+    void downloadCoalesced() {
+        if (enabled) {
+            coalesced.increment();
+        }
+    }
+
+    void extractionQueued() {
+        if (enabled) {
+            queuedExtractions.incrementAndGet();
+        }
+    }
+
+    void extractionDropped() {
+        if (enabled) {
+            queuedExtractions.decrementAndGet();
+        }
+    }
+
+    /**
+     * @return start time to pass to {@link #extractionFinished}.
+     */
+    long extractionStarted() {
+        if (!enabled) {
+            return 0;
+        }
+        runningExtractions.incrementAndGet();
+        return System.nanoTime();
+    }
+
+    void extractionFinished(long start) {
+        if (!enabled) {
+            return;
+        }
+        extraction.record(System.nanoTime() - start);
+        runningExtractions.decrementAndGet();
+        queuedExtractions.decrementAndGet();
+    }
+
+    void close() {
+        if (snapshots != null) {
+            snapshots.shutdownNow();
+        }
+        if (name != null) {
+            try {
+                server().unregisterMBean(crawlerName());
+                for (String host : hosts.keySet()) {
+                    server().unregisterMBean(hostName(host));
+                }
+            } catch (JMException ignored) {
+            }
+        }
+    }
+
+    @Override
+    public long getDownloads() {
+        return downloads.sum();
+    }
+
+    @Override
+    public long getErrors() {
+        return errors.sum();
+    }
+
+    @Override
+    public long getCoalescedDownloads() {
+        return coalesced.sum();
+    }
+
+    @Override
+    public Map<String, Long> getErrorCounts() {
+        Map<String, Long> counts = new TreeMap<>();
+        errorCounts.forEach((type, count) -> counts.put(type, count.sum()));
+        return counts;
+    }
+
+    @Override
+    public synchronized double getPagesPerSecond() {
+        long now = System.nanoTime();
+        if (now - rateTime >= RATE_INTERVAL) {
+            long current = downloads.sum();
+            rate = (current - rateDownloads) * (double) TimeUnit.SECONDS.toNanos(1) / (now - rateTime);
+            rateDownloads = current;
+            rateTime = now;
+        }
+        return rate;
+    }
+
+    @Override
+    public int getRunningDownloads() {
+        return runningDownloads.get();
+    }
+
+    @Override
+    public int getPendingDownloads() {
+        return Math.max(0, queuedDownloads.get() - runningDownloads.get());
+    }
+
+    @Override
+    public int getRunningExtractions() {
+        return runningExtractions.get();
+    }
+
+    @Override
+    public int getPendingExtractions() {
+        return Math.max(0, queuedExtractions.get() - runningExtractions.get());
+    }
+
+    @Override
+    public long getExtractBacklogBytes() {
+        return backlog == null ? 0 : backlog.getBytes();
+    }
+
+    @Override
+    public long getThrottledDownloads() {
+        return backlog == null ? 0 : backlog.getThrottledDownloads();
+    }
+
+    @Override
+    public int getActiveCrawls() {
+        return activeCrawls.get();
+    }
+
+    @Override
+    public int getUnfinishedTasks() {
+        return queuedDownloads.get() + queuedExtractions.get();
+    }
+
+    @Override
+    public double getDownloadPoolUtilization() {
+        return downloaders == 0 ? 0 : (double) runningDownloads.get() / downloaders;
+    }
+
+    @Override
+    public double getExtractPoolUtilization() {
+        return extractors == 0 ? 0 : (double) runningExtractions.get() / extractors;
+    }
+
+    @Override
+    public double getExtractionMeanMillis() {
+        return extraction.getMean() / NANOS_PER_MILLI;
+    }
+
+    @Override
+    public double getExtractionP50Millis() {
+        return extraction.getPercentile(0.5) / NANOS_PER_MILLI;
+    }
+
+    @Override
+    public double getExtractionP99Millis() {
+        return extraction.getPercentile(0.99) / NANOS_PER_MILLI;
+    }
+
+    @Override
+    public String getSnapshot() {
+        StringBuilder sb = new StringBuilder(String.format(
+                "downloads=%d (%.1f/s) coalesced=%d errors=%d %s%n"
+                        + "downloading running=%d pending=%d utilization=%.0f%%%n"
+                        + "extracting running=%d pending=%d utilization=%.0f%% mean=%.2fms p50=%.2fms p99=%.2fms%n"
+                        + "backlog bytes=%d throttled downloads=%d%n"
+                        + "crawls=%d unfinished tasks=%d%n",
+                getDownloads(), getPagesPerSecond(), getCoalescedDownloads(), getErrors(), getErrorCounts(),
+                getRunningDownloads(), getPendingDownloads(), 100 * getDownloadPoolUtilization(),
+                getRunningExtractions(), getPendingExtractions(), 100 * getExtractPoolUtilization(),
+                getExtractionMeanMillis(), getExtractionP50Millis(), getExtractionP99Millis(),
+                getExtractBacklogBytes(), getThrottledDownloads(),
+                getActiveCrawls(), getUnfinishedTasks()));
+        new TreeMap<>(hosts).values().forEach(host -> sb.append("    ").append(host).append(System.lineSeparator()));
+        return sb.toString();
+    }
+}
@@ -0,0 +1,82 @@
+package info.kgeorgiy.ja.slastin.crawler;
+
+import java.util.Map;
+
+/**
+ * Counters and gauges of one {@link WebCrawler}. Times are in milliseconds.
+ */
+public interface CrawlerMetricsMXBean {
+    long getDownloads();
+
+    long getErrors();
+
+    /**
+     * Returns downloads that joined download of the same page by another crawl.
+     */
+    long getCoalescedDownloads();
+
+    /**
+     * Returns download errors grouped by exception class name.
+     */
+    Map<String, Long> getErrorCounts();
+
+    /**
+     * Returns pages downloaded per second, measured over at least one second.
+     */
+    double getPagesPerSecond();
+
+    int getRunningDownloads();
+
+    /**
+     * Returns downloads waiting for a host or a thread of download pool.
+     */
+    int getPendingDownloads();
+
+    int getRunningExtractions();
+
+    /**
+     * Returns total size of documents waiting for extraction or being extracted.
+     */
+    long getExtractBacklogBytes();
+
+    /**
+     * Returns number of downloads deferred by extraction backlog.
+     */
+    long getThrottledDownloads();
+
+    /**
+     * Returns extractions waiting for a thread of extract pool.
+     */
+    int getPendingExtractions();
+
+    /**
+     * Returns number of {@code download} calls and streams in progress.
+     */
+    int getActiveCrawls();
+
+    /**
+     * Returns downloads and extractions not finished yet, i.e. phaser parties that did not arrive.
+     */
+    int getUnfinishedTasks();
+
+    /**
+     * Returns share of busy download threads.
+     */
+    double getDownloadPoolUtilization();
+
+    /**
+     * Returns share of busy extract threads.
+     */
+    double getExtractPoolUtilization();
+
+    double getExtractionMeanMillis();
+
+    double getExtractionP50Millis();
+
+    double getExtractionP99Millis();
+
+    /**
+     * Returns text snapshot of the crawler and all its hosts.
+     */
+    String getSnapshot();
+}
@@ -0,0 +1,13 @@
+package info.kgeorgiy.ja.slastin.crawler;
+
+import info.kgeorgiy.java.advanced.crawler.Downloader;
+
+import java.io.IOException;
+import java.io.Serializable;
+
+/**
+ * Creates {@link Downloader} in worker process of {@link ShardedCrawler}.
+ */
+public interface DownloaderFactory extends Serializable {
+    Downloader create() throws IOException;
+}
@@ -0,0 +1,116 @@
+package info.kgeorgiy.ja.slastin.crawler;
+
+import info.kgeorgiy.java.advanced.crawler.Document;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Downloaded documents waiting for extraction or being extracted. Downloads that start while
+ * the backlog is at its watermark are deferred without holding a thread or a host permit
+ * and resumed once extraction catches up, so the backlog may exceed the watermark only by downloads
+ * in progress. Documents other than {@link SizedDocument} weigh 16 KiB.
+ */
+public class ExtractBacklog {
+    private static final int UNKNOWN_DOCUMENT_WEIGHT = 16 << 10;
+
+    private final int maxDocuments;
+    private final long maxBytes;
+    private final AtomicInteger documents = new AtomicInteger();
+    private final AtomicLong bytes = new AtomicLong();
+    private final LongAdder throttled = new LongAdder();
+    private final Queue<Runnable> deferred = new ConcurrentLinkedQueue<>();
+
+    ExtractBacklog(int maxDocuments, long maxBytes) {
+        this.maxDocuments = maxDocuments;
+        this.maxBytes = maxBytes;
+    }
+
+    private static long size(Document page) {
+        return page instanceof SizedDocument ? ((SizedDocument) page).size() : UNKNOWN_DOCUMENT_WEIGHT;
+    }
+
+    private boolean isLimited() {
+        return maxDocuments != 0 || maxBytes != 0;
+    }
+
+    public boolean isFull() {
+        return maxDocuments != 0 && documents.get() >= maxDocuments || maxBytes != 0 && bytes.get() >= maxBytes;
+    }
+
+    void add(Document page) {
+        documents.incrementAndGet();
+        bytes.addAndGet(size(page));
+    }
+
+    void remove(Document page) {
+        documents.decrementAndGet();
+        bytes.addAndGet(-size(page));
+        if (isLimited() && !deferred.isEmpty()) {
+            resume(false);
+        }
+    }
+
+    /**
+     * Defers download if backlog is at its watermark.
+     *
+     * @param download adds download again, called once backlog is below its watermarks or by {@link #resumeAll()}.
+     * @return whether download is deferred.
+     */
+    boolean defer(Runnable download) {
+        if (!isFull()) {
+            return false;
+        }
+        throttled.increment();
+        deferred.add(download);
+        // Extraction may have finished before download was deferred
+        resume(false);
+        return true;
+    }
+
+    /**
+     * Resumes all deferred downloads regardless of watermarks, e.g. on close.
+     */
+    void resumeAll() {
+        resume(true);
+    }
+
+    private void resume(boolean all) {
+        Runnable download;
+        while ((all || !isFull()) && (download = deferred.poll()) != null) {
+            download.run();
+        }
+    }
+
+    public int getDocuments() {
+        return documents.get();
+    }
+
+    public long getBytes() {
+        return bytes.get();
+    }
+
+    /**
+     * Returns document watermark or zero if number of documents is not limited.
+     */
+    public int getMaxDocuments() {
+        return maxDocuments;
+    }
+
+    /**
+     * Returns byte watermark or zero if size of documents is not limited.
+     */
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    /**
+     * Returns number of downloads deferred by the backlog.
+     */
+    public long getThrottledDownloads() {
+        return throttled.sum();
+    }
+}
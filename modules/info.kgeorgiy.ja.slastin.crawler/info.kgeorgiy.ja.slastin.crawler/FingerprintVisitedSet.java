@@ -0,0 +1,197 @@
+package info.kgeorgiy.ja.slastin.crawler;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Linear probing table of fingerprints sized for twice the expected number of URLs.
+ * Slots are claimed by CAS and never freed, zero marks an empty slot.
+ * A 128-bit fingerprint is claimed by its first word, readers wait for the second one.
+ * <p>
+ * Table doubles once more than half of its slots are taken. Fingerprints are moved to the new table
+ * in chunks of slots, every moved or empty slot of the old table is marked as forwarded, so adds
+ * can not claim it. Adds that meet a forwarded slot help to move the remaining chunks and continue
+ * in the new table once all of them are moved, as a fingerprint could still be in a chunk moved
+ * by another thread. No locks are taken, adds that do not meet resizing only CAS their slot.
+ */
+class FingerprintVisitedSet implements VisitedSet {
+    private static final int MAX_CAPACITY = 1 << 29;
+    // Load is checked only after long probes, as summing the counter is not free
+    private static final int LOAD_CHECK_PROBES = 8;
+    // First word of a forwarded slot, fingerprints never take it
+    private static final long MOVED = -1;
+    private static final int TRANSFER_CHUNK = 1 << 10;
+
+    private final int width;
+    private final AtomicReference<Table> table;
+    private final LongAdder inserted = new LongAdder();
+    private final LongAdder collided = new LongAdder();
+
+    FingerprintVisitedSet(int expectedUrls, int width) {
+        if (expectedUrls <= 0) {
+            throw new IllegalArgumentException("expectedUrls must be positive");
+        }
+        int capacity = (int) Math.min(MAX_CAPACITY, Long.highestOneBit(2L * expectedUrls - 1) << 1);
+        this.width = width;
+        table = new AtomicReference<>(new Table(capacity, width));
+    }
+
+    @Override
+    public boolean add(String url) {
+        long first = fingerprint(Fingerprints.hash(url, Fingerprints.FIRST_SEED));
+        long second = width == 1 ? 0 : nonZero(Fingerprints.hash(url, Fingerprints.SECOND_SEED));
+        Table table = this.table.get();
+        while (true) {
+            int capacity = table.mask + 1;
+            int probes = tryAdd(table, first, second);
+            if (probes == 0) {
+                return false;
+            }
+            if (probes < 0) {
+                table = transfer(table);
+            } else if (probes > capacity) {
+                if (capacity == MAX_CAPACITY) {
+                    throw new IllegalStateException("Fingerprint table is full");
+                }
+                table = transfer(table);
+            } else {
+                if (probes > LOAD_CHECK_PROBES && capacity < MAX_CAPACITY && 2 * inserted.sum() > capacity) {
+                    transfer(table);
+                }
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Returns zero if fingerprint is already present, number of probed slots if it was added,
+     * more than capacity if the table is full and a negative number if a forwarded slot was met.
+     */
+    private int tryAdd(Table table, long first, long second) {
+        AtomicLongArray slots = table.slots;
+        int mask = table.mask;
+        int home = (int) first & mask;
+        for (int probe = 0; probe <= mask; probe++) {
+            int slot = ((home + probe) & mask) * width;
+            long current = slots.get(slot);
+            if (current == 0) {
+                if (slots.compareAndSet(slot, 0, first)) {
+                    if (width != 1) {
+                        slots.set(slot + 1, second);
+                    }
+                    inserted.increment();
+                    if (probe != 0) {
+                        collided.increment();
+                    }
+                    return probe + 1;
+                }
+                current = slots.get(slot);
+            }
+            if (current == MOVED) {
+                return -1;
+            }
+            if (current == first && (width == 1 || awaitSecond(slots, slot) == second)) {
+                return 0;
+            }
+        }
+        return mask + 2;
+    }
+
+    /**
+     * Moves fingerprints of {@code table} to the table twice as large together with other threads
+     * and returns the new table.
+     */
+    private Table transfer(Table table) {
+        int capacity = table.mask + 1;
+        if (table.isResizing.compareAndSet(false, true)) {
+            table.next = new Table(2 * capacity, width);
+        }
+        Table next;
+        while ((next = table.next) == null) {
+            Thread.yield();
+        }
+        int from;
+        while ((from = table.claimed.get()) < capacity) {
+            int to = Math.min(capacity, from + TRANSFER_CHUNK);
+            if (!table.claimed.compareAndSet(from, to)) {
+                continue;
+            }
+            move(table.slots, next, from, to);
+            table.moved.addAndGet(to - from);
+        }
+        while (table.moved.get() < capacity) {
+            Thread.yield();
+        }
+        this.table.compareAndSet(table, next);
+        return next;
+    }
+
+    private void move(AtomicLongArray slots, Table next, int from, int to) {
+        for (int i = from; i < to; i++) {
+            int slot = i * width;
+            long first = slots.get(slot);
+            if (first == 0 && slots.compareAndSet(slot, 0, MOVED)) {
+                continue;
+            }
+            first = slots.get(slot);
+            long second = width == 1 ? 0 : awaitSecond(slots, slot);
+            // Moved fingerprints are not compared, as nobody else adds to the new table yet
+            int moved = (int) first & next.mask;
+            while (!next.slots.compareAndSet(moved * width, 0, first)) {
+                moved = (moved + 1) & next.mask;
+            }
+            if (width != 1) {
+                next.slots.set(moved * width + 1, second);
+            }
+            slots.set(slot, MOVED);
+        }
+    }
+
+    private static long awaitSecond(AtomicLongArray slots, int slot) {
+        long second;
+        while ((second = slots.get(slot + 1)) == 0) {
+            Thread.onSpinWait();
+        }
+        return second;
+    }
+
+    private static long nonZero(long fingerprint) {
+        return fingerprint == 0 ? 1 : fingerprint;
+    }
+
+    private static long fingerprint(long hash) {
+        return hash == MOVED ? 1 : nonZero(hash);
+    }
+
+    @Override
+    public long memoryFootprint() {
+        return 8L * table.get().slots.length();
+    }
+
+    /**
+     * Returns share of added URLs which home slot was already taken by another fingerprint.
+     */
+    @Override
+    public double collisionRate() {
+        long total = inserted.sum();
+        return total == 0 ? 0 : (double) collided.sum() / total;
+    }
+
+    private static class Table {
+        final AtomicLongArray slots;
+        final int mask;
+        final AtomicBoolean isResizing = new AtomicBoolean();
+        volatile Table next;
+        // Slots taken for moving by transferring threads and slots already moved
+        final AtomicInteger claimed = new AtomicInteger();
+        final AtomicInteger moved = new AtomicInteger();
+
+        Table(int capacity, int width) {
+            slots = new AtomicLongArray(capacity * width);
+            mask = capacity - 1;
+        }
+    }
+}
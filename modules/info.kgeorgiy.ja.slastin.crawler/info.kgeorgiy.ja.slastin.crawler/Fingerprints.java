@@ -0,0 +1,24 @@
+package info.kgeorgiy.ja.slastin.crawler;
+
+final class Fingerprints {
+    static final long FIRST_SEED = 0x243F6A8885A308D3L;
+    static final long SECOND_SEED = 0x13198A2E03707344L;
+
+    private Fingerprints() {
+    }
+
+    static long hash(String url, long seed) {
+        long h = seed;
+        for (int i = 0; i < url.length(); i++) {
+            h ^= url.charAt(i) * 0x9E3779B97F4A7C15L;
+            h = Long.rotateLeft(h, 27) * 0xC2B2AE3D27D4EB4FL + 0x52DCE729L;
+        }
+        return mix(h ^ url.length());
+    }
+
+    private static long mix(long h) {
+        h = (h ^ (h >>> 33)) * 0xFF51AFD7ED558CCDL;
+        h = (h ^ (h >>> 33)) * 0xC4CEB9FE1A85EC53L;
+        return h ^ (h >>> 33);
+    }
+}
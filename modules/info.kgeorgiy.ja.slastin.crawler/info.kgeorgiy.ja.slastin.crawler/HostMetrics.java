@@ -0,0 +1,90 @@
+package info.kgeorgiy.ja.slastin.crawler;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+class HostMetrics implements HostMetricsMXBean {
+    private static final double NANOS_PER_MILLI = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final String host;
+    private final HostSupervisor supervisor;
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final LongAdder errors = new LongAdder();
+
+    HostMetrics(String host, HostSupervisor supervisor) {
+        this.host = host;
+        this.supervisor = supervisor;
+    }
+
+    void downloaded(long elapsed, boolean failed) {
+        latency.record(elapsed);
+        if (failed) {
+            errors.increment();
+        }
+    }
+
+    @Override
+    public String getHost() {
+        return host;
+    }
+
+    @Override
+    public int getWindow() {
+        return supervisor.getState().getWindow();
+    }
+
+    @Override
+    public int getRunning() {
+        return supervisor.getState().getRunning();
+    }
+
+    @Override
+    public int getPending() {
+        return supervisor.getState().getPending();
+    }
+
+    @Override
+    public long getDownloads() {
+        return latency.getCount();
+    }
+
+    @Override
+    public long getErrors() {
+        return errors.sum();
+    }
+
+    @Override
+    public double getLatencyMeanMillis() {
+        return latency.getMean() / NANOS_PER_MILLI;
+    }
+
+    @Override
+    public double getLatencyP50Millis() {
+        return latency.getPercentile(0.5) / NANOS_PER_MILLI;
+    }
+
+    @Override
+    public double getLatencyP90Millis() {
+        return latency.getPercentile(0.9) / NANOS_PER_MILLI;
+    }
+
+    @Override
+    public double getLatencyP99Millis() {
+        return latency.getPercentile(0.99) / NANOS_PER_MILLI;
+    }
+
+    @Override
+    public double getLatencyMaxMillis() {
+        return latency.getMax() / NANOS_PER_MILLI;
+    }
+
+    @Override
+    public String toString() {
+        HostState state = supervisor.getState();
+        return String.format("%s: window=%d running=%d pending=%d downloads=%d errors=%d"
+                        + " latency mean=%.1fms p50=%.1fms p90=%.1fms p99=%.1fms max=%.1fms",
+                host, state.getWindow(), state.getRunning(), state.getPending(), getDownloads(), getErrors(),
+                getLatencyMeanMillis(), getLatencyP50Millis(), getLatencyP90Millis(), getLatencyP99Millis(),
+                getLatencyMaxMillis());
+    }
+}
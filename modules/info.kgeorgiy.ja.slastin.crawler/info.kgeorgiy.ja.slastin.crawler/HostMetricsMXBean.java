@@ -0,0 +1,31 @@
+package info.kgeorgiy.ja.slastin.crawler;
+
+/**
+ * Counters and download latency distribution of one host. Times are in milliseconds.
+ */
+public interface HostMetricsMXBean {
+    String getHost();
+
+    /**
+     * Returns current number of downloads allowed to run at once.
+     */
+    int getWindow();
+
+    int getRunning();
+
+    int getPending();
+
+    long getDownloads();
+
+    long getErrors();
+
+    double getLatencyMeanMillis();
+
+    double getLatencyP50Millis();
+
+    double getLatencyP90Millis();
+
+    double getLatencyP99Millis();
+
+    double getLatencyMaxMillis();
+}
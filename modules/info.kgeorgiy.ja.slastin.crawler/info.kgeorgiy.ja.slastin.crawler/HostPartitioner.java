@@ -0,0 +1,28 @@
+package info.kgeorgiy.ja.slastin.crawler;
+
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * Consistent hash ring of shards. Every shard has several points on the ring,
+ * host belongs to the shard of the first point after its hash.
+ */
+class HostPartitioner {
+    private static final int POINTS_PER_SHARD = 64;
+
+    private final NavigableMap<Long, Integer> ring = new TreeMap<>();
+
+    HostPartitioner(int shards) {
+        for (int shard = 0; shard < shards; shard++) {
+            for (int point = 0; point < POINTS_PER_SHARD; point++) {
+                ring.put(Fingerprints.hash("shard-" + shard + "#" + point, Fingerprints.FIRST_SEED), shard);
+            }
+        }
+    }
+
+    int shardOf(String host) {
+        Map.Entry<Long, Integer> entry = ring.ceilingEntry(Fingerprints.hash(host, Fingerprints.FIRST_SEED));
+        return (entry == null ? ring.firstEntry() : entry).getValue();
+    }
+}
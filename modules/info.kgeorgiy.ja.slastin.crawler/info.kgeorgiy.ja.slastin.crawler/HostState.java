@@ -0,0 +1,64 @@
+package info.kgeorgiy.ja.slastin.crawler;
+
+/**
+ * Snapshot of download state of one host.
+ */
+public class HostState {
+    private final int window;
+    private final int running;
+    private final int pending;
+    private final double tokens;
+    private final double latencyMillis;
+    private final double errorRate;
+
+    HostState(int window, int running, int pending, double tokens, double latencyMillis, double errorRate) {
+        this.window = window;
+        this.running = running;
+        this.pending = pending;
+        this.tokens = tokens;
+        this.latencyMillis = latencyMillis;
+        this.errorRate = errorRate;
+    }
+
+    /**
+     * Returns current number of downloads allowed to run at once.
+     */
+    public int getWindow() {
+        return window;
+    }
+
+    public int getRunning() {
+        return running;
+    }
+
+    public int getPending() {
+        return pending;
+    }
+
+    /**
+     * Returns tokens left in the rate limiter or {@code Double.POSITIVE_INFINITY} if rate is not limited.
+     */
+    public double getTokens() {
+        return tokens;
+    }
+
+    /**
+     * Returns exponentially weighted average of download latency.
+     */
+    public double getLatencyMillis() {
+        return latencyMillis;
+    }
+
+    /**
+     * Returns exponentially weighted share of failed downloads.
+     */
+    public double getErrorRate() {
+        return errorRate;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("window=%d running=%d pending=%d tokens=%.1f latency=%.1fms errors=%.3f",
+                window, running, pending, tokens, latencyMillis, errorRate);
+    }
+}
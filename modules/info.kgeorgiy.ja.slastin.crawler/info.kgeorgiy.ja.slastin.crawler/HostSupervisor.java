@@ -0,0 +1,46 @@
+package info.kgeorgiy.ja.slastin.crawler;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+
+/**
+ * Limits downloads from one host and submits them to download pool.
+ */
+interface HostSupervisor {
+    /**
+     * Returns lock-free supervisor if its window is fixed and it is enabled by options.
+     */
+    static HostSupervisor create(Executor downloadPool, ScheduledExecutorService scheduler, int perHost,
+                                 CrawlOptions options) {
+        if (options.isLockFreeScheduling() && options.getRateLimit() == 0 && options.getLatencyThreshold() == null) {
+            return new LockFreeHostSupervisor(downloadPool, perHost);
+        }
+        return new SynchronizedHostSupervisor(downloadPool, scheduler, perHost, options);
+    }
+
+    void addTask(Runnable task);
+
+    /**
+     * Adds task with the given score, supervisors without priorities run tasks in order they were added.
+     */
+    default void addTask(Runnable task, double score) {
+        addTask(task);
+    }
+
+    /**
+     * Called by every task when it finishes.
+     *
+     * @param elapsed time of the download itself in nanoseconds.
+     * @param failed whether download failed.
+     */
+    void nextTask(long elapsed, boolean failed);
+
+    /**
+     * Called instead of {@link #nextTask(long, boolean)} by task that finished without download, e.g. dropped one.
+     */
+    default void nextTask() {
+        nextTask(0, false);
+    }
+
+    HostState getState();
+}
@@ -0,0 +1,157 @@
+package info.kgeorgiy.ja.slastin.crawler;
+
+import info.kgeorgiy.java.advanced.crawler.Document;
+import info.kgeorgiy.java.advanced.crawler.URLUtils;
+
+import java.io.Closeable;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+
+/**
+ * Downloads pages by {@link HttpClient#sendAsync}. Client prefers HTTP/2, so requests to one host
+ * are multiplexed over a single connection, falling back to HTTP/1.1 connection pool if server does not support it.
+ * Number of simultaneous requests (HTTP/2 streams) to one host is limited by {@code perHost}, other requests wait
+ * in a queue without holding a thread.
+ */
+public class HttpDownloader implements AsyncDownloader, Closeable {
+    private static final Duration TIMEOUT = Duration.ofSeconds(30);
+
+    private final ExecutorService executor = Executors.newCachedThreadPool(task -> {
+        Thread thread = new Thread(task, "HttpDownloader");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final ConcurrentMap<String, HostSupervisor> hosts = new ConcurrentHashMap<>();
+    private final HttpClient client;
+    private final LinkExtractor extractor;
+    private final int perHost;
+    private final Duration timeout;
+
+    public HttpDownloader(int perHost) {
+        this(perHost, LinkExtractor.JSOUP, TIMEOUT);
+    }
+
+    /**
+     * @param timeout connect timeout and timeout of every request.
+     */
+    public HttpDownloader(int perHost, LinkExtractor extractor, Duration timeout) {
+        if (perHost <= 0) {
+            throw new IllegalArgumentException("perHost must be positive");
+        }
+        this.perHost = perHost;
+        this.extractor = extractor;
+        this.timeout = timeout;
+        client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .connectTimeout(timeout)
+                .executor(executor)
+                .build();
+    }
+
+    @Override
+    public CompletableFuture<Document> downloadAsync(String url) {
+        URI uri;
+        try {
+            uri = URLUtils.getURI(url);
+        } catch (MalformedURLException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        if (!"http".equalsIgnoreCase(uri.getScheme()) && !"https".equalsIgnoreCase(uri.getScheme())) {
+            return CompletableFuture.failedFuture(new MalformedURLException("Unsupported scheme: " + url));
+        }
+        HttpRequest request;
+        try {
+            request = HttpRequest.newBuilder(uri).timeout(timeout).GET().build();
+        } catch (IllegalArgumentException e) {
+            return CompletableFuture.failedFuture(new MalformedURLException(e.getMessage()));
+        }
+        HostSupervisor streams = hosts.computeIfAbsent(uri.getHost(), host -> new LockFreeHostSupervisor(executor, perHost));
+        CompletableFuture<Document> result = new CompletableFuture<>();
+        try {
+            streams.addTask(() -> send(url, request, streams, result));
+        } catch (RuntimeException e) {
+            // Executor is shut down by close
+            result.completeExceptionally(new IOException("Downloader is closed", e));
+        }
+        return result;
+    }
+
+    private void send(String url, HttpRequest request, HostSupervisor streams, CompletableFuture<Document> result) {
+        long start = System.nanoTime();
+        CompletableFuture<HttpResponse<byte[]>> response;
+        try {
+            response = client.sendAsync(request, HttpResponse.BodyHandlers.ofByteArray());
+        } catch (RuntimeException e) {
+            try {
+                result.completeExceptionally(new IOException("Request is not sent: " + url, e));
+            } finally {
+                streams.nextTask(System.nanoTime() - start, true);
+            }
+            return;
+        }
+        response.whenComplete((page, e) -> {
+            try {
+                if (e != null) {
+                    result.completeExceptionally(AsyncDownloader.toIOException(e));
+                } else {
+                    result.complete(toDocument(url, page));
+                }
+            } catch (IOException error) {
+                result.completeExceptionally(error);
+            } finally {
+                streams.nextTask(System.nanoTime() - start, e != null);
+            }
+        });
+    }
+
+    private Document toDocument(String url, HttpResponse<byte[]> response) throws IOException {
+        int code = response.statusCode();
+        if (code == 404 || code == 410) {
+            throw new FileNotFoundException(url);
+        }
+        if (code >= 400) {
+            throw new IOException("Server returned HTTP response code: " + code + " for URL: " + url);
+        }
+        // Relative links are resolved against the page after redirects
+        URI base = response.uri();
+        byte[] body = response.body();
+        return new SizedDocument() {
+            @Override
+            public List<String> extractLinks() throws IOException {
+                return extractor.extractLinks(base, ByteBuffer.wrap(body));
+            }
+
+            @Override
+            public long size() {
+                return body.length;
+            }
+        };
+    }
+
+    public Map<String, HostState> getHostStates() {
+        Map<String, HostState> states = new HashMap<>();
+        hosts.forEach((host, streams) -> states.put(host, streams.getState()));
+        return states;
+    }
+
+    /**
+     * Stops threads of the client. Should be called after all downloads are completed,
+     * since responses to requests in flight are not processed.
+     */
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,101 @@
+package info.kgeorgiy.ja.slastin.crawler;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs at most {@code limit} tasks of the underlying thread-per-task executor at once,
+ * the rest wait in a queue without occupying any thread.
+ */
+class LimitedExecutorService extends AbstractExecutorService {
+    private final ExecutorService executor;
+    private final int limit;
+    private final Queue<Runnable> pending = new ArrayDeque<>();
+    private int running;
+    private boolean isShutdown;
+
+    LimitedExecutorService(ExecutorService executor, int limit) {
+        this.executor = executor;
+        this.limit = limit;
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        synchronized (this) {
+            if (isShutdown) {
+                throw new RejectedExecutionException("Executor is shut down");
+            }
+            if (running == limit) {
+                pending.add(task);
+                return;
+            }
+            ++running;
+        }
+        start(task);
+    }
+
+    private void start(Runnable task) {
+        executor.execute(() -> {
+            try {
+                task.run();
+            } finally {
+                next();
+            }
+        });
+    }
+
+    private void next() {
+        Runnable task;
+        synchronized (this) {
+            task = pending.poll();
+            if (task == null) {
+                if (--running == 0 && isShutdown) {
+                    executor.shutdown();
+                }
+                return;
+            }
+        }
+        start(task);
+    }
+
+    @Override
+    public synchronized void shutdown() {
+        isShutdown = true;
+        if (running == 0) {
+            executor.shutdown();
+        }
+    }
+
+    @Override
+    public List<Runnable> shutdownNow() {
+        List<Runnable> notStarted;
+        synchronized (this) {
+            isShutdown = true;
+            notStarted = new ArrayList<>(pending);
+            pending.clear();
+        }
+        executor.shutdownNow();
+        return notStarted;
+    }
+
+    @Override
+    public synchronized boolean isShutdown() {
+        return isShutdown;
+    }
+
+    @Override
+    public boolean isTerminated() {
+        return executor.isTerminated();
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return executor.awaitTermination(timeout, unit);
+    }
+}
@@ -0,0 +1,272 @@
+package info.kgeorgiy.ja.slastin.crawler;
+
+import info.kgeorgiy.java.advanced.crawler.Document;
+import info.kgeorgiy.java.advanced.crawler.Downloader;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Keeps extracted links and download errors of recently used pages in memory.
+ * Pages that were not extracted yet keep the underlying document instead, it weighs its size
+ * for {@link SizedDocument} and 16 KiB otherwise.
+ * Errors are kept for a limited time, so temporary failures are retried.
+ * <p>
+ * Cache is split into segments with their own LRU order and an equal share of the limits.
+ * Concurrent downloads of the same URL share one call to the underlying downloader,
+ * concurrent extractions of the same document share one call of {@link Document#extractLinks()}.
+ */
+public class LinkCachingDownloader implements Downloader {
+    public static final Duration DEFAULT_ERROR_TTL = Duration.ofMinutes(1);
+
+    private static final int SEGMENTS = 16;
+    // List, its array slot, String and its array headers
+    private static final int ENTRY_OVERHEAD = 64;
+    private static final int LINK_OVERHEAD = 8 + 24 + 16;
+    private static final int UNKNOWN_DOCUMENT_WEIGHT = 16 << 10;
+
+    private final Downloader downloader;
+    private final long errorTtl;
+    private final Segment[] segments = new Segment[SEGMENTS];
+    private final ConcurrentMap<String, CompletableFuture<Document>> downloading = new ConcurrentHashMap<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+
+    public LinkCachingDownloader(Downloader downloader, int maxEntries, long maxBytes) {
+        this(downloader, maxEntries, maxBytes, DEFAULT_ERROR_TTL);
+    }
+
+    /**
+     * Creates cache that keeps download errors for {@code errorTtl}.
+     */
+    public LinkCachingDownloader(Downloader downloader, int maxEntries, long maxBytes, Duration errorTtl) {
+        if (maxEntries <= 0 || maxBytes <= 0) {
+            throw new IllegalArgumentException("Cache limits must be positive");
+        }
+        if (errorTtl.isNegative()) {
+            throw new IllegalArgumentException("errorTtl must not be negative");
+        }
+        this.downloader = downloader;
+        this.errorTtl = errorTtl.toNanos();
+        for (int i = 0; i < SEGMENTS; i++) {
+            segments[i] = new Segment((maxEntries + SEGMENTS - 1) / SEGMENTS, (maxBytes + SEGMENTS - 1) / SEGMENTS);
+        }
+    }
+
+    private Segment segment(String url) {
+        int hash = url.hashCode();
+        return segments[(hash ^ (hash >>> 16)) & (SEGMENTS - 1)];
+    }
+
+    private boolean isFresh(Entry entry) {
+        return entry != null && (entry.error == null || System.nanoTime() - entry.created < errorTtl);
+    }
+
+    private static Document get(Entry entry) throws IOException {
+        if (entry.error != null) {
+            throw entry.error;
+        }
+        return entry.document;
+    }
+
+    @Override
+    public Document download(String url) throws IOException {
+        Entry entry = segment(url).get(url);
+        if (isFresh(entry)) {
+            hits.increment();
+            return get(entry);
+        }
+        misses.increment();
+        CompletableFuture<Document> created = new CompletableFuture<>();
+        CompletableFuture<Document> existing = downloading.putIfAbsent(url, created);
+        if (existing != null) {
+            coalesced.increment();
+            return await(existing);
+        }
+        // Download of another caller may have finished between the miss and the registration
+        entry = segment(url).get(url);
+        if (isFresh(entry)) {
+            if (entry.error != null) {
+                created.completeExceptionally(entry.error);
+            } else {
+                created.complete(entry.document);
+            }
+            downloading.remove(url, created);
+            return get(entry);
+        }
+        try {
+            CachingDocument document = new CachingDocument(url, downloader.download(url));
+            segment(url).put(url, new Entry(document, null));
+            created.complete(document);
+            return document;
+        } catch (IOException e) {
+            segment(url).put(url, new Entry(null, e));
+            created.completeExceptionally(e);
+            throw e;
+        } catch (RuntimeException | Error e) {
+            created.completeExceptionally(e);
+            throw e;
+        } finally {
+            downloading.remove(url, created);
+        }
+    }
+
+    private static Document await(CompletableFuture<Document> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for download", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw (Error) cause;
+        }
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    /**
+     * Returns number of misses that waited for the same download of another caller.
+     */
+    public long getCoalescedCount() {
+        return coalesced.sum();
+    }
+
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            size += segment.size();
+        }
+        return size;
+    }
+
+    public long getEstimatedBytes() {
+        long bytes = 0;
+        for (Segment segment : segments) {
+            bytes += segment.getBytes();
+        }
+        return bytes;
+    }
+
+    private class CachingDocument implements Document {
+        final String url;
+        Document document;
+        volatile List<String> links;
+
+        CachingDocument(String url, Document document) {
+            this.url = url;
+            this.document = document;
+        }
+
+        @Override
+        public List<String> extractLinks() throws IOException {
+            List<String> extracted = links;
+            if (extracted != null) {
+                return extracted;
+            }
+            synchronized (this) {
+                if (links == null) {
+                    links = List.copyOf(document.extractLinks());
+                    document = null;
+                    // Updates weight of the entry unless it is evicted or replaced by a newer download
+                    segment(url).replace(url, this, new Entry(this, null));
+                }
+                return links;
+            }
+        }
+    }
+
+    private static class Entry {
+        final CachingDocument document;
+        final IOException error;
+        final long weight;
+        final long created = System.nanoTime();
+
+        Entry(CachingDocument document, IOException error) {
+            this.document = document;
+            this.error = error;
+            long weight = ENTRY_OVERHEAD;
+            if (document != null) {
+                List<String> links = document.links;
+                if (links != null) {
+                    for (String link : links) {
+                        weight += LINK_OVERHEAD + link.length();
+                    }
+                } else if (document.document instanceof SizedDocument) {
+                    weight += ((SizedDocument) document.document).size();
+                } else {
+                    weight += UNKNOWN_DOCUMENT_WEIGHT;
+                }
+            }
+            this.weight = weight;
+        }
+    }
+
+    private class Segment {
+        final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+        final int maxEntries;
+        final long maxBytes;
+        long bytes;
+
+        Segment(int maxEntries, long maxBytes) {
+            this.maxEntries = maxEntries;
+            this.maxBytes = maxBytes;
+        }
+
+        synchronized Entry get(String url) {
+            return entries.get(url);
+        }
+
+        synchronized void put(String url, Entry entry) {
+            Entry previous = entries.put(url, entry);
+            bytes += entry.weight - (previous == null ? 0 : previous.weight);
+            evict();
+        }
+
+        synchronized void replace(String url, CachingDocument document, Entry entry) {
+            Entry current = entries.get(url);
+            if (current != null && current.document == document) {
+                put(url, entry);
+            }
+        }
+
+        private void evict() {
+            Iterator<Entry> eldest = entries.values().iterator();
+            while (entries.size() > maxEntries || bytes > maxBytes) {
+                bytes -= eldest.next().weight;
+                eldest.remove();
+                evictions.increment();
+            }
+        }
+
+        synchronized int size() {
+            return entries.size();
+        }
+
+        synchronized long getBytes() {
+            return bytes;
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package info.kgeorgiy.ja.slastin.crawler;
+
+import info.kgeorgiy.java.advanced.crawler.URLUtils;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.util.List;
+
+/**
+ * Extracts absolute {@code http} and {@code https} links of {@code <a href>} elements from an HTML page.
+ */
+@FunctionalInterface
+public interface LinkExtractor {
+    /**
+     * Builds full jsoup DOM, see {@link URLUtils#extractLinks}.
+     */
+    LinkExtractor JSOUP = (base, content) -> URLUtils.extractLinks(base, new ByteBufferInputStream(content));
+
+    /**
+     * Scans bytes once without building a tree, see {@link StreamingLinkExtractor}.
+     */
+    LinkExtractor STREAMING = new StreamingLinkExtractor();
+
+    /**
+     * @param base base URI for relative links.
+     * @param content page bytes from current position to limit, position is not preserved.
+     */
+    List<String> extractLinks(URI base, ByteBuffer content) throws IOException;
+}
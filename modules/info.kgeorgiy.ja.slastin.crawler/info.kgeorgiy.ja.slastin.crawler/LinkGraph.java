@@ -0,0 +1,151 @@
+package info.kgeorgiy.ja.slastin.crawler;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Immutable directed graph of pages in compressed sparse row form: links of page {@code v} are
+ * {@code targets[offsets[v]]..targets[offsets[v + 1] - 1]}.
+ * <p>
+ * Binary file is {@code magic, n, m, n URLs as length and UTF-8 bytes, n + 1 offsets, m targets},
+ * all numbers are big-endian {@code int}s.
+ */
+public class LinkGraph {
+    private static final int MAGIC = 0x4C475246;
+
+    private final String[] urls;
+    private final int[] offsets;
+    private final int[] targets;
+    private Map<String, Integer> ids;
+
+    LinkGraph(String[] urls, int[] offsets, int[] targets) {
+        this.urls = urls;
+        this.offsets = offsets;
+        this.targets = targets;
+    }
+
+    public int size() {
+        return urls.length;
+    }
+
+    public int edgeCount() {
+        return targets.length;
+    }
+
+    public String url(int v) {
+        return urls[v];
+    }
+
+    /**
+     * Returns id of the URL or {@code -1} if it is not in the graph.
+     */
+    public synchronized int indexOf(String url) {
+        if (ids == null) {
+            ids = new HashMap<>();
+            for (int v = 0; v < urls.length; v++) {
+                ids.put(urls[v], v);
+            }
+        }
+        return ids.getOrDefault(url, -1);
+    }
+
+    public int outDegree(int v) {
+        return offsets[v + 1] - offsets[v];
+    }
+
+    public int[] links(int v) {
+        return Arrays.copyOfRange(targets, offsets[v], offsets[v + 1]);
+    }
+
+    // Shared with ranking, must not be modified
+    int[] offsets() {
+        return offsets;
+    }
+
+    int[] targets() {
+        return targets;
+    }
+
+    /**
+     * Returns graph with every link reversed.
+     */
+    public LinkGraph transpose() {
+        int n = urls.length;
+        int[] reversedOffsets = new int[n + 1];
+        for (int target : targets) {
+            reversedOffsets[target + 1]++;
+        }
+        for (int v = 0; v < n; v++) {
+            reversedOffsets[v + 1] += reversedOffsets[v];
+        }
+        int[] next = Arrays.copyOf(reversedOffsets, n);
+        int[] reversedTargets = new int[targets.length];
+        for (int v = 0; v < n; v++) {
+            for (int i = offsets[v]; i < offsets[v + 1]; i++) {
+                reversedTargets[next[targets[i]]++] = v;
+            }
+        }
+        return new LinkGraph(urls, reversedOffsets, reversedTargets);
+    }
+
+    public void write(Path file) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(urls.length);
+            out.writeInt(targets.length);
+            for (String url : urls) {
+                byte[] bytes = url.getBytes(StandardCharsets.UTF_8);
+                out.writeInt(bytes.length);
+                out.write(bytes);
+            }
+            for (int offset : offsets) {
+                out.writeInt(offset);
+            }
+            for (int target : targets) {
+                out.writeInt(target);
+            }
+        }
+    }
+
+    public static LinkGraph read(Path file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not a link graph: " + file);
+            }
+            int n = in.readInt();
+            int m = in.readInt();
+            if (n < 0 || m < 0) {
+                throw new IOException("Corrupted link graph: " + file);
+            }
+            String[] urls = new String[n];
+            for (int v = 0; v < n; v++) {
+                byte[] bytes = new byte[in.readInt()];
+                in.readFully(bytes);
+                urls[v] = new String(bytes, StandardCharsets.UTF_8);
+            }
+            int[] offsets = new int[n + 1];
+            for (int v = 0; v <= n; v++) {
+                offsets[v] = in.readInt();
+                if (v > 0 && offsets[v] < offsets[v - 1]) {
+                    throw new IOException("Corrupted link graph: " + file);
+                }
+            }
+            int[] targets = new int[m];
+            for (int i = 0; i < m; i++) {
+                targets[i] = in.readInt();
+                if (targets[i] < 0 || targets[i] >= n) {
+                    throw new IOException("Corrupted link graph: " + file);
+                }
+            }
+            if (offsets[0] != 0 || offsets[n] != m) {
+                throw new IOException("Corrupted link graph: " + file);
+            }
+            return new LinkGraph(urls, offsets, targets);
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package info.kgeorgiy.ja.slastin.crawler;
+
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Collects links of extracted pages, see {@link CrawlOptions#withLinkGraph}.
+ * URLs are interned to ids in order of appearance. Thread-safe.
+ */
+public class LinkGraphBuilder {
+    private final ConcurrentMap<String, Integer> ids = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Integer, int[]> links = new ConcurrentHashMap<>();
+    private final AtomicInteger size = new AtomicInteger();
+
+    public int intern(String url) {
+        return ids.computeIfAbsent(url, u -> size.getAndIncrement());
+    }
+
+    /**
+     * Records distinct links of the page, links of a page recorded before are kept.
+     */
+    public void addPage(String url, List<String> pageLinks) {
+        int source = intern(url);
+        Set<String> distinct = new LinkedHashSet<>(pageLinks);
+        int[] targets = new int[distinct.size()];
+        int i = 0;
+        for (String link : distinct) {
+            targets[i++] = intern(link);
+        }
+        links.putIfAbsent(source, targets);
+    }
+
+    /**
+     * Builds graph of pages and links recorded so far.
+     */
+    public LinkGraph build() {
+        String[] urls = new String[size.get()];
+        ids.forEach((url, id) -> {
+            if (id < urls.length) {
+                urls[id] = url;
+            }
+        });
+        int n = urls.length;
+        for (int i = 0; i < urls.length; i++) {
+            if (urls[i] == null) {
+                // Interned concurrently, but not put yet
+                n = i;
+                break;
+            }
+        }
+        int[] offsets = new int[n + 1];
+        int[][] adjacency = new int[n][];
+        for (int v = 0; v < n; v++) {
+            int[] targets = links.get(v);
+            if (targets != null) {
+                int limit = n;
+                adjacency[v] = Arrays.stream(targets).filter(target -> target < limit).toArray();
+            }
+            offsets[v + 1] = offsets[v] + (adjacency[v] == null ? 0 : adjacency[v].length);
+        }
+        int[] targets = new int[offsets[n]];
+        for (int v = 0; v < n; v++) {
+            if (adjacency[v] != null) {
+                System.arraycopy(adjacency[v], 0, targets, offsets[v], adjacency[v].length);
+            }
+        }
+        return new LinkGraph(Arrays.copyOf(urls, n), offsets, targets);
+    }
+}
@@ -0,0 +1,202 @@
+package info.kgeorgiy.ja.slastin.crawler;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.IntConsumer;
+import java.util.function.IntToDoubleFunction;
+
+/**
+ * Ranks pages of {@link LinkGraph} on a fork-join pool. Every iteration pulls scores along reversed links,
+ * so each page is written by one task and no synchronization is needed.
+ */
+public final class LinkRanking {
+    private static final int CHUNK = 4096;
+
+    private LinkRanking() {
+    }
+
+    /**
+     * Computes PageRank with damping {@code 0.85} on the common pool.
+     */
+    public static double[] pageRank(LinkGraph graph) {
+        return pageRank(graph, 0.85, 1e-9, 100, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Computes PageRank by power iteration. Rank of pages without links is spread evenly.
+     *
+     * @param tolerance iterations stop when L1 distance between successive ranks is below it.
+     * @return ranks summing to one, indexed by page id.
+     */
+    public static double[] pageRank(LinkGraph graph, double damping, double tolerance, int maxIterations,
+                                    ForkJoinPool pool) {
+        if (damping < 0 || damping > 1) {
+            throw new IllegalArgumentException("damping must be in [0, 1]");
+        }
+        int n = graph.size();
+        if (n == 0) {
+            return new double[0];
+        }
+        int[] offsets = graph.offsets();
+        LinkGraph reversed = graph.transpose();
+        int[] inOffsets = reversed.offsets();
+        int[] sources = reversed.targets();
+
+        double[] rank = new double[n];
+        double[] next = new double[n];
+        double[] share = new double[n];
+        forEach(pool, n, v -> rank[v] = 1.0 / n);
+        for (int iteration = 0; iteration < maxIterations; iteration++) {
+            forEach(pool, n, u -> {
+                int degree = offsets[u + 1] - offsets[u];
+                share[u] = degree == 0 ? 0 : rank[u] / degree;
+            });
+            double dangling = sum(pool, n, u -> offsets[u + 1] == offsets[u] ? rank[u] : 0);
+            double base = (1 - damping + damping * dangling) / n;
+            forEach(pool, n, v -> {
+                double sum = 0;
+                for (int i = inOffsets[v]; i < inOffsets[v + 1]; i++) {
+                    sum += share[sources[i]];
+                }
+                next[v] = base + damping * sum;
+            });
+            double delta = sum(pool, n, v -> Math.abs(next[v] - rank[v]));
+            System.arraycopy(next, 0, rank, 0, n);
+            if (delta < tolerance) {
+                break;
+            }
+        }
+        return rank;
+    }
+
+    /**
+     * Hub and authority scores of pages, each normalized to unit Euclidean length.
+     */
+    public static class Hits {
+        private final double[] hubs;
+        private final double[] authorities;
+
+        Hits(double[] hubs, double[] authorities) {
+            this.hubs = hubs;
+            this.authorities = authorities;
+        }
+
+        public double[] getHubs() {
+            return hubs;
+        }
+
+        public double[] getAuthorities() {
+            return authorities;
+        }
+    }
+
+    public static Hits hits(LinkGraph graph, int iterations) {
+        return hits(graph, iterations, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Computes HITS: authority of a page is the sum of hubs linking to it, hub is the sum of authorities
+     * it links to.
+     */
+    public static Hits hits(LinkGraph graph, int iterations, ForkJoinPool pool) {
+        int n = graph.size();
+        int[] offsets = graph.offsets();
+        int[] targets = graph.targets();
+        LinkGraph reversed = graph.transpose();
+        int[] inOffsets = reversed.offsets();
+        int[] sources = reversed.targets();
+
+        double[] hubs = new double[n];
+        double[] authorities = new double[n];
+        forEach(pool, n, v -> hubs[v] = 1);
+        for (int iteration = 0; iteration < iterations; iteration++) {
+            forEach(pool, n, v -> {
+                double sum = 0;
+                for (int i = inOffsets[v]; i < inOffsets[v + 1]; i++) {
+                    sum += hubs[sources[i]];
+                }
+                authorities[v] = sum;
+            });
+            normalize(pool, authorities);
+            forEach(pool, n, u -> {
+                double sum = 0;
+                for (int i = offsets[u]; i < offsets[u + 1]; i++) {
+                    sum += authorities[targets[i]];
+                }
+                hubs[u] = sum;
+            });
+            normalize(pool, hubs);
+        }
+        return new Hits(hubs, authorities);
+    }
+
+    private static void normalize(ForkJoinPool pool, double[] scores) {
+        double norm = Math.sqrt(sum(pool, scores.length, v -> scores[v] * scores[v]));
+        if (norm > 0) {
+            forEach(pool, scores.length, v -> scores[v] /= norm);
+        }
+    }
+
+    private static void forEach(ForkJoinPool pool, int n, IntConsumer action) {
+        pool.invoke(new ForEachTask(0, n, action));
+    }
+
+    private static double sum(ForkJoinPool pool, int n, IntToDoubleFunction function) {
+        return pool.invoke(new SumTask(0, n, function));
+    }
+
+    private static class ForEachTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        final int from, to;
+        final IntConsumer action;
+
+        ForEachTask(int from, int to, IntConsumer action) {
+            this.from = from;
+            this.to = to;
+            this.action = action;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= CHUNK) {
+                for (int i = from; i < to; i++) {
+                    action.accept(i);
+                }
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new ForEachTask(from, middle, action), new ForEachTask(middle, to, action));
+        }
+    }
+
+    private static class SumTask extends RecursiveTask<Double> {
+        private static final long serialVersionUID = 1L;
+
+        final int from, to;
+        final IntToDoubleFunction function;
+
+        SumTask(int from, int to, IntToDoubleFunction function) {
+            this.from = from;
+            this.to = to;
+            this.function = function;
+        }
+
+        @Override
+        protected Double compute() {
+            if (to - from <= CHUNK) {
+                double sum = 0;
+                for (int i = from; i < to; i++) {
+                    sum += function.applyAsDouble(i);
+                }
+                return sum;
+            }
+            int middle = (from + to) >>> 1;
+            SumTask right = new SumTask(middle, to, function);
+            right.fork();
+            double left = new SumTask(from, middle, function).compute();
+            return left + right.join();
+        }
+    }
+}
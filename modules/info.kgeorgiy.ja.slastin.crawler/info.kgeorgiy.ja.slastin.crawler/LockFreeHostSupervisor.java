@@ -0,0 +1,61 @@
+package info.kgeorgiy.ja.slastin.crawler;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Limits downloads from one host to {@code perHost} without locks. Task is started by whoever takes
+ * a permit: the thread that added it or the one that finished previous task.
+ * <p>
+ * Wakeups are not lost: a thread that sees no free permits returns only after its task was queued,
+ * and every permit is released before the releasing thread checks the queue again.
+ */
+class LockFreeHostSupervisor implements HostSupervisor {
+    private final Executor downloadPool;
+    private final int perHost;
+    private final Queue<Runnable> pending = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger running = new AtomicInteger();
+
+    LockFreeHostSupervisor(Executor downloadPool, int perHost) {
+        this.downloadPool = downloadPool;
+        this.perHost = perHost;
+    }
+
+    @Override
+    public void addTask(Runnable task) {
+        pending.add(task);
+        dispatch();
+    }
+
+    @Override
+    public void nextTask(long elapsed, boolean failed) {
+        running.decrementAndGet();
+        dispatch();
+    }
+
+    private void dispatch() {
+        while (!pending.isEmpty()) {
+            int current = running.get();
+            if (current >= perHost) {
+                return;
+            }
+            if (!running.compareAndSet(current, current + 1)) {
+                continue;
+            }
+            Runnable task = pending.poll();
+            if (task == null) {
+                // Taken by another thread, queue is checked again after the permit is back
+                running.decrementAndGet();
+                continue;
+            }
+            downloadPool.execute(task);
+        }
+    }
+
+    @Override
+    public HostState getState() {
+        return new HostState(perHost, running.get(), pending.size(), Double.POSITIVE_INFINITY, 0, 0);
+    }
+}
@@ -0,0 +1,125 @@
+package info.kgeorgiy.ja.slastin.crawler;
+
+import java.util.Comparator;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+
+/**
+ * Keeps downloads that wait for a free thread and chooses the next one. Hosts take turns in rounds,
+ * every host gives its best scored page. Within a round hosts with better pages go first.
+ * <p>
+ * At most {@code limit} downloads are passed to executor at once, others wait here rather than
+ * in the executor queue, so better pages found later still overtake them.
+ */
+class PriorityFrontier {
+    private static final Comparator<Host> HOST_ORDER = Comparator.<Host>comparingLong(host -> host.round)
+            .thenComparingDouble(host -> -host.score)
+            .thenComparingLong(host -> host.sequence);
+    private static final Comparator<Task> TASK_ORDER = Comparator.<Task>comparingDouble(task -> -task.score)
+            .thenComparingLong(task -> task.sequence);
+
+    private final Executor executor;
+    private final int limit;
+    private final Queue<Host> ready = new PriorityQueue<>(HOST_ORDER);
+    private int running;
+    private long round;
+    private long sequence;
+
+    PriorityFrontier(Executor executor, int limit) {
+        this.executor = executor;
+        this.limit = limit;
+    }
+
+    HostSupervisor newHost(int perHost) {
+        return new Host(perHost);
+    }
+
+    private void dispatch() {
+        while (running < limit && !ready.isEmpty()) {
+            Host host = ready.poll();
+            round = host.round;
+            host.nextRound = round + 1;
+            host.isReady = false;
+            Task task = host.pending.poll();
+            host.running++;
+            running++;
+            host.enqueue();
+            executor.execute(task.task);
+        }
+    }
+
+    private static class Task {
+        final Runnable task;
+        final double score;
+        final long sequence;
+
+        Task(Runnable task, double score, long sequence) {
+            this.task = task;
+            this.score = score;
+            this.sequence = sequence;
+        }
+    }
+
+    private class Host implements HostSupervisor {
+        final Queue<Task> pending = new PriorityQueue<>(TASK_ORDER);
+        final int perHost;
+        int running;
+        boolean isReady;
+        long nextRound;
+        // Key in ready queue, changed only while host is out of it
+        long round;
+        double score;
+        long sequence;
+
+        Host(int perHost) {
+            this.perHost = perHost;
+        }
+
+        void enqueue() {
+            if (!isReady && running < perHost && !pending.isEmpty()) {
+                isReady = true;
+                round = Math.max(nextRound, PriorityFrontier.this.round);
+                score = pending.peek().score;
+                sequence = PriorityFrontier.this.sequence++;
+                ready.add(this);
+            }
+        }
+
+        @Override
+        public void addTask(Runnable task) {
+            addTask(task, 0);
+        }
+
+        @Override
+        public void addTask(Runnable task, double score) {
+            synchronized (PriorityFrontier.this) {
+                pending.add(new Task(task, score, PriorityFrontier.this.sequence++));
+                if (isReady && score > this.score) {
+                    ready.remove(this);
+                    this.score = score;
+                    ready.add(this);
+                }
+                enqueue();
+                dispatch();
+            }
+        }
+
+        @Override
+        public void nextTask(long elapsed, boolean failed) {
+            synchronized (PriorityFrontier.this) {
+                running--;
+                PriorityFrontier.this.running--;
+                enqueue();
+                dispatch();
+            }
+        }
+
+        @Override
+        public HostState getState() {
+            synchronized (PriorityFrontier.this) {
+                return new HostState(perHost, running, pending.size(), Double.POSITIVE_INFINITY, 0, 0);
+            }
+        }
+    }
+}
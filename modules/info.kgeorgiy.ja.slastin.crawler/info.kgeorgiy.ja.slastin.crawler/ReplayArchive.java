@@ -0,0 +1,271 @@
+package info.kgeorgiy.ja.slastin.crawler;
+
+import info.kgeorgiy.java.advanced.crawler.ReplayDownloader;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Pages of a {@link ReplayDownloader} corpus in a memory-mapped file. Opening reads only the header,
+ * pages are decoded on access, so neither time nor heap depend on corpus size.
+ * <p>
+ * File is {@code magic, n, k, m, k + 1 string offsets, n + 1 link offsets, n kinds, m links, string bytes}.
+ * First {@code n} strings are URLs in order of their UTF-8 bytes, so URL is found by binary search,
+ * other strings are class names and messages of errors. Links of URL {@code v} are
+ * {@code links[linkOffsets[v]]..links[linkOffsets[v + 1] - 1]}: URL ids of a page or two string ids of an error,
+ * {@code -1} for {@code null} message. Numbers are big-endian {@code int}s, kinds are bytes.
+ */
+public final class ReplayArchive {
+    private static final int MAGIC = 0x52504C41;
+    private static final int HEADER = 4 * Integer.BYTES;
+    // URL is only a link target
+    private static final byte ABSENT = 0;
+    private static final byte PAGE = 1;
+    private static final byte ERROR = 2;
+
+    private final ByteBuffer buffer;
+    private final int n;
+    private final int stringOffsets;
+    private final int linkOffsets;
+    private final int kinds;
+    private final int links;
+    private final int strings;
+
+    private ReplayArchive(ByteBuffer buffer, int n, int k, int m) {
+        this.buffer = buffer;
+        this.n = n;
+        stringOffsets = HEADER;
+        linkOffsets = stringOffsets + (k + 1) * Integer.BYTES;
+        kinds = linkOffsets + (n + 1) * Integer.BYTES;
+        links = kinds + n;
+        strings = links + m * Integer.BYTES;
+    }
+
+    /**
+     * Maps archive file into memory.
+     */
+    public static ReplayArchive open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file)) {
+            if (channel.size() < HEADER || channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Not a replay archive: " + file);
+            }
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.getInt(0) != MAGIC) {
+                throw new IOException("Not a replay archive: " + file);
+            }
+            int n = buffer.getInt(Integer.BYTES);
+            int k = buffer.getInt(2 * Integer.BYTES);
+            int m = buffer.getInt(3 * Integer.BYTES);
+            if (n < 0 || k < n || m < 0) {
+                throw new IOException("Corrupted replay archive: " + file);
+            }
+            long strings = HEADER + (k + 1L + n + 1L + m) * Integer.BYTES + n;
+            if (strings > buffer.capacity()
+                    || strings + buffer.getInt(HEADER + k * Integer.BYTES) != buffer.capacity()) {
+                throw new IOException("Corrupted replay archive: " + file);
+            }
+            return new ReplayArchive(buffer, n, k, m);
+        }
+    }
+
+    /**
+     * Returns number of URLs, both pages and link targets without pages.
+     */
+    public int size() {
+        return n;
+    }
+
+    /**
+     * Returns id of {@code url} or {@code -1} if archive does not mention it.
+     */
+    public int indexOf(String url) {
+        byte[] key = url.getBytes(StandardCharsets.UTF_8);
+        int lo = 0;
+        int hi = n - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            int cmp = compare(mid, key);
+            if (cmp < 0) {
+                lo = mid + 1;
+            } else if (cmp > 0) {
+                hi = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    private int compare(int string, byte[] key) {
+        int from = stringOffset(string);
+        int length = stringOffset(string + 1) - from;
+        for (int i = 0; i < Math.min(length, key.length); i++) {
+            int cmp = Byte.compareUnsigned(buffer.get(strings + from + i), key[i]);
+            if (cmp != 0) {
+                return cmp;
+            }
+        }
+        return Integer.compare(length, key.length);
+    }
+
+    private int stringOffset(int string) {
+        return buffer.getInt(stringOffsets + string * Integer.BYTES);
+    }
+
+    private String string(int string) {
+        int from = stringOffset(string);
+        byte[] bytes = new byte[stringOffset(string + 1) - from];
+        buffer.get(strings + from, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private int linkOffset(int v) {
+        return buffer.getInt(linkOffsets + v * Integer.BYTES);
+    }
+
+    private int link(int i) {
+        return buffer.getInt(links + i * Integer.BYTES);
+    }
+
+    public String url(int v) {
+        Objects.checkIndex(v, n);
+        return string(v);
+    }
+
+    /**
+     * Returns whether URL {@code v} was downloaded when corpus was recorded, successfully or not.
+     */
+    public boolean isPage(int v) {
+        return buffer.get(kinds + Objects.checkIndex(v, n)) != ABSENT;
+    }
+
+    /**
+     * Returns links of page {@code v}, empty for failed pages and URLs without pages.
+     */
+    public List<String> links(int v) {
+        if (buffer.get(kinds + Objects.checkIndex(v, n)) != PAGE) {
+            return List.of();
+        }
+        int from = linkOffset(v);
+        int to = linkOffset(v + 1);
+        List<String> result = new ArrayList<>(to - from);
+        for (int i = from; i < to; i++) {
+            result.add(string(link(i)));
+        }
+        return result;
+    }
+
+    /**
+     * Returns recorded error of page {@code v} or {@code null} if it was downloaded successfully.
+     */
+    public IOException error(int v) {
+        if (buffer.get(kinds + Objects.checkIndex(v, n)) != ERROR) {
+            return null;
+        }
+        int from = linkOffset(v);
+        String type = string(link(from));
+        String message = link(from + 1) < 0 ? null : string(link(from + 1));
+        try {
+            Class<?> clazz = Class.forName(type);
+            if (IOException.class.isAssignableFrom(clazz)) {
+                return (IOException) clazz.getConstructor(String.class).newInstance(message);
+            }
+        } catch (ReflectiveOperationException ignored) {
+        }
+        return new IOException(message == null ? type : type + ": " + message);
+    }
+
+    /**
+     * Converts gzipped serialized map of {@link ReplayDownloader} to archive.
+     */
+    @SuppressWarnings("unchecked")
+    public static void convert(InputStream corpus, Path file) throws IOException {
+        try (ObjectInputStream in = new ObjectInputStream(new GZIPInputStream(corpus))) {
+            convert((Map<String, ReplayDownloader.Page>) in.readObject(), file);
+        } catch (ClassNotFoundException | ClassCastException e) {
+            throw new IOException("Not a replay corpus", e);
+        }
+    }
+
+    public static void convert(Map<String, ReplayDownloader.Page> pages, Path file) throws IOException {
+        Set<String> all = new HashSet<>(pages.keySet());
+        pages.values().stream().filter(page -> page.exception == null && page.links != null)
+                .forEach(page -> all.addAll(page.links));
+        byte[][] urls = all.stream().map(url -> url.getBytes(StandardCharsets.UTF_8))
+                .sorted(Arrays::compareUnsigned).toArray(byte[][]::new);
+        int n = urls.length;
+        Map<String, Integer> ids = new HashMap<>();
+        for (int v = 0; v < n; v++) {
+            ids.put(new String(urls[v], StandardCharsets.UTF_8), v);
+        }
+
+        List<byte[]> strings = new ArrayList<>(Arrays.asList(urls));
+        byte[] kinds = new byte[n];
+        int[] linkOffsets = new int[n + 1];
+        int[][] linkLists = new int[n][];
+        for (int v = 0; v < n; v++) {
+            ReplayDownloader.Page page = pages.get(new String(urls[v], StandardCharsets.UTF_8));
+            if (page == null) {
+                linkLists[v] = new int[0];
+            } else if (page.exception != null) {
+                kinds[v] = ERROR;
+                String message = page.exception.getMessage();
+                strings.add(page.exception.getClass().getName().getBytes(StandardCharsets.UTF_8));
+                linkLists[v] = new int[]{strings.size() - 1, message == null ? -1 : strings.size()};
+                if (message != null) {
+                    strings.add(message.getBytes(StandardCharsets.UTF_8));
+                }
+            } else {
+                kinds[v] = PAGE;
+                linkLists[v] = page.links == null ? new int[0] : page.links.stream().mapToInt(ids::get).toArray();
+            }
+            linkOffsets[v + 1] = linkOffsets[v] + linkLists[v].length;
+        }
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(n);
+            out.writeInt(strings.size());
+            out.writeInt(linkOffsets[n]);
+            int offset = 0;
+            out.writeInt(offset);
+            for (byte[] string : strings) {
+                offset += string.length;
+                out.writeInt(offset);
+            }
+            for (int linkOffset : linkOffsets) {
+                out.writeInt(linkOffset);
+            }
+            out.write(kinds);
+            for (int[] linkList : linkLists) {
+                for (int link : linkList) {
+                    out.writeInt(link);
+                }
+            }
+            for (byte[] string : strings) {
+                out.write(string);
+            }
+        }
+    }
+
+    /**
+     * Converts corpus file, usage: {@code ReplayArchive corpus.ser.gz archive}.
+     */
+    public static void main(String[] args) {
+        if (args == null || args.length != 2 || args[0] == null || args[1] == null) {
+            System.err.println("Usage: ReplayArchive corpus.ser.gz archive");
+            return;
+        }
+        try (InputStream in = Files.newInputStream(Path.of(args[0]))) {
+            convert(in, Path.of(args[1]));
+        } catch (IOException e) {
+            System.err.println("Can not convert corpus: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package info.kgeorgiy.ja.slastin.crawler;
+
+import info.kgeorgiy.java.advanced.crawler.Document;
+import info.kgeorgiy.java.advanced.crawler.Downloader;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Replays pages from {@link ReplayArchive}, links are decoded only when they are extracted.
+ * Delays are random up to the given number of milliseconds, as in
+ * {@link info.kgeorgiy.java.advanced.crawler.ReplayDownloader}.
+ */
+public class ReplayArchiveDownloader implements Downloader {
+    private final ReplayArchive archive;
+    private final int downloadDelay;
+    private final int extractDelay;
+
+    public ReplayArchiveDownloader(ReplayArchive archive, int downloadDelay, int extractDelay) {
+        this.archive = archive;
+        this.downloadDelay = downloadDelay;
+        this.extractDelay = extractDelay;
+    }
+
+    public ReplayArchiveDownloader(Path archive) throws IOException {
+        this(ReplayArchive.open(archive), 0, 0);
+    }
+
+    public ReplayArchive getArchive() {
+        return archive;
+    }
+
+    @Override
+    public Document download(String url) throws IOException {
+        int v = archive.indexOf(url);
+        if (v < 0 || !archive.isPage(v)) {
+            throw new FileNotFoundException("Page is not recorded: " + url);
+        }
+        sleep(downloadDelay);
+        IOException error = archive.error(v);
+        if (error != null) {
+            throw error;
+        }
+        return () -> {
+            sleep(extractDelay);
+            return archive.links(v);
+        };
+    }
+
+    private static void sleep(int max) {
+        if (max > 0) {
+            try {
+                Thread.sleep(ThreadLocalRandom.current().nextInt(max) + 1);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
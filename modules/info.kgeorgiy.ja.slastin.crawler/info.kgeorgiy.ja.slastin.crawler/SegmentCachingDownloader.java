@@ -0,0 +1,250 @@
+package info.kgeorgiy.ja.slastin.crawler;
+
+import info.kgeorgiy.java.advanced.crawler.Document;
+import info.kgeorgiy.java.advanced.crawler.Downloader;
+import info.kgeorgiy.java.advanced.crawler.URLUtils;
+
+import java.io.*;
+import java.net.HttpURLConnection;
+import java.net.URI;
+import java.net.URLConnection;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.CRC32C;
+
+/**
+ * Same as {@link info.kgeorgiy.java.advanced.crawler.CachingDownloader}, but keeps documents
+ * in a {@link SegmentStore} instead of a file per URL.
+ * <p>
+ * With revalidation enabled, documents older than TTL are downloaded again by conditional GET with
+ * stored {@code ETag} and {@code Last-Modified}. On {@code 304 Not Modified} stored document
+ * and links extracted from it are reused. If revalidation fails, the error is thrown,
+ * but the stored document is kept and revalidated again by the next download.
+ */
+public class SegmentCachingDownloader implements Downloader, Closeable {
+    private static final byte OK_MARKER = '+';
+    private static final byte FAIL_MARKER = '-';
+    private static final int READ_TIMEOUT = 30_000;
+    // Keys that can not be URLs
+    private static final String META_PREFIX = "\0meta ";
+    private static final String LINKS_PREFIX = "\0links ";
+
+    private final SegmentStore store;
+    private final LinkExtractor extractor;
+    private final Duration ttl;
+    private final LongAdder notModified = new LongAdder();
+
+    public SegmentCachingDownloader() throws IOException {
+        this(Files.createTempDirectory(SegmentCachingDownloader.class.getName()));
+    }
+
+    public SegmentCachingDownloader(Path directory) throws IOException {
+        this(new SegmentStore(directory));
+    }
+
+    public SegmentCachingDownloader(SegmentStore store) {
+        this(store, LinkExtractor.JSOUP);
+    }
+
+    public SegmentCachingDownloader(SegmentStore store, LinkExtractor extractor) {
+        this(store, extractor, null);
+    }
+
+    /**
+     * Creates downloader that revalidates documents downloaded more than {@code ttl} ago,
+     * {@code null} keeps them forever.
+     */
+    public SegmentCachingDownloader(SegmentStore store, LinkExtractor extractor, Duration ttl) {
+        if (ttl != null && ttl.isNegative()) {
+            throw new IllegalArgumentException("ttl must not be negative");
+        }
+        this.store = store;
+        this.extractor = extractor;
+        this.ttl = ttl;
+    }
+
+    @Override
+    public Document download(String url) throws IOException {
+        URI uri = URLUtils.getURI(url);
+        String key = uri.toString();
+        ByteBuffer stored = store.get(key);
+        Meta meta = ttl == null ? null : Meta.read(store.get(META_PREFIX + key));
+        ByteBuffer content;
+        if (stored == null) {
+            content = fetch(uri, key, null, null);
+        } else if (ttl != null && (meta == null || System.currentTimeMillis() - meta.validated >= ttl.toMillis())) {
+            content = fetch(uri, key, stored, stored.get(0) == OK_MARKER ? meta : null);
+        } else if (stored.get(0) == FAIL_MARKER) {
+            throw readException(stored.position(1));
+        } else {
+            content = stored;
+        }
+        // Links come from the content of this download, even if the page is downloaded again before extraction
+        return () -> extractLinks(uri, key, content);
+    }
+
+    private List<String> extractLinks(URI uri, String key, ByteBuffer content) throws IOException {
+        if (ttl == null) {
+            return extractor.extractLinks(uri, content.duplicate().position(1));
+        }
+        long version = version(content.duplicate());
+        ByteBuffer stored = store.get(LINKS_PREFIX + key);
+        if (stored != null) {
+            DataInputStream in = new DataInputStream(new ByteBufferInputStream(stored));
+            if (in.readLong() == version) {
+                int size = in.readInt();
+                List<String> links = new ArrayList<>(size);
+                for (int i = 0; i < size; i++) {
+                    links.add(in.readUTF());
+                }
+                return links;
+            }
+        }
+        List<String> links = extractor.extractLinks(uri, content.duplicate().position(1));
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeLong(version);
+            out.writeInt(links.size());
+            for (String link : links) {
+                out.writeUTF(link);
+            }
+        }
+        store.put(LINKS_PREFIX + key, bytes.toByteArray());
+        return links;
+    }
+
+    /**
+     * Downloads document, conditionally if {@code validator} is not {@code null}.
+     *
+     * @return downloaded content or {@code stored} one if it is not modified.
+     */
+    private ByteBuffer fetch(URI uri, String key, ByteBuffer stored, Meta validator) throws IOException {
+        long now = System.currentTimeMillis();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        URLConnection connection;
+        try {
+            connection = uri.toURL().openConnection();
+            connection.setReadTimeout(READ_TIMEOUT);
+            if (validator != null && connection instanceof HttpURLConnection && validator.hasValidators()) {
+                if (!validator.etag.isEmpty()) {
+                    connection.setRequestProperty("If-None-Match", validator.etag);
+                }
+                if (!validator.lastModified.isEmpty()) {
+                    connection.setRequestProperty("If-Modified-Since", validator.lastModified);
+                }
+                if (((HttpURLConnection) connection).getResponseCode() == HttpURLConnection.HTTP_NOT_MODIFIED) {
+                    notModified.increment();
+                    // Empty body, closing it returns the connection to the keep-alive cache
+                    connection.getInputStream().close();
+                    String etag = connection.getHeaderField("ETag");
+                    putMeta(key, new Meta(validator.version, now,
+                            etag == null ? validator.etag : etag, validator.lastModified));
+                    return stored;
+                }
+            }
+            try (InputStream is = connection.getInputStream()) {
+                out.write(OK_MARKER);
+                is.transferTo(out);
+            }
+        } catch (IOException e) {
+            if (stored != null && stored.get(0) == OK_MARKER) {
+                // Failed revalidation keeps stored document and its validators for the next one
+                throw e;
+            }
+            out.reset();
+            out.write(FAIL_MARKER);
+            try (ObjectOutputStream oos = new ObjectOutputStream(out)) {
+                oos.writeObject(e);
+            }
+            store.put(key, out.toByteArray());
+            putMeta(key, new Meta(0, now, null, null));
+            throw e;
+        }
+        ByteBuffer content = ByteBuffer.wrap(out.toByteArray());
+        store.put(key, content);
+        putMeta(key, new Meta(version(content.duplicate()), now,
+                connection.getHeaderField("ETag"), connection.getHeaderField("Last-Modified")));
+        return content;
+    }
+
+    private void putMeta(String key, Meta meta) throws IOException {
+        if (ttl != null) {
+            store.put(META_PREFIX + key, meta.toBytes());
+        }
+    }
+
+    // Same content keeps links valid even if server sends no validators
+    private static long version(ByteBuffer content) {
+        int length = content.remaining();
+        CRC32C crc = new CRC32C();
+        crc.update(content);
+        return (long) length << 32 | crc.getValue();
+    }
+
+    private static IOException readException(ByteBuffer buffer) throws IOException {
+        try (ObjectInputStream ois = new ObjectInputStream(new ByteBufferInputStream(buffer))) {
+            return (IOException) ois.readObject();
+        } catch (ClassNotFoundException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    public SegmentStore getStore() {
+        return store;
+    }
+
+    /**
+     * Returns number of revalidations answered by {@code 304 Not Modified}.
+     */
+    public long getNotModifiedCount() {
+        return notModified.sum();
+    }
+
+    @Override
+    public void close() throws IOException {
+        store.close();
+    }
+
+    private static class Meta {
+        // Version of the stored content, links extracted from other versions are stale
+        final long version;
+        final long validated;
+        final String etag;
+        final String lastModified;
+
+        Meta(long version, long validated, String etag, String lastModified) {
+            this.version = version;
+            this.validated = validated;
+            this.etag = etag == null ? "" : etag;
+            this.lastModified = lastModified == null ? "" : lastModified;
+        }
+
+        static Meta read(ByteBuffer buffer) throws IOException {
+            if (buffer == null) {
+                return null;
+            }
+            DataInputStream in = new DataInputStream(new ByteBufferInputStream(buffer));
+            return new Meta(in.readLong(), in.readLong(), in.readUTF(), in.readUTF());
+        }
+
+        boolean hasValidators() {
+            return !etag.isEmpty() || !lastModified.isEmpty();
+        }
+
+        byte[] toBytes() throws IOException {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try (DataOutputStream out = new DataOutputStream(bytes)) {
+                out.writeLong(version);
+                out.writeLong(validated);
+                out.writeUTF(etag);
+                out.writeUTF(lastModified);
+            }
+            return bytes.toByteArray();
+        }
+    }
+}
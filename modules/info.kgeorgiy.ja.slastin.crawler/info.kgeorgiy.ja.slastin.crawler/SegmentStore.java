@@ -0,0 +1,247 @@
+package info.kgeorgiy.ja.slastin.crawler;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Key-value store appending records to memory-mapped segment files of fixed size.
+ * <p>
+ * Record is {@code magic, key length, value length, CRC32C of key and value, key, value}.
+ * Offset index is kept in memory and rebuilt on open by scanning segments in order,
+ * scan of a segment stops at the first torn or corrupted record and clears the rest of the segment.
+ * Later records override earlier ones.
+ * Writes are serialized, reads take no locks.
+ */
+public class SegmentStore implements Closeable {
+    public static final int DEFAULT_SEGMENT_SIZE = 64 << 20;
+
+    private static final int MAGIC = 0x5345474D;
+    private static final int HEADER_SIZE = 16;
+    private static final int ZERO_CHUNK = 1 << 16;
+    private static final String PREFIX = "segment-";
+
+    private final Path directory;
+    private final int segmentSize;
+    private final ConcurrentMap<String, Location> index = new ConcurrentHashMap<>();
+    private final List<Segment> segments = new ArrayList<>();
+    private Segment active;
+
+    public SegmentStore(Path directory) throws IOException {
+        this(directory, DEFAULT_SEGMENT_SIZE);
+    }
+
+    public SegmentStore(Path directory, int segmentSize) throws IOException {
+        if (segmentSize <= HEADER_SIZE) {
+            throw new IllegalArgumentException("Segment size is too small");
+        }
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        Files.createDirectories(directory);
+        List<Path> files;
+        try (Stream<Path> list = Files.list(directory)) {
+            files = list.filter(file -> file.getFileName().toString().startsWith(PREFIX))
+                    .sorted(Comparator.comparingInt(SegmentStore::getId))
+                    .collect(Collectors.toList());
+        }
+        for (Path file : files) {
+            Segment segment = new Segment(getId(file), file, 0);
+            recover(segment);
+            segments.add(segment);
+        }
+        active = segments.isEmpty() ? createSegment(segmentSize) : segments.get(segments.size() - 1);
+    }
+
+    private static int getId(Path file) {
+        return Integer.parseInt(file.getFileName().toString().substring(PREFIX.length()));
+    }
+
+    private void recover(Segment segment) {
+        ByteBuffer buffer = segment.buffer.duplicate();
+        int position = 0;
+        while (position + HEADER_SIZE <= buffer.capacity() && buffer.getInt(position) == MAGIC) {
+            int keyLength = buffer.getInt(position + 4);
+            int valueLength = buffer.getInt(position + 8);
+            int size = HEADER_SIZE + keyLength + valueLength;
+            if (keyLength < 0 || valueLength < 0 || size < 0 || position + size > buffer.capacity()) {
+                break;
+            }
+            int bodyOffset = position + HEADER_SIZE;
+            if (buffer.getInt(position + 12) != checksum(buffer.slice(bodyOffset, keyLength + valueLength))) {
+                break;
+            }
+            byte[] key = new byte[keyLength];
+            buffer.get(bodyOffset, key);
+            updateIndex(new String(key, StandardCharsets.UTF_8),
+                    new Location(segment, bodyOffset + keyLength, valueLength, size));
+            position += size;
+        }
+        // Records after a torn one could be written before it was, they must not reappear after the next append
+        clear(buffer, position);
+        segment.position = position;
+    }
+
+    // Only dirty chunks are written, so clean tail of a segment stays sparse
+    private static void clear(ByteBuffer buffer, int from) {
+        ByteBuffer zeros = ByteBuffer.allocate(ZERO_CHUNK);
+        for (int position = from; position < buffer.capacity(); position += ZERO_CHUNK) {
+            int length = Math.min(ZERO_CHUNK, buffer.capacity() - position);
+            if (buffer.slice(position, length).mismatch(zeros.slice(0, length)) != -1) {
+                buffer.put(position, zeros.array(), 0, length);
+            }
+        }
+    }
+
+    private static int checksum(ByteBuffer body) {
+        CRC32C crc = new CRC32C();
+        crc.update(body);
+        return (int) crc.getValue();
+    }
+
+    private Segment createSegment(int size) throws IOException {
+        int id = active == null ? 0 : active.id + 1;
+        Segment segment = new Segment(id, directory.resolve(String.format("%s%08d", PREFIX, id)), size);
+        segments.add(segment);
+        return segment;
+    }
+
+    private void updateIndex(String key, Location location) {
+        location.segment.live += location.size;
+        Location previous = index.put(key, location);
+        if (previous != null) {
+            previous.segment.live -= previous.size;
+        }
+    }
+
+    /**
+     * Returns read-only view of the value or {@code null} if there is no such key.
+     */
+    public ByteBuffer get(String key) {
+        Location location = index.get(key);
+        return location == null ? null
+                : location.segment.buffer.slice(location.offset, location.length).asReadOnlyBuffer();
+    }
+
+    public boolean contains(String key) {
+        return index.containsKey(key);
+    }
+
+    public void put(String key, byte[] value) throws IOException {
+        put(key, ByteBuffer.wrap(value));
+    }
+
+    public synchronized void put(String key, ByteBuffer value) throws IOException {
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        int valueLength = value.remaining();
+        int size = HEADER_SIZE + keyBytes.length + valueLength;
+        if (active.position + size > active.buffer.capacity()) {
+            active = createSegment(Math.max(segmentSize, size));
+        }
+        int position = active.position;
+        ByteBuffer buffer = active.buffer.duplicate();
+        buffer.position(position + HEADER_SIZE).put(keyBytes).put(value.duplicate());
+        int bodyOffset = position + HEADER_SIZE;
+        buffer.putInt(position + 4, keyBytes.length)
+                .putInt(position + 8, valueLength)
+                .putInt(position + 12, checksum(buffer.slice(bodyOffset, keyBytes.length + valueLength)))
+                .putInt(position, MAGIC);
+        active.position += size;
+        updateIndex(key, new Location(active, bodyOffset + keyBytes.length, valueLength, size));
+    }
+
+    /**
+     * Copies live records out of sealed segments which live share is below {@code minLiveRatio}
+     * and deletes those segments. Views returned by {@link #get} earlier stay valid.
+     */
+    public synchronized void compact(double minLiveRatio) throws IOException {
+        Set<Segment> victims = new HashSet<>();
+        for (Segment segment : segments) {
+            if (segment != active && segment.live < minLiveRatio * segment.position) {
+                victims.add(segment);
+            }
+        }
+        if (victims.isEmpty()) {
+            return;
+        }
+        for (Map.Entry<String, Location> entry : index.entrySet()) {
+            Location location = entry.getValue();
+            if (victims.contains(location.segment)) {
+                put(entry.getKey(), location.segment.buffer.slice(location.offset, location.length));
+            }
+        }
+        flush();
+        for (Segment segment : victims) {
+            segments.remove(segment);
+            segment.channel.close();
+            Files.deleteIfExists(segment.file);
+        }
+    }
+
+    /**
+     * Returns number of bytes taken by records in all segments.
+     */
+    public synchronized long getUsedBytes() {
+        return segments.stream().mapToLong(segment -> segment.position).sum();
+    }
+
+    /**
+     * Returns number of bytes taken by records which are not overridden.
+     */
+    public synchronized long getLiveBytes() {
+        return segments.stream().mapToLong(segment -> segment.live).sum();
+    }
+
+    public synchronized void flush() {
+        segments.forEach(segment -> segment.buffer.force());
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        flush();
+        for (Segment segment : segments) {
+            segment.channel.close();
+        }
+    }
+
+    private static class Segment {
+        final int id;
+        final Path file;
+        final FileChannel channel;
+        final MappedByteBuffer buffer;
+        long live;
+        int position;
+
+        Segment(int id, Path file, int size) throws IOException {
+            this.id = id;
+            this.file = file;
+            channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(size, channel.size()));
+        }
+    }
+
+    private static class Location {
+        final Segment segment;
+        final int offset;
+        final int length;
+        final int size;
+
+        Location(Segment segment, int offset, int length, int size) {
+            this.segment = segment;
+            this.offset = offset;
+            this.length = length;
+            this.size = size;
+        }
+    }
+}
@@ -0,0 +1,252 @@
+package info.kgeorgiy.ja.slastin.crawler;
+
+import info.kgeorgiy.java.advanced.crawler.URLUtils;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.MalformedURLException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Predicate;
+
+/**
+ * Worker process of {@link ShardedCrawler}.
+ * <p>
+ * Usage: {@code ShardWorker coordinatorPort shard shards downloaders extractors perHost}.
+ */
+class ShardWorker {
+    private static final int BATCH_SIZE = 1024;
+
+    private final int shard;
+    private final HostPartitioner partitioner;
+    private final ObjectOutputStream out;
+    private final ObjectInputStream in;
+    private final DataOutputStream[] peers;
+    private final WebCrawler crawler;
+    // Links received from other shards and number of batches they came in
+    private final List<String> received = new ArrayList<>();
+    private long receivedBatches;
+    // Set when a peer connection is lost, batches expected from it will never come
+    private IOException receiveError;
+
+    private VisitedSet used;
+    private Predicate<String> hostPredicate;
+    private Set<String> ok;
+    private ConcurrentMap<String, IOException> bad;
+    private List<String> frontier;
+    private long[] sent;
+
+    private ShardWorker(Socket coordinator, int shard, int shards, int downloaders, int extractors, int perHost)
+            throws IOException, ClassNotFoundException {
+        this.shard = shard;
+        partitioner = new HostPartitioner(shards);
+        out = new ObjectOutputStream(new BufferedOutputStream(coordinator.getOutputStream()));
+        out.flush();
+        in = new ObjectInputStream(new BufferedInputStream(coordinator.getInputStream()));
+        peers = new DataOutputStream[shards];
+
+        try (ServerSocket server = new ServerSocket(0, shards, InetAddress.getLoopbackAddress())) {
+            out.writeInt(shard);
+            out.writeInt(server.getLocalPort());
+            out.flush();
+            if (in.readByte() != ShardedCrawler.PEERS) {
+                throw new IOException("Peers expected");
+            }
+            int[] ports = (int[]) in.readObject();
+            DownloaderFactory downloaderFactory = (DownloaderFactory) in.readObject();
+            for (int i = 0; i < shards; i++) {
+                if (i != shard) {
+                    Socket socket = new Socket(InetAddress.getLoopbackAddress(), ports[i]);
+                    peers[i] = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+                    peers[i].writeInt(shard);
+                    peers[i].flush();
+                }
+            }
+            for (int i = 0; i < shards - 1; i++) {
+                startReceiver(server.accept());
+            }
+            crawler = new WebCrawler(downloaderFactory.create(), downloaders, extractors, perHost);
+        }
+        out.writeBoolean(true);
+        out.flush();
+    }
+
+    private void startReceiver(Socket socket) {
+        Thread receiver = new Thread(() -> {
+            try (DataInputStream input = new DataInputStream(new BufferedInputStream(socket.getInputStream()))) {
+                input.readInt();
+                while (true) {
+                    int size = input.readInt();
+                    List<String> batch = new ArrayList<>(size);
+                    for (int i = 0; i < size; i++) {
+                        batch.add(input.readUTF());
+                    }
+                    synchronized (received) {
+                        received.addAll(batch);
+                        receivedBatches++;
+                        received.notifyAll();
+                    }
+                }
+            } catch (IOException e) {
+                synchronized (received) {
+                    receiveError = e instanceof EOFException ? new IOException("Peer closed connection", e) : e;
+                    received.notifyAll();
+                }
+            }
+        });
+        receiver.setDaemon(true);
+        receiver.start();
+    }
+
+    private List<String> takeReceived(long batches) throws IOException, InterruptedException {
+        synchronized (received) {
+            while (receivedBatches < batches) {
+                if (receiveError != null) {
+                    throw receiveError;
+                }
+                received.wait();
+            }
+            List<String> links = new ArrayList<>(received);
+            received.clear();
+            return links;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void start() throws IOException, ClassNotFoundException {
+        String root = (String) in.readObject();
+        Set<String> hosts = (Set<String>) in.readObject();
+        hostPredicate = hosts == null ? host -> true : hosts::contains;
+        used = VisitedSet.exact();
+        ok = ConcurrentHashMap.newKeySet();
+        bad = new ConcurrentHashMap<>();
+        frontier = new ArrayList<>();
+        sent = new long[peers.length];
+        synchronized (received) {
+            receivedBatches = 0;
+        }
+        if (root != null) {
+            used.add(root);
+            frontier.add(root);
+        }
+    }
+
+    private void level() throws IOException, InterruptedException {
+        int depth = in.readInt();
+        long expected = in.readLong();
+        List<String> urls = frontier;
+        for (String url : takeReceived(expected)) {
+            if (used.add(url)) {
+                urls.add(url);
+            }
+        }
+        List<String> links = crawler.downloadLevel(urls, depth, hostPredicate, used, ok, bad);
+        frontier = new ArrayList<>();
+        List<List<String>> batches = new ArrayList<>(Collections.nCopies(peers.length, null));
+        for (String link : links) {
+            int owner;
+            try {
+                owner = partitioner.shardOf(URLUtils.getHost(link));
+            } catch (MalformedURLException e) {
+                // Reported by the next level
+                owner = shard;
+            }
+            if (owner == shard) {
+                frontier.add(link);
+                continue;
+            }
+            if (batches.get(owner) == null) {
+                batches.set(owner, new ArrayList<>());
+            }
+            batches.get(owner).add(link);
+            if (batches.get(owner).size() == BATCH_SIZE) {
+                send(owner, batches.get(owner));
+                batches.get(owner).clear();
+            }
+        }
+        for (int i = 0; i < peers.length; i++) {
+            if (batches.get(i) != null && !batches.get(i).isEmpty()) {
+                send(i, batches.get(i));
+            }
+        }
+        out.writeObject(sent.clone());
+        out.writeInt(frontier.size());
+        out.flush();
+        out.reset();
+    }
+
+    private void send(int peer, List<String> batch) throws IOException {
+        peers[peer].writeInt(batch.size());
+        for (String link : batch) {
+            peers[peer].writeUTF(link);
+        }
+        peers[peer].flush();
+        sent[peer]++;
+    }
+
+    private void finish() throws IOException {
+        out.writeObject(new ArrayList<>(ok));
+        out.writeObject(new HashMap<>(bad));
+        out.flush();
+        out.reset();
+        used = null;
+        ok = null;
+        bad = null;
+        frontier = null;
+    }
+
+    private void run() throws IOException, ClassNotFoundException, InterruptedException {
+        try (crawler) {
+            while (true) {
+                byte command = in.readByte();
+                switch (command) {
+                    case ShardedCrawler.START:
+                        start();
+                        break;
+                    case ShardedCrawler.LEVEL:
+                        try {
+                            level();
+                        } catch (IOException e) {
+                            // Coordinator fails the crawl, this worker can not continue it
+                            out.writeObject(e);
+                            out.flush();
+                            return;
+                        }
+                        break;
+                    case ShardedCrawler.FINISH:
+                        finish();
+                        break;
+                    case ShardedCrawler.EXIT:
+                        for (DataOutputStream peer : peers) {
+                            if (peer != null) {
+                                peer.close();
+                            }
+                        }
+                        return;
+                    default:
+                        throw new IOException("Unknown command " + command);
+                }
+            }
+        }
+    }
+
+    /**
+     * Exits with non-zero status if connection to coordinator or peers fails,
+     * coordinator sees it as closed connection.
+     */
+    public static void main(String[] args) {
+        if (args == null || args.length != 6) {
+            System.err.println("Expected: coordinatorPort shard shards downloaders extractors perHost");
+            System.exit(2);
+        }
+        int[] values = Arrays.stream(args).mapToInt(Integer::parseInt).toArray();
+        try (Socket coordinator = new Socket(InetAddress.getLoopbackAddress(), values[0])) {
+            new ShardWorker(coordinator, values[1], values[2], values[3], values[4], values[5]).run();
+        } catch (IOException | ClassNotFoundException | InterruptedException e) {
+            System.exit(1);
+        }
+    }
+}
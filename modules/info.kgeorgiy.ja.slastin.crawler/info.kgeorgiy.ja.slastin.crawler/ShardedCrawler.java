@@ -0,0 +1,274 @@
+package info.kgeorgiy.ja.slastin.crawler;
+
+import info.kgeorgiy.java.advanced.crawler.*;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.MalformedURLException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Crawls in several worker processes on this machine. Every worker owns hosts chosen by consistent hash,
+ * downloads only their pages and sends links to foreign hosts to their owners in batches.
+ * Crawl is level-synchronous: coordinator starts next level when every worker finished the current one
+ * and received all batches sent to it, and stops when no worker has anything to download.
+ * <p>
+ * Crawls are executed one at a time: {@code download} waits while another crawl is running.
+ * If a worker fails, crawl throws {@link UncheckedIOException} and crawler is closed.
+ */
+public class ShardedCrawler implements AdvancedCrawler {
+    static final byte PEERS = 1;
+    static final byte START = 2;
+    static final byte LEVEL = 3;
+    static final byte FINISH = 4;
+    static final byte EXIT = 5;
+
+    private static final int START_TIMEOUT_MILLIS = 60_000;
+    private static final long EXIT_TIMEOUT_SECONDS = 10;
+
+    private final HostPartitioner partitioner;
+    private final List<Process> processes = new ArrayList<>();
+    private final Shard[] shards;
+    private boolean isClosed;
+
+    /**
+     * Starts {@code shards} worker processes, each of them runs {@link WebCrawler} with the given limits.
+     */
+    public ShardedCrawler(DownloaderFactory downloaderFactory, int shards, int downloaders, int extractors,
+                          int perHost) throws IOException {
+        if (shards <= 0) {
+            throw new IllegalArgumentException("shards must be positive");
+        }
+        partitioner = new HostPartitioner(shards);
+        this.shards = new Shard[shards];
+        try (ServerSocket server = new ServerSocket(0, shards, InetAddress.getLoopbackAddress())) {
+            server.setSoTimeout(START_TIMEOUT_MILLIS);
+            for (int i = 0; i < shards; i++) {
+                processes.add(startWorker(server.getLocalPort(), i, shards, downloaders, extractors, perHost));
+            }
+            int[] ports = new int[shards];
+            for (int i = 0; i < shards; i++) {
+                Shard shard = new Shard(server.accept());
+                int index = shard.in.readInt();
+                ports[index] = shard.in.readInt();
+                this.shards[index] = shard;
+            }
+            for (Shard shard : this.shards) {
+                shard.out.writeByte(PEERS);
+                shard.out.writeObject(ports);
+                shard.out.writeObject(downloaderFactory);
+                shard.out.flush();
+            }
+            for (Shard shard : this.shards) {
+                shard.in.readBoolean();
+            }
+        } catch (IOException | RuntimeException e) {
+            close();
+            throw e;
+        }
+    }
+
+    /**
+     * Returns factory of {@link ReplayDownloader} for the given corpus.
+     */
+    public static DownloaderFactory replay(String url, int downloadDelay, int extractDelay) {
+        return new ReplayFactory(url, downloadDelay, extractDelay);
+    }
+
+    public static DownloaderFactory caching() {
+        return new CachingFactory();
+    }
+
+    private static Process startWorker(int port, int shard, int shards, int downloaders, int extractors,
+                                       int perHost) throws IOException {
+        List<String> command = new ArrayList<>();
+        command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        String modulePath = System.getProperty("jdk.module.path");
+        if (modulePath != null) {
+            command.addAll(List.of("-p", modulePath, "--add-modules", "ALL-MODULE-PATH"));
+        }
+        command.addAll(List.of("-cp", System.getProperty("java.class.path")));
+        if (modulePath != null && ShardWorker.class.getModule().isNamed()) {
+            command.addAll(List.of("-m", ShardWorker.class.getModule().getName() + "/" + ShardWorker.class.getName()));
+        } else {
+            command.add(ShardWorker.class.getName());
+        }
+        for (int arg : new int[]{port, shard, shards, downloaders, extractors, perHost}) {
+            command.add(Integer.toString(arg));
+        }
+        return new ProcessBuilder(command)
+                .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                .redirectError(ProcessBuilder.Redirect.INHERIT)
+                .start();
+    }
+
+    private synchronized Result download(String url, int depth, Set<String> hosts) {
+        if (depth <= 0) {
+            throw new IllegalArgumentException("depth must be positive");
+        }
+        if (isClosed) {
+            return new Result(List.of(), Map.of());
+        }
+        int owner;
+        try {
+            owner = partitioner.shardOf(URLUtils.getHost(url));
+        } catch (MalformedURLException e) {
+            return new Result(List.of(), Map.of(url, e));
+        }
+        try {
+            for (int i = 0; i < shards.length; i++) {
+                shards[i].out.writeByte(START);
+                shards[i].out.writeObject(i == owner ? url : null);
+                shards[i].out.writeObject(hosts);
+                shards[i].out.flush();
+                shards[i].out.reset();
+            }
+            long[] expected = new long[shards.length];
+            for (int level = depth; level >= 1; level--) {
+                for (int i = 0; i < shards.length; i++) {
+                    shards[i].out.writeByte(LEVEL);
+                    shards[i].out.writeInt(level);
+                    shards[i].out.writeLong(expected[i]);
+                    shards[i].out.flush();
+                }
+                long[] sent = new long[shards.length];
+                boolean hasWork = false;
+                for (Shard shard : shards) {
+                    Object response = shard.in.readObject();
+                    if (response instanceof IOException) {
+                        throw (IOException) response;
+                    }
+                    long[] sentBy = (long[]) response;
+                    for (int i = 0; i < shards.length; i++) {
+                        sent[i] += sentBy[i];
+                    }
+                    hasWork |= shard.in.readInt() != 0;
+                }
+                hasWork |= !Arrays.equals(sent, expected);
+                expected = sent;
+                if (!hasWork) {
+                    break;
+                }
+            }
+            List<String> downloaded = new ArrayList<>();
+            Map<String, IOException> errors = new HashMap<>();
+            for (Shard shard : shards) {
+                shard.out.writeByte(FINISH);
+                shard.out.flush();
+            }
+            for (Shard shard : shards) {
+                downloaded.addAll(readList(shard.in));
+                errors.putAll(readMap(shard.in));
+            }
+            return new Result(downloaded, errors);
+        } catch (IOException e) {
+            close();
+            throw new UncheckedIOException("Worker failed", e);
+        } catch (ClassNotFoundException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<String> readList(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        return (List<String>) in.readObject();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, IOException> readMap(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        return (Map<String, IOException>) in.readObject();
+    }
+
+    /**
+     * Waits while another crawl is running.
+     */
+    @Override
+    public Result download(String url, int depth) {
+        return download(url, depth, (Set<String>) null);
+    }
+
+    /**
+     * Waits while another crawl is running.
+     */
+    @Override
+    public Result download(String url, int depth, List<String> hosts) {
+        return download(url, depth, new HashSet<>(hosts));
+    }
+
+    @Override
+    public synchronized void close() {
+        if (isClosed) {
+            return;
+        }
+        isClosed = true;
+        for (Shard shard : shards) {
+            if (shard != null) {
+                try (shard) {
+                    shard.out.writeByte(EXIT);
+                    shard.out.flush();
+                } catch (IOException ignored) {
+                }
+            }
+        }
+        for (Process process : processes) {
+            try {
+                if (!process.waitFor(EXIT_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                    process.destroyForcibly();
+                }
+            } catch (InterruptedException e) {
+                process.destroyForcibly();
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private static class Shard implements Closeable {
+        final Socket socket;
+        final ObjectOutputStream out;
+        final ObjectInputStream in;
+
+        Shard(Socket socket) throws IOException {
+            this.socket = socket;
+            out = new ObjectOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            out.flush();
+            in = new ObjectInputStream(new BufferedInputStream(socket.getInputStream()));
+        }
+
+        @Override
+        public void close() throws IOException {
+            socket.close();
+        }
+    }
+
+    private static class ReplayFactory implements DownloaderFactory {
+        private static final long serialVersionUID = 1L;
+
+        private final String url;
+        private final int downloadDelay;
+        private final int extractDelay;
+
+        ReplayFactory(String url, int downloadDelay, int extractDelay) {
+            this.url = url;
+            this.downloadDelay = downloadDelay;
+            this.extractDelay = extractDelay;
+        }
+
+        @Override
+        public Downloader create() throws IOException {
+            return new ReplayDownloader(url, downloadDelay, extractDelay);
+        }
+    }
+
+    private static class CachingFactory implements DownloaderFactory {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        public Downloader create() throws IOException {
+            return new CachingDownloader();
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package info.kgeorgiy.ja.slastin.crawler;
+
+import info.kgeorgiy.java.advanced.crawler.Document;
+
+import java.io.IOException;
+import java.util.NavigableSet;
+import java.util.Queue;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+
+/**
+ * Downloads shared by crawls of one {@link WebCrawler} that run at the same time. A crawl joins download
+ * of the same URL that is in progress or was completed after the crawl started. Completed download
+ * is kept until every crawl that may join it finishes, so crawls that reach the page after others
+ * got it do not download it again.
+ * <p>
+ * Crawl that made the download gets the page on the download thread, others get it on {@code executor},
+ * so they do not hold the thread and permit of the host.
+ */
+class SharedDownloads {
+    private final AtomicLong crawls = new AtomicLong();
+    private final ConcurrentMap<String, Entry> entries = new ConcurrentHashMap<>();
+    private final NavigableSet<Long> running = new ConcurrentSkipListSet<>();
+    // Approximately in order of completion
+    private final Queue<Entry> completed = new ConcurrentLinkedQueue<>();
+    private final Executor executor;
+
+    SharedDownloads(Executor executor) {
+        this.executor = task -> {
+            try {
+                executor.execute(task);
+            } catch (RejectedExecutionException e) {
+                // Closed crawler still completes crawls waiting for the page
+                task.run();
+            }
+        };
+    }
+
+    /**
+     * @return identifier of the crawl to pass to other methods.
+     */
+    long crawlStarted() {
+        // Crawl is running before others can see its identifier, so completed downloads are not forgotten early
+        synchronized (running) {
+            long crawl = crawls.incrementAndGet();
+            running.add(crawl);
+            return crawl;
+        }
+    }
+
+    /**
+     * Forgets completed downloads that no running crawl may join.
+     */
+    void crawlFinished(long crawl) {
+        running.remove(crawl);
+        long oldest;
+        synchronized (running) {
+            oldest = running.isEmpty() ? crawls.get() + 1 : running.first();
+        }
+        Entry entry;
+        while ((entry = completed.peek()) != null && entry.completedAt < oldest) {
+            if (completed.remove(entry)) {
+                entries.remove(entry.url, entry);
+            }
+        }
+    }
+
+    /**
+     * Returns download of {@code created.url} visible to {@code crawl} or registers {@code created}.
+     * Caller that got {@code created} back must download the page and complete or abandon it.
+     * Every caller must then wait for the result by {@link #whenComplete}.
+     */
+    Entry join(Entry created, long crawl) {
+        while (true) {
+            Entry entry = entries.get(created.url);
+            if (entry != null && crawl <= entry.completedAt) {
+                return entry;
+            }
+            if (entry == null
+                    ? entries.putIfAbsent(created.url, created) == null
+                    : entries.replace(created.url, entry, created)) {
+                return created;
+            }
+        }
+    }
+
+    void complete(Entry entry, Document page, IOException error) {
+        entry.completedAt = crawls.get();
+        completed.add(entry);
+        if (error == null) {
+            entry.result.complete(page);
+        } else {
+            entry.result.completeExceptionally(error);
+        }
+    }
+
+    /**
+     * Forgets download that was not made. Crawls that joined it get neither page nor error.
+     */
+    void abandon(Entry entry) {
+        entries.remove(entry.url, entry);
+        entry.result.complete(null);
+    }
+
+    /**
+     * Calls {@code handler} with page or error, both are {@code null} if download was abandoned.
+     *
+     * @param isOwner whether the caller got its own entry from {@link #join}.
+     */
+    void whenComplete(Entry entry, boolean isOwner, BiConsumer<Document, IOException> handler) {
+        BiConsumer<Document, Throwable> consumer = (page, error) -> handler.accept(page, (IOException) error);
+        if (isOwner) {
+            entry.result.whenComplete(consumer);
+        } else {
+            entry.result.whenCompleteAsync(consumer, executor);
+        }
+    }
+
+    static class Entry {
+        final String url;
+        final CompletableFuture<Document> result = new CompletableFuture<>();
+        // Last crawl started before completion
+        volatile long completedAt = Long.MAX_VALUE;
+
+        Entry(String url) {
+            this.url = url;
+        }
+    }
+}
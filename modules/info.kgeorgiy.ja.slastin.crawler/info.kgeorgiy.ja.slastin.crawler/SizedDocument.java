@@ -0,0 +1,14 @@
+package info.kgeorgiy.ja.slastin.crawler;
+
+import info.kgeorgiy.java.advanced.crawler.Document;
+
+/**
+ * Document that knows its size, see {@link CrawlBudget#withMaxBytes} and {@link ExtractBacklog}.
+ * Downloaders that can measure downloaded bytes should return it, as {@link HttpDownloader} does.
+ */
+public interface SizedDocument extends Document {
+    /**
+     * Returns number of downloaded bytes.
+     */
+    long size();
+}
@@ -0,0 +1,232 @@
+package info.kgeorgiy.ja.slastin.crawler;
+
+import info.kgeorgiy.java.advanced.crawler.URLUtils;
+
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Tokenizes HTML the way jsoup does for the purpose of finding {@code <a href>}: skips comments,
+ * doctypes, processing instructions, end tags and contents of raw text elements like {@code <script>},
+ * decodes character references in attribute values. Only values of {@code href} are materialized.
+ * <p>
+ * Documents are read as UTF-8, {@code <meta charset>} is ignored, and only the basic named references
+ * ({@code amp, lt, gt, quot, apos, nbsp}) are decoded.
+ */
+public class StreamingLinkExtractor implements LinkExtractor {
+    private static final String[] RAW_TEXT = {"script", "style", "textarea", "title", "xmp", "iframe", "noembed", "noframes"};
+
+    @Override
+    public List<String> extractLinks(URI base, ByteBuffer content) {
+        List<String> result = new ArrayList<>();
+        new Scanner(content).scan(base, result);
+        return result;
+    }
+
+    static void addLink(URI base, String href, List<String> result) {
+        try {
+            URI uri = base.resolve(href);
+            // Same checks as URLUtils.extractLinks
+            if (("http".equalsIgnoreCase(uri.getScheme()) || "https".equals(uri.getScheme())) && uri.getHost() != null) {
+                result.add(URLUtils.removeFragment(uri.normalize().toString()));
+            }
+        } catch (IllegalArgumentException ignored) {
+            // Invalid URI, ignore
+        }
+    }
+
+    private static boolean isSpace(int c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\r' || c == '\f';
+    }
+
+    private static boolean isLetter(int c) {
+        return 'a' <= (c | 0x20) && (c | 0x20) <= 'z';
+    }
+
+    private static class Scanner {
+        final ByteBuffer buffer;
+        final int end;
+        int pos;
+
+        Scanner(ByteBuffer buffer) {
+            this.buffer = buffer;
+            end = buffer.limit();
+            pos = buffer.position();
+            if (end - pos >= 3 && at(pos) == 0xEF && at(pos + 1) == 0xBB && at(pos + 2) == 0xBF) {
+                // UTF-8 byte order mark
+                pos += 3;
+            }
+        }
+
+        int at(int index) {
+            return buffer.get(index) & 0xFF;
+        }
+
+        boolean startsWith(int from, String prefix) {
+            if (from + prefix.length() > end) {
+                return false;
+            }
+            for (int i = 0; i < prefix.length(); i++) {
+                if (at(from + i) != prefix.charAt(i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        boolean equalsIgnoreCase(int from, int to, String name) {
+            if (to - from != name.length()) {
+                return false;
+            }
+            for (int i = 0; i < name.length(); i++) {
+                int c = at(from + i);
+                if ((isLetter(c) ? c | 0x20 : c) != name.charAt(i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        int indexOf(int c, int from) {
+            for (int i = from; i < end; i++) {
+                if (at(i) == c) {
+                    return i;
+                }
+            }
+            return end;
+        }
+
+        void scan(URI base, List<String> result) {
+            while ((pos = indexOf('<', pos) + 1) < end) {
+                int c = at(pos);
+                if (c == '!') {
+                    skipMarkup();
+                } else if (c == '?' || c == '/') {
+                    pos = indexOf('>', pos) + 1;
+                } else if (isLetter(c)) {
+                    if (!scanTag(base, result)) {
+                        return;
+                    }
+                }
+            }
+        }
+
+        void skipMarkup() {
+            if (!startsWith(pos, "!--")) {
+                pos = indexOf('>', pos) + 1;
+                return;
+            }
+            pos += 3;
+            if (startsWith(pos, ">")) {
+                pos++;
+                return;
+            }
+            if (startsWith(pos, "->")) {
+                pos += 2;
+                return;
+            }
+            for (; pos < end; pos++) {
+                if (startsWith(pos, "-->")) {
+                    pos += 3;
+                    return;
+                }
+                if (startsWith(pos, "--!>")) {
+                    pos += 4;
+                    return;
+                }
+            }
+        }
+
+        /**
+         * @return {@code false} if the rest of the document is text.
+         */
+        boolean scanTag(URI base, List<String> result) {
+            int nameStart = pos;
+            while (pos < end && !isSpace(at(pos)) && at(pos) != '/' && at(pos) != '>') {
+                pos++;
+            }
+            int nameEnd = pos;
+            boolean isAnchor = equalsIgnoreCase(nameStart, nameEnd, "a");
+            String href = null;
+            while (true) {
+                while (pos < end && (isSpace(at(pos)) || at(pos) == '/')) {
+                    // jsoup 1.8 drops the character after a solidus that does not close the tag
+                    pos += at(pos) == '/' && pos + 1 < end && at(pos + 1) != '>' ? 2 : 1;
+                }
+                if (pos >= end) {
+                    // Unterminated tag is dropped
+                    return false;
+                }
+                if (at(pos) == '>') {
+                    pos++;
+                    break;
+                }
+                int attributeStart = pos++;
+                while (pos < end && !isSpace(at(pos)) && at(pos) != '/' && at(pos) != '>' && at(pos) != '=') {
+                    pos++;
+                }
+                int attributeEnd = pos;
+                while (pos < end && isSpace(at(pos))) {
+                    pos++;
+                }
+                int valueStart = pos;
+                int valueEnd = pos;
+                if (pos < end && at(pos) == '=') {
+                    pos++;
+                    while (pos < end && isSpace(at(pos))) {
+                        pos++;
+                    }
+                    if (pos < end && (at(pos) == '"' || at(pos) == '\'')) {
+                        valueStart = pos + 1;
+                        valueEnd = indexOf(at(pos), valueStart);
+                        if (valueEnd == end) {
+                            return false;
+                        }
+                        pos = valueEnd + 1;
+                    } else {
+                        valueStart = pos;
+                        while (pos < end && !isSpace(at(pos)) && at(pos) != '>') {
+                            pos++;
+                        }
+                        valueEnd = pos;
+                    }
+                }
+                if (isAnchor && equalsIgnoreCase(attributeStart, attributeEnd, "href")) {
+                    href = decode(valueStart, valueEnd);
+                }
+            }
+            if (href != null) {
+                addLink(base, href, result);
+            } else if (equalsIgnoreCase(nameStart, nameEnd, "plaintext")) {
+                return false;
+            } else {
+                for (String name : RAW_TEXT) {
+                    if (equalsIgnoreCase(nameStart, nameEnd, name)) {
+                        skipRawText(name);
+                        break;
+                    }
+                }
+            }
+            return true;
+        }
+
+        void skipRawText(String name) {
+            for (; pos < end; pos++) {
+                int close = pos + 2 + name.length();
+                if (at(pos) == '<' && startsWith(pos + 1, "/") && close <= end
+                        && equalsIgnoreCase(pos + 2, close, name)
+                        && (close == end || isSpace(at(close)) || at(close) == '/' || at(close) == '>')) {
+                    return;
+                }
+            }
+        }
+
+        String decode(int from, int to) {
+            String value = StandardCharsets.UTF_8.decode(buffer.slice(from, to - from)).toString();
+            return value.indexOf('&') < 0 ? value : CharacterReferences.decode(value);
+        }
+    }
+}
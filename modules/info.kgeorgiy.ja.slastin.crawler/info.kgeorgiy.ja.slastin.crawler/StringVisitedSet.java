@@ -0,0 +1,35 @@
+package info.kgeorgiy.ja.slastin.crawler;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+class StringVisitedSet implements VisitedSet {
+    // Hash map node, table slot, String and its array headers
+    private static final int ENTRY_OVERHEAD = 32 + 8 + 24 + 16;
+
+    private final Set<String> urls = ConcurrentHashMap.newKeySet();
+    private final LongAdder footprint = new LongAdder();
+
+    @Override
+    public boolean add(String url) {
+        if (urls.add(url)) {
+            footprint.add(ENTRY_OVERHEAD + url.length());
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public long memoryFootprint() {
+        return footprint.sum();
+    }
+
+    /**
+     * Always zero: URLs are compared as strings.
+     */
+    @Override
+    public double collisionRate() {
+        return 0;
+    }
+}
@@ -0,0 +1,111 @@
+package info.kgeorgiy.ja.slastin.crawler;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Limits downloads from one host under its monitor. Window of simultaneous downloads is either fixed to {@code perHost}
+ * or adjusted by AIMD: it starts at {@code perHost}, halves after a failure or when recent latency of the host
+ * exceeds its baseline by more than the latency threshold, and grows back by one per window of other downloads.
+ * Baseline is the latency averaged over a long run, so it follows the host and not a single slow download.
+ */
+class SynchronizedHostSupervisor implements HostSupervisor {
+    private static final double SMOOTHING = 0.1;
+    private static final double BASELINE_SMOOTHING = 0.01;
+
+    private final Executor downloadPool;
+    private final ScheduledExecutorService scheduler;
+    private final Queue<Runnable> pending = new ArrayDeque<>();
+    private final int perHost;
+    private final long latencyThreshold;
+    private final TokenBucket bucket;
+    private double window;
+    private int running;
+    private boolean isWaitingForToken;
+    private double latency;
+    private double baseline;
+    private double errorRate;
+    private long lastDecrease;
+
+    SynchronizedHostSupervisor(Executor downloadPool, ScheduledExecutorService scheduler, int perHost,
+                               CrawlOptions options) {
+        this.downloadPool = downloadPool;
+        this.scheduler = scheduler;
+        this.perHost = perHost;
+        latencyThreshold = options.getLatencyThreshold() == null ? 0 : options.getLatencyThreshold().toNanos();
+        window = perHost;
+        bucket = options.getRateLimit() == 0 ? null
+                : new TokenBucket(options.getRateLimit(), options.getRateLimitBurst(), System.nanoTime());
+    }
+
+    @Override
+    public synchronized void addTask(Runnable task) {
+        pending.add(task);
+        dispatch();
+    }
+
+    @Override
+    public synchronized void nextTask(long elapsed, boolean failed) {
+        --running;
+        if (latencyThreshold != 0) {
+            adapt(elapsed, failed);
+        }
+        dispatch();
+    }
+
+    @Override
+    public synchronized void nextTask() {
+        --running;
+        dispatch();
+    }
+
+    private void adapt(long elapsed, boolean failed) {
+        long now = System.nanoTime();
+        if (baseline == 0) {
+            latency = baseline = elapsed;
+        } else {
+            latency += SMOOTHING * (elapsed - latency);
+            baseline += BASELINE_SMOOTHING * (elapsed - baseline);
+        }
+        errorRate += SMOOTHING * ((failed ? 1 : 0) - errorRate);
+        if (failed || latency > baseline + latencyThreshold) {
+            // At most once per round trip, otherwise one burst of slow downloads collapses the window
+            if (now - lastDecrease > latency) {
+                window = Math.max(1, window / 2);
+                lastDecrease = now;
+            }
+        } else {
+            window = Math.min(perHost, window + 1 / window);
+        }
+    }
+
+    private void dispatch() {
+        while (!pending.isEmpty() && running < (int) window && !isWaitingForToken) {
+            if (bucket != null) {
+                long delay = bucket.tryAcquire(System.nanoTime());
+                if (delay != 0) {
+                    isWaitingForToken = true;
+                    scheduler.schedule(this::tokenArrived, delay, TimeUnit.NANOSECONDS);
+                    return;
+                }
+            }
+            ++running;
+            downloadPool.execute(pending.poll());
+        }
+    }
+
+    private synchronized void tokenArrived() {
+        isWaitingForToken = false;
+        dispatch();
+    }
+
+    @Override
+    public synchronized HostState getState() {
+        return new HostState((int) window, running, pending.size(),
+                bucket == null ? Double.POSITIVE_INFINITY : bucket.getTokens(),
+                latency / TimeUnit.MILLISECONDS.toNanos(1), errorRate);
+    }
+}
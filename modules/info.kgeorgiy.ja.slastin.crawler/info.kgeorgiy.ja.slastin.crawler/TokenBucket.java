@@ -0,0 +1,39 @@
+package info.kgeorgiy.ja.slastin.crawler;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Not thread-safe, guarded by its owner.
+ */
+class TokenBucket {
+    private final double tokensPerNano;
+    private final double capacity;
+    private double tokens;
+    private long refilled;
+
+    TokenBucket(double permitsPerSecond, int burst, long now) {
+        tokensPerNano = permitsPerSecond / TimeUnit.SECONDS.toNanos(1);
+        capacity = burst;
+        tokens = burst;
+        refilled = now;
+    }
+
+    /**
+     * Takes a token if there is one.
+     *
+     * @return zero if token was taken or nanoseconds until the next token otherwise.
+     */
+    long tryAcquire(long now) {
+        tokens = Math.min(capacity, tokens + (now - refilled) * tokensPerNano);
+        refilled = now;
+        if (tokens >= 1) {
+            tokens -= 1;
+            return 0;
+        }
+        return Math.max(1, (long) Math.ceil((1 - tokens) / tokensPerNano));
+    }
+
+    double getTokens() {
+        return tokens;
+    }
+}
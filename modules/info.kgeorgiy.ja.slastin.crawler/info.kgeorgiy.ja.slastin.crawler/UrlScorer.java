@@ -0,0 +1,33 @@
+package info.kgeorgiy.ja.slastin.crawler;
+
+import java.util.regex.Pattern;
+
+/**
+ * Scores pages waiting for download, see {@link CrawlOptions#withFrontier}.
+ */
+@FunctionalInterface
+public interface UrlScorer {
+    /**
+     * Prefers pages closer to the root.
+     */
+    UrlScorer DEPTH = (url, host, depth) -> depth;
+
+    /**
+     * @param url page to download.
+     * @param host host of the page.
+     * @param depth remaining depth of the page, {@code 1} for the last level.
+     * @return score of the page, pages with higher score are downloaded first.
+     */
+    double score(String url, String host, int depth);
+
+    /**
+     * Adds {@code bonus} to pages which URL matches {@code pattern}.
+     */
+    static UrlScorer matching(Pattern pattern, double bonus) {
+        return (url, host, depth) -> pattern.matcher(url).find() ? bonus : 0;
+    }
+
+    default UrlScorer plus(UrlScorer other) {
+        return (url, host, depth) -> score(url, host, depth) + other.score(url, host, depth);
+    }
+}
@@ -0,0 +1,52 @@
+package info.kgeorgiy.ja.slastin.crawler;
+
+/**
+ * Thread-safe set of URLs discovered during one crawl.
+ */
+public interface VisitedSet {
+    /**
+     * Marks URL as visited.
+     *
+     * @return {@code true} if the URL was not visited before.
+     */
+    boolean add(String url);
+
+    /**
+     * Returns estimated number of bytes occupied by this set.
+     */
+    long memoryFootprint();
+
+    /**
+     * Returns observed collision rate, see implementations for the exact meaning.
+     */
+    double collisionRate();
+
+    /**
+     * Keeps URL strings, never mistakes.
+     */
+    static VisitedSet exact() {
+        return new StringVisitedSet();
+    }
+
+    /**
+     * Keeps 64-bit fingerprints of URLs in a lock-free open-addressing table.
+     */
+    static VisitedSet fingerprints64(int expectedUrls) {
+        return new FingerprintVisitedSet(expectedUrls, 1);
+    }
+
+    /**
+     * Keeps 128-bit fingerprints of URLs in a lock-free open-addressing table.
+     */
+    static VisitedSet fingerprints128(int expectedUrls) {
+        return new FingerprintVisitedSet(expectedUrls, 2);
+    }
+
+    /**
+     * Keeps URLs in a Bloom filter, new URL is mistaken for a visited one with
+     * probability about {@code falsePositiveRate} once {@code expectedUrls} are added.
+     */
+    static VisitedSet bloom(long expectedUrls, double falsePositiveRate) {
+        return new BloomVisitedSet(expectedUrls, falsePositiveRate);
+    }
+}
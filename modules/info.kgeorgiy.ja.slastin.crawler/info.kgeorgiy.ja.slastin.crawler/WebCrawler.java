@@ -6,7 +6,12 @@ import java.io.IOException;
 import java.net.MalformedURLException;
 import java.util.*;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.function.BiConsumer;
+import java.util.function.BooleanSupplier;
 import java.util.function.Predicate;
+import java.util.function.Supplier;
 
 public class WebCrawler implements AdvancedCrawler {
     private final static int DEFAULT_DEPTH = 2;
@@ -15,26 +20,111 @@ public class WebCrawler implements AdvancedCrawler {
     private final static int DEFAULT_PERHOST = 10;
 
     private final static Predicate<String> ANY_HOST_PREDICATE = url -> true;
+    private final static BooleanSupplier NEVER_CANCELLED = () -> false;
+    private final static boolean HAS_VIRTUAL_THREADS = hasVirtualThreads();
 
     private final ConcurrentMap<String, HostSupervisor> hosts = new ConcurrentHashMap<>();
     private final StoppablePhasers stoppablePhasers = new StoppablePhasers();
     private final Downloader downloader;
+    private final AsyncDownloader asyncDownloader;
+    // Limits asynchronous downloads in flight to downloaders, null for blocking downloader or frontier
+    private final HostSupervisor asyncDownloads;
+    private final UrlScorer urlScorer;
+    private final PriorityFrontier frontier;
+    private final LinkGraphBuilder linkGraph;
     private final ExecutorService downloadPool, extractPool;
+    // Every streaming crawl waits for its completion on a thread of its own
+    private final ExecutorService streamDrivers;
+    private final ScheduledExecutorService scheduler;
     private final int perHost;
+    private final CrawlOptions options;
+    private final CrawlEngine engine;
+    private final CrawlMode mode;
+    private final Supplier<? extends VisitedSet> visitedSetFactory;
+    private final CrawlerMetrics metrics;
+    private final SharedDownloads sharedDownloads;
+    private final ExtractBacklog backlog;
     private volatile boolean isClosed;
 
-    public WebCrawler(Downloader downloader, int downloaders, int extractors, int perHost) {
+    public WebCrawler(Downloader downloader, int downloaders, int extractors, int perHost, CrawlOptions options) {
         checkCrawlerArgs(downloaders, extractors, perHost);
+        backlog = new ExtractBacklog(options.getMaxBacklogDocuments(), options.getMaxBacklogBytes());
+        metrics = options.isMetricsEnabled()
+                ? new CrawlerMetrics(downloaders, extractors, backlog, options)
+                : CrawlerMetrics.DISABLED;
         this.downloader = downloader;
-        downloadPool = Executors.newFixedThreadPool(downloaders);
-        extractPool = Executors.newFixedThreadPool(extractors);
+        engine = options.getEngine() == CrawlEngine.VIRTUAL_THREADS && !HAS_VIRTUAL_THREADS
+                ? CrawlEngine.PLATFORM_THREADS
+                : options.getEngine();
+        if (downloader instanceof AsyncDownloader) {
+            // Threads only start downloads, so there is no need in more threads than processors
+            downloadPool = createPool(engine, Math.min(downloaders, Runtime.getRuntime().availableProcessors()));
+            asyncDownloader = (AsyncDownloader) downloader;
+        } else {
+            downloadPool = createPool(engine, downloaders);
+            asyncDownloader = null;
+        }
+        urlScorer = options.getUrlScorer();
+        if (urlScorer != null) {
+            if (options.getRateLimit() != 0 || options.getLatencyThreshold() != null) {
+                throw new IllegalArgumentException("Frontier can not be combined with rate limit or adaptive concurrency");
+            }
+            // Frontier limits downloads itself
+            frontier = new PriorityFrontier(downloadPool::submit, downloaders);
+            asyncDownloads = null;
+        } else {
+            frontier = null;
+            asyncDownloads = asyncDownloader == null ? null : new LockFreeHostSupervisor(downloadPool::submit, downloaders);
+        }
+        extractPool = createPool(engine, extractors);
+        AtomicInteger drivers = new AtomicInteger();
+        streamDrivers = Executors.newCachedThreadPool(task -> {
+            Thread thread = new Thread(task, "WebCrawler-stream-" + drivers.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler = options.getRateLimit() == 0 ? null : Executors.newSingleThreadScheduledExecutor();
         this.perHost = perHost;
+        this.options = options;
+        mode = options.getMode();
+        visitedSetFactory = options.getVisitedSet();
+        sharedDownloads = options.isRequestCoalescing() ? new SharedDownloads(extractPool) : null;
+        linkGraph = options.getLinkGraph();
+    }
+
+    public WebCrawler(Downloader downloader, int downloaders, int extractors, int perHost) {
+        this(downloader, downloaders, extractors, perHost, CrawlOptions.DEFAULT);
     }
 
     public WebCrawler(int downloaders, int extractors, int perHost) throws IOException {
         this(new CachingDownloader(), downloaders, extractors, perHost);
     }
 
+    private static ExecutorService createPool(CrawlEngine engine, int threads) {
+        if (engine == CrawlEngine.VIRTUAL_THREADS) {
+            return new LimitedExecutorService(newThreadPerTaskExecutor(), threads);
+        }
+        return Executors.newFixedThreadPool(threads);
+    }
+
+    private static ExecutorService newThreadPerTaskExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            throw new AssertionError("Virtual threads are not available", e);
+        }
+    }
+
+    // Before Java 21 the method is either missing or fails without preview features enabled
+    private static boolean hasVirtualThreads() {
+        try {
+            ((ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null)).shutdown();
+            return true;
+        } catch (ReflectiveOperationException e) {
+            return false;
+        }
+    }
+
     private static void shutdownAndAwaitTermination(ExecutorService pool) {
         pool.shutdown();
         try {
@@ -109,38 +199,260 @@ public class WebCrawler implements AdvancedCrawler {
         }
     }
 
-    private void extractTask(Document page, Phaser phaser, BlockingQueue<String> urlsQueue, Set<String> used) {
+    private HostSupervisor getHostSupervisor(String host) {
+        HostSupervisor existing = hosts.get(host);
+        if (existing != null) {
+            return existing;
+        }
+        boolean[] isAdded = new boolean[1];
+        HostSupervisor hostSupervisor = hosts.computeIfAbsent(host, hostUrl -> {
+            isAdded[0] = true;
+            if (frontier != null) {
+                return frontier.newHost(perHost);
+            }
+            Executor executor = asyncDownloads == null ? downloadPool::submit : asyncDownloads::addTask;
+            return HostSupervisor.create(executor, scheduler, perHost, options);
+        });
+        // Registration in the MBean server is slow, so it does not hold the bin of the map
+        if (isAdded[0]) {
+            metrics.hostAdded(host, hostSupervisor);
+        }
+        return hostSupervisor;
+    }
+
+    private Document download(String host, String url) throws IOException {
+        long start = metrics.downloadStarted();
+        IOException error = null;
+        try {
+            return downloader.download(url);
+        } catch (IOException e) {
+            error = e;
+            throw e;
+        } finally {
+            metrics.downloadFinished(host, start, error);
+        }
+    }
+
+    /**
+     * Starts download by {@link AsyncDownloader}, handler is called and permits are released when it completes.
+     */
+    private void downloadAsync(HostSupervisor hostSupervisor, String host, String url,
+                               BiConsumer<Document, IOException> handler) {
+        long start = System.nanoTime();
+        long metricsStart = metrics.downloadStarted();
+        CompletableFuture<Document> future;
+        try {
+            future = asyncDownloader.downloadAsync(url);
+        } catch (RuntimeException e) {
+            future = CompletableFuture.failedFuture(e);
+        }
+        future.whenComplete((page, e) -> {
+            long elapsed = System.nanoTime() - start;
+            IOException error = AsyncDownloader.toIOException(e);
+            metrics.downloadFinished(host, metricsStart, error);
+            try {
+                handler.accept(error == null ? page : null, error);
+            } finally {
+                nextTask(hostSupervisor, elapsed, e != null);
+            }
+        });
+    }
+
+    private void nextTask(HostSupervisor hostSupervisor, long elapsed, boolean failed) {
+        if (asyncDownloads != null) {
+            asyncDownloads.nextTask(elapsed, failed);
+        }
+        hostSupervisor.nextTask(elapsed, failed);
+    }
+
+    private void nextTask(HostSupervisor hostSupervisor) {
+        if (asyncDownloads != null) {
+            asyncDownloads.nextTask();
+        }
+        hostSupervisor.nextTask();
+    }
+
+    private List<String> extractLinks(String url, Document page) throws IOException {
+        long start = metrics.extractionStarted();
+        List<String> links;
+        try {
+            links = page.extractLinks();
+        } finally {
+            metrics.extractionFinished(start);
+        }
+        if (linkGraph != null) {
+            linkGraph.addPage(url, links);
+        }
+        return links;
+    }
+
+    private long crawlStarted() {
+        metrics.crawlStarted();
+        return sharedDownloads == null ? 0 : sharedDownloads.crawlStarted();
+    }
+
+    private void crawlFinished(long crawl) {
+        metrics.crawlFinished();
+        if (sharedDownloads != null) {
+            sharedDownloads.crawlFinished(crawl);
+        }
+    }
+
+    /**
+     * Downloads page or joins download of the same page by another crawl. Handler gets page or error,
+     * both are {@code null} if page was not downloaded because of cancellation.
+     */
+    private void submitDownload(HostSupervisor hostSupervisor, String host, String url, int depth, long crawl,
+                                BooleanSupplier isCancelled, BiConsumer<Document, IOException> handler) {
+        if (sharedDownloads == null) {
+            addDownloadTask(hostSupervisor, host, url, depth, isCancelled, handler);
+            return;
+        }
+        SharedDownloads.Entry created = new SharedDownloads.Entry(url);
+        SharedDownloads.Entry entry = sharedDownloads.join(created, crawl);
+        if (entry == created) {
+            try {
+                addDownloadTask(hostSupervisor, host, url, depth, isCancelled, (page, error) -> {
+                    if (page == null && error == null) {
+                        sharedDownloads.abandon(entry);
+                    } else {
+                        sharedDownloads.complete(entry, page, error);
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                sharedDownloads.abandon(entry);
+                throw e;
+            }
+        } else {
+            metrics.downloadCoalesced();
+        }
+        sharedDownloads.whenComplete(entry, entry == created, (page, error) -> {
+            if (page == null && error == null && !isCancelled.getAsBoolean() && !isClosed) {
+                // Crawl that was downloading the page is cancelled
+                try {
+                    submitDownload(hostSupervisor, host, url, depth, crawl, isCancelled, handler);
+                } catch (RejectedExecutionException e) {
+                    handler.accept(null, null);
+                }
+            } else {
+                handler.accept(page, error);
+            }
+        });
+    }
+
+    private void addDownloadTask(HostSupervisor hostSupervisor, String host, String url, int depth,
+                                 BooleanSupplier isCancelled, BiConsumer<Document, IOException> handler) {
+        metrics.downloadQueued();
+        double score = urlScorer == null ? 0 : urlScorer.score(url, host, depth);
+        try {
+            addDownloadTask(hostSupervisor, host, url, score, isCancelled, handler);
+        } catch (RejectedExecutionException e) {
+            metrics.downloadDropped();
+            throw e;
+        }
+    }
+
+    private void addDownloadTask(HostSupervisor hostSupervisor, String host, String url, double score,
+                                 BooleanSupplier isCancelled, BiConsumer<Document, IOException> handler) {
+        hostSupervisor.addTask(() -> {
+            boolean isDropped = isClosed || isCancelled.getAsBoolean();
+            if (!isDropped && backlog.defer(() -> resumeDownloadTask(hostSupervisor, host, url, score,
+                    isCancelled, handler))) {
+                // Host permit is returned, so other hosts are not stalled by a full backlog
+                nextTask(hostSupervisor);
+                return;
+            }
+            if (asyncDownloader != null && !isDropped) {
+                downloadAsync(hostSupervisor, host, url, handler);
+                return;
+            }
+            Document page = null;
+            IOException error = null;
+            long elapsed = 0;
+            try {
+                if (isDropped) {
+                    metrics.downloadDropped();
+                } else {
+                    long start = System.nanoTime();
+                    try {
+                        page = download(host, url);
+                    } finally {
+                        elapsed = System.nanoTime() - start;
+                    }
+                }
+            } catch (IOException e) {
+                error = e;
+            } finally {
+                try {
+                    handler.accept(page, error);
+                } finally {
+                    // Only the download is timed, dropped one says nothing about the host
+                    if (isDropped) {
+                        nextTask(hostSupervisor);
+                    } else {
+                        nextTask(hostSupervisor, elapsed, page == null);
+                    }
+                }
+            }
+        }, score);
+    }
+
+    private void resumeDownloadTask(HostSupervisor hostSupervisor, String host, String url, double score,
+                                    BooleanSupplier isCancelled, BiConsumer<Document, IOException> handler) {
+        try {
+            addDownloadTask(hostSupervisor, host, url, score, isCancelled, handler);
+        } catch (RejectedExecutionException e) {
+            metrics.downloadDropped();
+            handler.accept(null, null);
+        }
+    }
+
+    private void extractTask(String url, Document page, Phaser phaser, BlockingQueue<String> urlsQueue,
+                             VisitedSet used, BudgetTracker budget) {
         try {
-            page.extractLinks().stream().filter(used::add).forEach(urlsQueue::add);
+            if (budget != null && budget.isReached()) {
+                metrics.extractionDropped();
+                return;
+            }
+            extractLinks(url, page).stream().filter(used::add).forEach(urlsQueue::add);
         } catch (IOException ignored) {
         } finally {
+            backlog.remove(page);
             phaser.arrive();
         }
     }
 
-    private void addDownloadTask(String url, int depth, Phaser phaser, Predicate<String> hostPredicate,
-                                 BlockingQueue<String> urlsQueue, Set<String> used, Set<String> ok,
-                                 ConcurrentMap<String, IOException> bad) {
+    private void addDownloadTask(String url, int depth, long crawl, Phaser phaser, Predicate<String> hostPredicate,
+                                 BlockingQueue<String> urlsQueue, VisitedSet used, Set<String> ok,
+                                 ConcurrentMap<String, IOException> bad, BudgetTracker budget) {
         try {
             String host = URLUtils.getHost(url);
             if (!hostPredicate.test(host)) {
                 return;
             }
-            HostSupervisor hostSupervisor = hosts.computeIfAbsent(host, hostUrl -> new HostSupervisor());
+            HostSupervisor hostSupervisor = getHostSupervisor(host);
             phaser.register();
-            hostSupervisor.addTask(() -> {
+            BooleanSupplier isCancelled = budget == null ? NEVER_CANCELLED : budget::isReached;
+            submitDownload(hostSupervisor, host, url, depth, crawl, isCancelled, (page, error) -> {
                 try {
-                    Document page = downloader.download(url);
-                    ok.add(url);
-                    if (depth > 1) {
-                        phaser.register();
-                        extractPool.submit(() -> extractTask(page, phaser, urlsQueue, used));
-                    }
-                } catch (IOException e) {
-                    bad.put(url, e);
+                    if (error != null) {
+                        admit(budget, null, () -> bad.put(url, error));
+                    } else if (page != null && admit(budget, page, () -> ok.add(url))) {
+                        if (depth > 1) {
+                            phaser.register();
+                            metrics.extractionQueued();
+                            backlog.add(page);
+                            try {
+                                extractPool.submit(() -> extractTask(url, page, phaser, urlsQueue, used, budget));
+                            } catch (RejectedExecutionException e) {
+                                metrics.extractionDropped();
+                                backlog.remove(page);
+                                phaser.arrive();
+                            }
+                        }
+                    }
                 } finally {
                     phaser.arrive();
-                    hostSupervisor.nextTask();
                 }
             });
         } catch (RejectedExecutionException ignored) {
@@ -149,43 +461,182 @@ public class WebCrawler implements AdvancedCrawler {
         }
     }
 
-    private List<String> downloadUrls(List<String> urls, int depth, Predicate<String> hostPredicate,
-                                      BlockingQueue<String> queue, Set<String> used, Set<String> ok,
-                                      ConcurrentMap<String, IOException> bad) {
-        Phaser phaser = new Phaser(1);
-        urls.forEach(url -> addDownloadTask(url, depth, phaser, hostPredicate, queue, used, ok, bad));
+    private static boolean admit(BudgetTracker budget, Document page, Runnable record) {
+        if (budget == null) {
+            record.run();
+            return true;
+        }
+        return budget.admit(page, record);
+    }
+
+    private void arriveAndAwait(Phaser phaser, BudgetTracker budget) {
         stoppablePhasers.add(phaser);
-        phaser.arriveAndAwaitAdvance();
+        if (budget == null) {
+            phaser.arriveAndAwaitAdvance();
+        } else {
+            budget.arriveAndAwait(phaser);
+        }
         stoppablePhasers.remove(phaser);
+    }
+
+    private List<String> downloadUrls(List<String> urls, int depth, long crawl, Predicate<String> hostPredicate,
+                                      BlockingQueue<String> queue, VisitedSet used, Set<String> ok,
+                                      ConcurrentMap<String, IOException> bad, BudgetTracker budget) {
+        Phaser phaser = new Phaser(1);
+        urls.forEach(url -> addDownloadTask(url, depth, crawl, phaser, hostPredicate, queue, used, ok, bad, budget));
+        arriveAndAwait(phaser, budget);
         List<String> result = new ArrayList<>(queue.size());
         queue.drainTo(result);
         return result;
     }
 
-    private Result download(String url, int depth, Predicate<String> hostPredicate) {
-        checkDepth(depth);
+    private Result downloadLevelSynchronous(String url, int depth, long crawl, Predicate<String> hostPredicate,
+                                            BudgetTracker budget) {
         BlockingQueue<String> queue = new LinkedBlockingQueue<>();
-        Set<String> used = ConcurrentHashMap.newKeySet();
+        VisitedSet used = visitedSetFactory.get();
         used.add(url);
         Set<String> ok = ConcurrentHashMap.newKeySet();
         ConcurrentMap<String, IOException> bad = new ConcurrentHashMap<>();
         List<String> urls = List.of(url);
-        for (int i = depth; i >= 1 && !isClosed && !Thread.currentThread().isInterrupted(); i--) {
-            urls = downloadUrls(urls, i, hostPredicate, queue, used, ok, bad);
+        for (int i = depth; i >= 1 && !isClosed && !Thread.currentThread().isInterrupted()
+                && (budget == null || !budget.isReached()); i--) {
+            urls = downloadUrls(urls, i, crawl, hostPredicate, queue, used, ok, bad, budget);
+        }
+        return toResult(ok, bad, budget);
+    }
+
+    /**
+     * Downloads one level of level-synchronous crawl and extracts links if {@code depth > 1}.
+     * Returns extracted links that were added to {@code used}.
+     */
+    List<String> downloadLevel(List<String> urls, int depth, Predicate<String> hostPredicate, VisitedSet used,
+                               Set<String> ok, ConcurrentMap<String, IOException> bad) {
+        long crawl = crawlStarted();
+        try {
+            return downloadUrls(urls, depth, crawl, hostPredicate, new LinkedBlockingQueue<>(), used, ok, bad, null);
+        } finally {
+            crawlFinished(crawl);
+        }
+    }
+
+    private static Result toResult(Set<String> ok, Map<String, IOException> bad, BudgetTracker budget) {
+        List<String> downloaded = new ArrayList<>(ok);
+        return budget == null ? new Result(downloaded, bad) : new BudgetedResult(downloaded, bad, budget.getReached());
+    }
+
+    private Result download(String url, int depth, Predicate<String> hostPredicate, CrawlBudget budget) {
+        checkDepth(depth);
+        long crawl = crawlStarted();
+        BudgetTracker tracker = budget.isUnlimited() ? null : new BudgetTracker(budget);
+        try {
+            if (mode == CrawlMode.PIPELINED) {
+                ResultSink sink = new ResultSink();
+                new PipelinedCrawl(url, depth, crawl, hostPredicate, sink, tracker).run();
+                return toResult(sink.ok, sink.bad, tracker);
+            }
+            return downloadLevelSynchronous(url, depth, crawl, hostPredicate, tracker);
+        } finally {
+            crawlFinished(crawl);
         }
-        return new Result(new ArrayList<>(ok), bad);
     }
 
+    private Flow.Publisher<CrawlEvent> stream(String url, int depth, Predicate<String> hostPredicate) {
+        checkDepth(depth);
+        return subscriber -> {
+            PublishingSink sink = new PublishingSink();
+            sink.publisher.subscribe(sink.new DemandSubscriber(subscriber));
+            try {
+                streamDrivers.execute(() -> {
+                    long crawl = crawlStarted();
+                    try {
+                        new PipelinedCrawl(url, depth, crawl, hostPredicate, sink, null).run();
+                    } finally {
+                        crawlFinished(crawl);
+                    }
+                    if (isClosed) {
+                        sink.publisher.closeExceptionally(new CancellationException("Crawler is closed"));
+                    } else {
+                        sink.publisher.close();
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                sink.publisher.closeExceptionally(new CancellationException("Crawler is closed"));
+            }
+        };
+    }
+
+    /**
+     * Crawls like pipelined {@link #download(String, int)}, but publishes every downloaded page
+     * or error as soon as it is known. Every subscription starts a new crawl. Download starts only when
+     * subscriber buffer has room for its outcome, so a slow subscriber holds neither threads nor hosts.
+     */
+    public Flow.Publisher<CrawlEvent> stream(String url, int depth) {
+        return stream(url, depth, ANY_HOST_PREDICATE);
+    }
+
+    public Flow.Publisher<CrawlEvent> stream(String url, int depth, List<String> hosts) {
+        return stream(url, depth, hostPredicate(hosts));
+    }
+
+    /**
+     * Crawls within the budget set by {@link CrawlOptions#withBudget}, result is {@link BudgetedResult} if it is set.
+     */
     @Override
     public Result download(String url, int depth) {
-        return download(url, depth, ANY_HOST_PREDICATE);
+        return download(url, depth, ANY_HOST_PREDICATE, options.getBudget());
     }
 
     @Override
     public Result download(String url, int depth, List<String> hosts) {
+        return download(url, depth, hostPredicate(hosts), options.getBudget());
+    }
+
+    public BudgetedResult download(String url, int depth, CrawlBudget budget) {
+        return toBudgetedResult(download(url, depth, ANY_HOST_PREDICATE, budget));
+    }
+
+    public BudgetedResult download(String url, int depth, List<String> hosts, CrawlBudget budget) {
+        return toBudgetedResult(download(url, depth, hostPredicate(hosts), budget));
+    }
+
+    private static BudgetedResult toBudgetedResult(Result result) {
+        return result instanceof BudgetedResult
+                ? (BudgetedResult) result
+                : new BudgetedResult(result.getDownloaded(), result.getErrors(), null);
+    }
+
+    private static Predicate<String> hostPredicate(List<String> hosts) {
         Set<String> availableHosts = ConcurrentHashMap.newKeySet();
         availableHosts.addAll(hosts);
-        return download(url, depth, availableHosts::contains);
+        return availableHosts::contains;
+    }
+
+    /**
+     * Returns engine actually used by this crawler: {@link CrawlEngine#VIRTUAL_THREADS} is replaced
+     * by {@link CrawlEngine#PLATFORM_THREADS} on runtimes without virtual threads.
+     */
+    public CrawlEngine getEngine() {
+        return engine;
+    }
+
+    /**
+     * Returns metrics of this crawler, all of them are zero unless enabled by {@link CrawlOptions#withMetrics}.
+     */
+    public CrawlerMetricsMXBean getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Returns documents downloaded but not extracted yet, see {@link CrawlOptions#withExtractBacklog}.
+     */
+    public ExtractBacklog getExtractBacklog() {
+        return backlog;
+    }
+
+    public Map<String, HostState> getHostStates() {
+        Map<String, HostState> states = new HashMap<>();
+        hosts.forEach((host, hostSupervisor) -> states.put(host, hostSupervisor.getState()));
+        return states;
     }
 
     @Override
@@ -196,29 +647,461 @@ public class WebCrawler implements AdvancedCrawler {
         isClosed = true;
         shutdownAndAwaitTermination(downloadPool);
         shutdownAndAwaitTermination(extractPool);
+        // Deferred downloads are rejected now, so their crawls do not wait for them
+        backlog.resumeAll();
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
         stoppablePhasers.stop();
+        shutdownAndAwaitTermination(streamDrivers);
+        metrics.close();
     }
 
-    private class HostSupervisor {
-        final Queue<Runnable> pending = new ArrayDeque<>();
-        int processed = 0;
+    private interface CrawlSink {
+        void downloaded(String url);
 
-        synchronized void addTask(Runnable task) {
-            if (processed != perHost) {
-                ++processed;
-                downloadPool.submit(task);
-            } else {
-                pending.add(task);
+        void failed(String url, IOException e);
+
+        boolean isCancelled();
+
+        /**
+         * Runs {@code download} now or once there is room for its outcome. Download that reports
+         * neither page nor error calls {@link #released()} instead.
+         */
+        default void schedule(Runnable download) {
+            download.run();
+        }
+
+        default void released() {
+        }
+    }
+
+    private static class ResultSink implements CrawlSink {
+        final Set<String> ok = ConcurrentHashMap.newKeySet();
+        final ConcurrentMap<String, IOException> bad = new ConcurrentHashMap<>();
+
+        @Override
+        public void downloaded(String url) {
+            ok.add(url);
+        }
+
+        @Override
+        public void failed(String url, IOException e) {
+            bad.put(url, e);
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return false;
+        }
+    }
+
+    // Every started download holds a slot of subscriber buffer until its event is consumed
+    private class PublishingSink implements CrawlSink {
+        final SubmissionPublisher<CrawlEvent> publisher = new SubmissionPublisher<>();
+        final Queue<Runnable> waiting = new ConcurrentLinkedQueue<>();
+        final AtomicInteger slots = new AtomicInteger();
+        volatile boolean isUnsubscribed;
+
+        void publish(CrawlEvent event) {
+            if (publisher.offer(event, null) < 0) {
+                released();
             }
         }
 
-        synchronized void nextTask() {
-            Runnable task = pending.poll();
-            if (task != null) {
-                downloadPool.submit(task);
-            } else {
-                --processed;
+        @Override
+        public void schedule(Runnable download) {
+            waiting.add(download);
+            startWaiting();
+        }
+
+        @Override
+        public void released() {
+            slots.decrementAndGet();
+            startWaiting();
+        }
+
+        // Same scheme as dispatch of LockFreeHostSupervisor, cancelled crawl starts downloads to drop them
+        private void startWaiting() {
+            while (!waiting.isEmpty()) {
+                int current = slots.get();
+                if (current >= publisher.getMaxBufferCapacity() && !isCancelled()) {
+                    return;
+                }
+                if (!slots.compareAndSet(current, current + 1)) {
+                    continue;
+                }
+                Runnable download = waiting.poll();
+                if (download == null) {
+                    slots.decrementAndGet();
+                    continue;
+                }
+                download.run();
+            }
+        }
+
+        @Override
+        public void downloaded(String url) {
+            publish(new CrawlEvent(url, null));
+        }
+
+        @Override
+        public void failed(String url, IOException e) {
+            publish(new CrawlEvent(url, e));
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return isClosed || isUnsubscribed || publisher.isClosed() || !publisher.hasSubscribers();
+        }
+
+        class DemandSubscriber implements Flow.Subscriber<CrawlEvent> {
+            final Flow.Subscriber<? super CrawlEvent> subscriber;
+
+            DemandSubscriber(Flow.Subscriber<? super CrawlEvent> subscriber) {
+                this.subscriber = subscriber;
+            }
+
+            @Override
+            public void onSubscribe(Flow.Subscription subscription) {
+                subscriber.onSubscribe(new Flow.Subscription() {
+                    @Override
+                    public void request(long n) {
+                        subscription.request(n);
+                    }
+
+                    @Override
+                    public void cancel() {
+                        isUnsubscribed = true;
+                        subscription.cancel();
+                        startWaiting();
+                    }
+                });
+            }
+
+            @Override
+            public void onNext(CrawlEvent item) {
+                try {
+                    subscriber.onNext(item);
+                } finally {
+                    released();
+                }
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+                subscriber.onError(throwable);
+            }
+
+            @Override
+            public void onComplete() {
+                subscriber.onComplete();
+            }
+        }
+    }
+
+    private class PipelinedCrawl {
+        final String root;
+        final int depth;
+        final long crawl;
+        final Predicate<String> hostPredicate;
+        final CrawlSink sink;
+        final BudgetTracker budget;
+        final VisitedSet visited = visitedSetFactory.get();
+        // Only pages which remaining depth may still grow
+        final ConcurrentMap<String, PageState> pages = new ConcurrentHashMap<>();
+        final PendingTasks pending = new PendingTasks();
+        // Pages with download or extraction in progress by their remaining depth
+        final AtomicIntegerArray running;
+        // Greatest remaining depth of a running page, later visits have smaller depth
+        volatile int maxRunning;
+
+        PipelinedCrawl(String root, int depth, long crawl, Predicate<String> hostPredicate, CrawlSink sink,
+                       BudgetTracker budget) {
+            this.root = root;
+            this.depth = depth;
+            this.crawl = crawl;
+            this.hostPredicate = hostPredicate;
+            this.sink = sink;
+            this.budget = budget;
+            running = new AtomicIntegerArray(depth + 1);
+            maxRunning = depth;
+        }
+
+        void run() {
+            visit(root, depth);
+            pending.awaitCompletion(budget);
+        }
+
+        boolean isCancelled() {
+            return sink.isCancelled() || budget != null && budget.isReached();
+        }
+
+        /**
+         * Page of the given depth is kept only if a later visit may raise it.
+         */
+        boolean isRaisable(int depth) {
+            return depth < maxRunning - 1;
+        }
+
+        /**
+         * Called when page of the given depth stops running. Running page is counted at every depth
+         * it has before it is discounted at the previous one, so scan from the top never misses it.
+         */
+        void stoppedAt(int depth) {
+            if (running.decrementAndGet(depth) == 0) {
+                lowerMaxRunning();
+            }
+        }
+
+        synchronized void lowerMaxRunning() {
+            int max = maxRunning;
+            while (max > 0 && running.get(max) == 0) {
+                max--;
             }
+            if (max < maxRunning) {
+                maxRunning = max;
+                pages.values().removeIf(PageState::drop);
+            }
+        }
+
+        void visit(String url, int depth) {
+            PageState state = pages.get(url);
+            if (state == null) {
+                PageState created = new PageState(url, depth);
+                state = pages.putIfAbsent(url, created);
+                if (state == null) {
+                    if (!visited.add(url)) {
+                        // Visited before and can not be raised anymore
+                        pages.remove(url, created);
+                        return;
+                    }
+                    if (!isRaisable(depth)) {
+                        created.drop();
+                        pages.remove(url, created);
+                    }
+                    addDownloadTask(created, depth);
+                    return;
+                }
+            }
+            state.raise(depth);
+        }
+
+        void visitAll(List<String> links, int depth) {
+            if (depth >= 1 && !isClosed && !isCancelled()) {
+                links.forEach(link -> visit(link, depth));
+            }
+        }
+
+        void addDownloadTask(PageState state, int depth) {
+            String url = state.url;
+            try {
+                String host = URLUtils.getHost(url);
+                if (!hostPredicate.test(host)) {
+                    return;
+                }
+                HostSupervisor hostSupervisor = getHostSupervisor(host);
+                pending.add();
+                state.started();
+                sink.schedule(() -> {
+                    try {
+                        submitDownload(hostSupervisor, host, url, depth, crawl, this::isCancelled, (page, error) -> {
+                            try {
+                                if (error != null) {
+                                    if (!admit(budget, null, () -> sink.failed(url, error))) {
+                                        sink.released();
+                                    }
+                                    state.stopped();
+                                } else if (page != null && admit(budget, page, () -> sink.downloaded(url))) {
+                                    state.downloaded(page);
+                                } else {
+                                    sink.released();
+                                    state.stopped();
+                                }
+                            } finally {
+                                pending.done();
+                            }
+                        });
+                    } catch (RejectedExecutionException e) {
+                        // Crawler is closed, so waiting downloads are started without slots
+                        state.stopped();
+                        pending.done();
+                    }
+                });
+            } catch (MalformedURLException e) {
+                sink.failed(url, e);
+            }
+        }
+
+        void addExtractTask(PageState state, Document page) {
+            pending.add();
+            metrics.extractionQueued();
+            backlog.add(page);
+            try {
+                extractPool.submit(() -> {
+                    if (isCancelled()) {
+                        metrics.extractionDropped();
+                        backlog.remove(page);
+                        state.stopped();
+                        pending.done();
+                        return;
+                    }
+                    List<String> links;
+                    try {
+                        links = extractLinks(state.url, page);
+                    } catch (IOException e) {
+                        links = List.of();
+                    } finally {
+                        backlog.remove(page);
+                    }
+                    try {
+                        state.extracted(links);
+                    } finally {
+                        pending.done();
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                metrics.extractionDropped();
+                backlog.remove(page);
+                state.stopped();
+                pending.done();
+            }
+        }
+
+        // Remaining depth of a page may only grow. Page and links are kept only while it still can.
+        private class PageState {
+            final String url;
+            int depth;
+            Document page;
+            List<String> links;
+            boolean isRunning;
+            boolean isExtracting;
+            boolean isDropped;
+
+            PageState(String url, int depth) {
+                this.url = url;
+                this.depth = depth;
+            }
+
+            synchronized void started() {
+                isRunning = true;
+                running.incrementAndGet(depth);
+            }
+
+            void stopped() {
+                int stoppedDepth;
+                synchronized (this) {
+                    isRunning = false;
+                    stoppedDepth = depth;
+                }
+                stoppedAt(stoppedDepth);
+            }
+
+            // Returns whether the page was dropped
+            synchronized boolean drop() {
+                if (isRaisable(depth)) {
+                    return false;
+                }
+                isDropped = true;
+                page = null;
+                links = null;
+                return true;
+            }
+
+            private boolean isKept() {
+                return !isDropped && isRaisable(depth);
+            }
+
+            void downloaded(Document page) {
+                boolean isLeaf;
+                synchronized (this) {
+                    isLeaf = depth <= 1;
+                    if (!isLeaf) {
+                        isExtracting = true;
+                    } else if (isKept()) {
+                        this.page = page;
+                    }
+                }
+                if (isLeaf) {
+                    stopped();
+                } else {
+                    addExtractTask(this, page);
+                }
+            }
+
+            void extracted(List<String> links) {
+                int extractedDepth;
+                synchronized (this) {
+                    extractedDepth = depth;
+                    if (isKept()) {
+                        this.links = links;
+                    }
+                }
+                try {
+                    visitAll(links, extractedDepth - 1);
+                } finally {
+                    stopped();
+                }
+            }
+
+            void raise(int newDepth) {
+                List<String> known;
+                Document toExtract = null;
+                int oldDepth;
+                boolean wasRunning;
+                synchronized (this) {
+                    if (newDepth <= depth) {
+                        return;
+                    }
+                    oldDepth = depth;
+                    wasRunning = isRunning;
+                    if (isRunning) {
+                        running.incrementAndGet(newDepth);
+                    }
+                    depth = newDepth;
+                    known = links;
+                    if (page != null && !isExtracting) {
+                        toExtract = page;
+                        page = null;
+                        isExtracting = true;
+                        isRunning = true;
+                        running.incrementAndGet(newDepth);
+                    }
+                    if (!isKept()) {
+                        isDropped = true;
+                        links = null;
+                        pages.remove(url, this);
+                    }
+                }
+                if (wasRunning) {
+                    stoppedAt(oldDepth);
+                }
+                if (toExtract != null) {
+                    addExtractTask(this, toExtract);
+                } else if (known != null) {
+                    visitAll(known, newDepth - 1);
+                }
+            }
+        }
+    }
+
+    private class PendingTasks {
+        final AtomicInteger count = new AtomicInteger(1);
+        final Phaser phaser = new Phaser(2);
+
+        void add() {
+            count.incrementAndGet();
+        }
+
+        void done() {
+            if (count.decrementAndGet() == 0) {
+                phaser.arrive();
+            }
+        }
+
+        void awaitCompletion(BudgetTracker budget) {
+            done();
+            arriveAndAwait(phaser, budget);
         }
     }
 
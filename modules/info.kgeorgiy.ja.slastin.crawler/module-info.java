@@ -1,6 +1,8 @@
 
 module info.kgeorgiy.ja.slastin.crawler {
     requires transitive info.kgeorgiy.java.advanced.crawler;
+    requires java.management;
+    requires java.net.http;
 
     exports info.kgeorgiy.ja.slastin.crawler;
 
@@ -0,0 +1,114 @@
+package test;
+
+import info.kgeorgiy.ja.slastin.crawler.BudgetedResult;
+import info.kgeorgiy.ja.slastin.crawler.CrawlBudget;
+import info.kgeorgiy.ja.slastin.crawler.CrawlOptions;
+import info.kgeorgiy.ja.slastin.crawler.HostState;
+import info.kgeorgiy.ja.slastin.crawler.WebCrawler;
+import info.kgeorgiy.java.advanced.crawler.Downloader;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntPredicate;
+import java.util.function.IntUnaryOperator;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Checks AIMD window of {@link CrawlOptions#withAdaptiveConcurrency}.
+ * Site is one host where the root page links to all others.
+ */
+public class AdaptiveConcurrencyTest {
+    private static final String HOST = "host.test";
+    private static final int PAGES = 100;
+    private static final int PER_HOST = 8;
+    private static final CrawlOptions OPTIONS = CrawlOptions.DEFAULT.withAdaptiveConcurrency(Duration.ofMillis(20));
+
+    private final AtomicInteger started = new AtomicInteger();
+    private final AtomicInteger active = new AtomicInteger();
+    // Most simultaneous downloads among the first ones
+    private final AtomicInteger initialActive = new AtomicInteger();
+
+    private static String url(int page) {
+        return "http://" + HOST + "/" + page;
+    }
+
+    private Downloader site(IntUnaryOperator delayMillis, IntPredicate fails) {
+        List<String> children = IntStream.rangeClosed(1, PAGES).mapToObj(AdaptiveConcurrencyTest::url)
+                .collect(Collectors.toList());
+        return url -> {
+            int page = Integer.parseInt(url.substring(url.lastIndexOf('/') + 1));
+            int current = active.incrementAndGet();
+            if (started.incrementAndGet() <= 1 + PER_HOST) {
+                initialActive.accumulateAndGet(current, Math::max);
+            }
+            try {
+                Thread.sleep(delayMillis.applyAsInt(page));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                active.decrementAndGet();
+            }
+            if (fails.test(page)) {
+                throw new IOException("Failed " + url);
+            }
+            return () -> page == 0 ? children : List.of();
+        };
+    }
+
+    // Crawl stopped by budget returns before its dropped downloads leave the host
+    private static HostState crawl(Downloader downloader, CrawlBudget budget) throws InterruptedException {
+        try (WebCrawler crawler = new WebCrawler(downloader, 2 * PER_HOST, 2, PER_HOST, OPTIONS)) {
+            BudgetedResult result = crawler.download(url(0), 2, budget);
+            Assert.assertFalse(result.getDownloaded().isEmpty());
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            while (true) {
+                HostState state = crawler.getHostStates().get(HOST);
+                if (state.getRunning() == 0 && state.getPending() == 0) {
+                    return state;
+                }
+                Assert.assertTrue(state.toString(), System.nanoTime() < deadline);
+                Thread.sleep(1);
+            }
+        }
+    }
+
+    // First children overlap, so all of them are running when the last one starts
+    private static int jitter(int page) {
+        return 1 <= page && page <= PER_HOST ? 40 : ThreadLocalRandom.current().nextInt(40) + 1;
+    }
+
+    @Test
+    public void test01_steady() throws InterruptedException {
+        // Single downloads slower than the threshold are usual for this host
+        HostState state = crawl(site(AdaptiveConcurrencyTest::jitter, page -> false), CrawlBudget.UNLIMITED);
+        Assert.assertEquals("Window starts at perHost", PER_HOST, initialActive.get());
+        Assert.assertEquals(state.toString(), PER_HOST, state.getWindow());
+    }
+
+    @Test
+    public void test02_slowdown() throws InterruptedException {
+        HostState state = crawl(site(page -> page <= PAGES / 2 ? 5 : 100, page -> false), CrawlBudget.UNLIMITED);
+        Assert.assertTrue(state.toString(), state.getWindow() < PER_HOST);
+    }
+
+    @Test
+    public void test03_failures() throws InterruptedException {
+        HostState state = crawl(site(AdaptiveConcurrencyTest::jitter, page -> page > 0), CrawlBudget.UNLIMITED);
+        Assert.assertTrue(state.toString(), state.getWindow() < PER_HOST);
+        Assert.assertTrue(state.toString(), state.getErrorRate() > 0);
+    }
+
+    @Test
+    public void test04_dropped() throws InterruptedException {
+        HostState state = crawl(site(page -> 5, page -> false), CrawlBudget.UNLIMITED.withMaxPages(10));
+        Assert.assertEquals("Dropped downloads are not failures: " + state, 0, state.getErrorRate(), 0);
+        Assert.assertEquals(state.toString(), PER_HOST, state.getWindow());
+    }
+}
@@ -0,0 +1,167 @@
+package test;
+
+import info.kgeorgiy.ja.slastin.crawler.CrawlMode;
+import info.kgeorgiy.ja.slastin.crawler.CrawlOptions;
+import info.kgeorgiy.ja.slastin.crawler.ExtractBacklog;
+import info.kgeorgiy.ja.slastin.crawler.HostState;
+import info.kgeorgiy.ja.slastin.crawler.SizedDocument;
+import info.kgeorgiy.ja.slastin.crawler.WebCrawler;
+import info.kgeorgiy.java.advanced.crawler.Document;
+import info.kgeorgiy.java.advanced.crawler.Downloader;
+import info.kgeorgiy.java.advanced.crawler.Result;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Checks that downloads wait for slow extraction once {@link ExtractBacklog} reaches its watermark.
+ * Site is a tree where every page links to ten children, pages are downloaded instantly.
+ * Pages of size unknown to the crawler weigh 16 KiB.
+ */
+public class BacklogTest {
+    private static final int DEPTH = 4;
+    private static final int PAGES = 1111;
+    private static final int PAGE_SIZE = 100;
+    private static final int DOWNLOADERS = 8;
+    private static final long EXTRACT_MILLIS = 5;
+    private static final int UNKNOWN_SIZE = 16 << 10;
+
+    private final AtomicReference<WebCrawler> crawler = new AtomicReference<>();
+    private final AtomicInteger maxDocuments = new AtomicInteger();
+
+    private static String url(int page) {
+        return "http://host" + page % 4 + ".test/" + page;
+    }
+
+    private void sample() {
+        WebCrawler current = crawler.get();
+        if (current != null) {
+            maxDocuments.accumulateAndGet(current.getExtractBacklog().getDocuments(), Math::max);
+        }
+    }
+
+    private static List<String> children(int page) {
+        return IntStream.rangeClosed(10 * page + 1, 10 * page + 10)
+                .mapToObj(BacklogTest::url).collect(Collectors.toList());
+    }
+
+    private Downloader tree(boolean isSized) {
+        return url -> {
+            sample();
+            int page = Integer.parseInt(url.substring(url.lastIndexOf('/') + 1));
+            Document document = () -> {
+                sample();
+                try {
+                    Thread.sleep(EXTRACT_MILLIS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return children(page);
+            };
+            if (!isSized) {
+                return document;
+            }
+            return new SizedDocument() {
+                @Override
+                public List<String> extractLinks() throws IOException {
+                    return document.extractLinks();
+                }
+
+                @Override
+                public long size() {
+                    return PAGE_SIZE;
+                }
+            };
+        };
+    }
+
+    private void crawl(CrawlOptions options, boolean isSized, int maxBacklog) {
+        for (CrawlMode mode : CrawlMode.values()) {
+            maxDocuments.set(0);
+            try (WebCrawler current = new WebCrawler(tree(isSized), DOWNLOADERS, 1, DOWNLOADERS,
+                    options.withMode(mode))) {
+                crawler.set(current);
+                Result result = current.download(url(0), DEPTH);
+                Assert.assertEquals(mode.toString(), PAGES, result.getDownloaded().size());
+                Assert.assertTrue(mode + ": backlog of " + maxDocuments.get(), maxDocuments.get() <= maxBacklog);
+                Assert.assertTrue(mode + ": downloads were not throttled",
+                        current.getExtractBacklog().getThrottledDownloads() > 0);
+                Assert.assertEquals(0, current.getExtractBacklog().getDocuments());
+                Assert.assertEquals(0, current.getExtractBacklog().getBytes());
+            }
+        }
+    }
+
+    @Test
+    public void test01_documents() {
+        crawl(CrawlOptions.DEFAULT.withExtractBacklog(5, 0), true, 5 + DOWNLOADERS);
+    }
+
+    @Test
+    public void test02_bytes() {
+        crawl(CrawlOptions.DEFAULT.withExtractBacklog(0, 3 * PAGE_SIZE), true, 3 + DOWNLOADERS);
+    }
+
+    @Test
+    public void test03_unlimited() {
+        maxDocuments.set(0);
+        try (WebCrawler current = new WebCrawler(tree(true), DOWNLOADERS, 1, DOWNLOADERS, CrawlOptions.DEFAULT)) {
+            crawler.set(current);
+            Assert.assertEquals(PAGES, current.download(url(0), DEPTH).getDownloaded().size());
+            Assert.assertEquals(0, current.getExtractBacklog().getThrottledDownloads());
+        }
+    }
+
+    @Test
+    public void test04_unsized() {
+        crawl(CrawlOptions.DEFAULT.withExtractBacklog(0, 3 * UNKNOWN_SIZE), false, 3 + DOWNLOADERS);
+    }
+
+    @Test
+    public void test05_hostPermits() throws InterruptedException {
+        // Root links to children of one host, extraction of the first child waits for release
+        for (CrawlMode mode : CrawlMode.values()) {
+            CountDownLatch release = new CountDownLatch(1);
+            Downloader downloader = url -> {
+                int page = Integer.parseInt(url.substring(url.lastIndexOf('/') + 1));
+                return () -> {
+                    try {
+                        if (page != 0) {
+                            release.await();
+                        }
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    return page == 0 ? IntStream.rangeClosed(1, 10).mapToObj(i -> "http://host.test/" + i)
+                            .collect(Collectors.toList()) : List.of();
+                };
+            };
+            CrawlOptions options = CrawlOptions.DEFAULT.withExtractBacklog(1, 0).withMode(mode);
+            try (WebCrawler current = new WebCrawler(downloader, DOWNLOADERS, 1, DOWNLOADERS, options)) {
+                AtomicReference<Result> result = new AtomicReference<>();
+                Thread crawl = new Thread(() -> result.set(current.download("http://host.test/0", 3)));
+                crawl.start();
+                long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+                // Every child is either waiting for extraction or deferred
+                ExtractBacklog backlog = current.getExtractBacklog();
+                while (backlog.getDocuments() + backlog.getThrottledDownloads() < 10) {
+                    Assert.assertTrue(mode + ": downloads are not deferred", System.nanoTime() < deadline);
+                    Thread.sleep(1);
+                }
+                HostState state = current.getHostStates().get("host.test");
+                Assert.assertEquals(mode + ": deferred downloads hold host permits: " + state, 0, state.getRunning());
+                release.countDown();
+                crawl.join();
+                Assert.assertEquals(mode.toString(), 11, result.get().getDownloaded().size());
+            }
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package test;
+
+import info.kgeorgiy.ja.slastin.crawler.BudgetedResult;
+import info.kgeorgiy.ja.slastin.crawler.CrawlBudget;
+import info.kgeorgiy.ja.slastin.crawler.CrawlMode;
+import info.kgeorgiy.ja.slastin.crawler.CrawlOptions;
+import info.kgeorgiy.ja.slastin.crawler.SizedDocument;
+import info.kgeorgiy.ja.slastin.crawler.WebCrawler;
+import info.kgeorgiy.java.advanced.crawler.Downloader;
+import info.kgeorgiy.java.advanced.crawler.Result;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Checks that crawls stop at every limit of {@link CrawlBudget} and return promptly.
+ * Site is a tree where every page links to ten children on four hosts.
+ */
+public class BudgetTest {
+    private static final int DEPTH = 4;
+    private static final int PAGES = 1111;
+    private static final int PAGE_SIZE = 100;
+
+    private static String url(int page) {
+        return "http://host" + page % 4 + ".test/" + page;
+    }
+
+    private static Downloader tree(long downloadMillis, long extractMillis) {
+        return url -> {
+            sleep(downloadMillis);
+            int page = Integer.parseInt(url.substring(url.lastIndexOf('/') + 1));
+            return new SizedDocument() {
+                @Override
+                public List<String> extractLinks() {
+                    sleep(extractMillis);
+                    return IntStream.rangeClosed(10 * page + 1, 10 * page + 10)
+                            .mapToObj(BudgetTest::url).collect(Collectors.toList());
+                }
+
+                @Override
+                public long size() {
+                    return PAGE_SIZE;
+                }
+            };
+        };
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static BudgetedResult crawl(Downloader downloader, CrawlMode mode, CrawlBudget budget, long maxMillis) {
+        try (WebCrawler crawler = new WebCrawler(downloader, 4, 4, 2, CrawlOptions.DEFAULT.withMode(mode))) {
+            long start = System.nanoTime();
+            BudgetedResult result = crawler.download(url(0), DEPTH, budget);
+            long elapsed = (System.nanoTime() - start) / 1_000_000;
+            Assert.assertTrue(mode + ": crawl took " + elapsed + "ms", elapsed < maxMillis);
+            return result;
+        }
+    }
+
+    private static int size(Result result) {
+        return result.getDownloaded().size() + result.getErrors().size();
+    }
+
+    @Test
+    public void test01_unlimited() {
+        for (CrawlMode mode : CrawlMode.values()) {
+            BudgetedResult result = crawl(tree(0, 0), mode, CrawlBudget.UNLIMITED.withMaxPages(PAGES + 1), 10_000);
+            Assert.assertNull(result.getReachedLimit());
+            Assert.assertEquals(PAGES, result.getDownloaded().size());
+        }
+    }
+
+    @Test
+    public void test02_pages() {
+        for (CrawlMode mode : CrawlMode.values()) {
+            BudgetedResult result = crawl(tree(20, 0), mode, CrawlBudget.UNLIMITED.withMaxPages(30), 2_000);
+            Assert.assertEquals(CrawlBudget.Limit.PAGES, result.getReachedLimit());
+            Assert.assertEquals(30, size(result));
+        }
+    }
+
+    @Test
+    public void test03_bytes() {
+        for (CrawlMode mode : CrawlMode.values()) {
+            BudgetedResult result = crawl(tree(20, 0), mode, CrawlBudget.UNLIMITED.withMaxBytes(20 * PAGE_SIZE), 2_000);
+            Assert.assertEquals(CrawlBudget.Limit.BYTES, result.getReachedLimit());
+            Assert.assertEquals(20, size(result));
+        }
+    }
+
+    @Test
+    public void test04_time() {
+        for (CrawlMode mode : CrawlMode.values()) {
+            BudgetedResult result = crawl(tree(50, 0), mode,
+                    CrawlBudget.UNLIMITED.withTimeLimit(Duration.ofMillis(500)), 1_000);
+            Assert.assertEquals(CrawlBudget.Limit.TIME, result.getReachedLimit());
+            Assert.assertTrue(size(result) > 0 && size(result) < PAGES);
+            Assert.assertEquals(size(result), new HashSet<>(result.getDownloaded()).size());
+        }
+    }
+
+    @Test
+    public void test05_abandonedExtraction() {
+        for (CrawlMode mode : CrawlMode.values()) {
+            BudgetedResult result = crawl(tree(0, 5_000), mode,
+                    CrawlBudget.UNLIMITED.withTimeLimit(Duration.ofMillis(300)), 2_000);
+            Assert.assertEquals(CrawlBudget.Limit.TIME, result.getReachedLimit());
+            Assert.assertEquals(List.of(url(0)), new ArrayList<>(result.getDownloaded()));
+        }
+    }
+
+    @Test
+    public void test06_options() {
+        CrawlOptions options = CrawlOptions.DEFAULT.withBudget(CrawlBudget.UNLIMITED.withMaxPages(5));
+        try (WebCrawler crawler = new WebCrawler(tree(0, 0), 4, 4, 2, options)) {
+            Result result = crawler.download(url(0), DEPTH);
+            Assert.assertTrue(result instanceof BudgetedResult);
+            Assert.assertEquals(5, size(result));
+        }
+    }
+}
@@ -0,0 +1,171 @@
+package test;
+
+import info.kgeorgiy.ja.slastin.crawler.BudgetedResult;
+import info.kgeorgiy.ja.slastin.crawler.CrawlBudget;
+import info.kgeorgiy.ja.slastin.crawler.CrawlOptions;
+import info.kgeorgiy.ja.slastin.crawler.WebCrawler;
+import info.kgeorgiy.java.advanced.crawler.Document;
+import info.kgeorgiy.java.advanced.crawler.Downloader;
+import info.kgeorgiy.java.advanced.crawler.Result;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.lang.ref.WeakReference;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Checks downloads shared by concurrent crawls of one {@link WebCrawler}, see
+ * {@link CrawlOptions#withRequestCoalescing}. All pages are on one host,
+ * download of page {@code /hold} blocks until released. Pages {@code /hold} and {@code /other}
+ * link to {@code /shared}, others link to themselves.
+ */
+public class CoalescingTest {
+    private static final String HOLD = "http://host.test/hold";
+    private static final String SHARED = "http://host.test/shared";
+    private static final String OTHER = "http://host.test/other";
+    private static final CrawlOptions OPTIONS = CrawlOptions.DEFAULT.withRequestCoalescing(true).withMetrics(true);
+
+    private final Map<String, AtomicInteger> downloads = new ConcurrentHashMap<>();
+    private final CountDownLatch holding = new CountDownLatch(1);
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final AtomicReference<WeakReference<Document>> shared = new AtomicReference<>();
+
+    private final Downloader downloader = url -> {
+        downloads.computeIfAbsent(url, u -> new AtomicInteger()).incrementAndGet();
+        if (url.equals(HOLD)) {
+            holding.countDown();
+            await(release);
+        }
+        // Captures URL, so every download creates a new document
+        Document document = () -> url.equals(HOLD) || url.equals(OTHER) ? List.of(SHARED) : List.of(url);
+        if (url.equals(SHARED)) {
+            shared.set(new WeakReference<>(document));
+        }
+        return document;
+    };
+
+    private static void await(CountDownLatch latch) {
+        try {
+            Assert.assertTrue(latch.await(10, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private int downloads(String url) {
+        AtomicInteger count = downloads.get(url);
+        return count == null ? 0 : count.get();
+    }
+
+    private static Thread crawl(WebCrawler crawler, String url, AtomicReference<Result> result) {
+        return crawl(crawler, url, 1, result);
+    }
+
+    private static Thread crawl(WebCrawler crawler, String url, int depth, AtomicReference<Result> result) {
+        Thread thread = new Thread(() -> result.set(crawler.download(url, depth)));
+        thread.start();
+        return thread;
+    }
+
+    private static void waitFor(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!condition.getAsBoolean()) {
+            Assert.assertTrue("Condition is not reached", System.nanoTime() < deadline);
+            Thread.sleep(1);
+        }
+    }
+
+    @Test
+    public void test01_coalescing() throws InterruptedException {
+        try (WebCrawler crawler = new WebCrawler(downloader, 2, 2, 1, OPTIONS)) {
+            AtomicReference<Result> hold = new AtomicReference<>();
+            Thread holder = crawl(crawler, HOLD, hold);
+            await(holding);
+            AtomicReference<Result> first = new AtomicReference<>();
+            AtomicReference<Result> second = new AtomicReference<>();
+            Thread firstCrawl = crawl(crawler, SHARED, first);
+            waitFor(() -> crawler.getMetrics().getPendingDownloads() == 1);
+            Thread secondCrawl = crawl(crawler, SHARED, second);
+            waitFor(() -> crawler.getMetrics().getCoalescedDownloads() == 1);
+            release.countDown();
+            for (Thread thread : List.of(holder, firstCrawl, secondCrawl)) {
+                thread.join();
+            }
+            Assert.assertEquals(List.of(SHARED), first.get().getDownloaded());
+            Assert.assertEquals(List.of(SHARED), second.get().getDownloaded());
+            Assert.assertEquals(1, downloads(SHARED));
+        }
+    }
+
+    @Test
+    public void test02_cancelledOwner() throws InterruptedException {
+        try (WebCrawler crawler = new WebCrawler(downloader, 2, 2, 1, OPTIONS)) {
+            AtomicReference<Result> hold = new AtomicReference<>();
+            Thread holder = crawl(crawler, HOLD, hold);
+            await(holding);
+            AtomicReference<BudgetedResult> owner = new AtomicReference<>();
+            Thread ownerCrawl = new Thread(() -> owner.set(crawler.download(SHARED, 1,
+                    CrawlBudget.UNLIMITED.withTimeLimit(Duration.ofMillis(500)))));
+            ownerCrawl.start();
+            waitFor(() -> crawler.getMetrics().getPendingDownloads() == 1);
+            AtomicReference<Result> joined = new AtomicReference<>();
+            Thread joinedCrawl = crawl(crawler, SHARED, joined);
+            waitFor(() -> crawler.getMetrics().getCoalescedDownloads() == 1);
+            // Owner gives up while its download waits for the host
+            ownerCrawl.join();
+            Assert.assertEquals(CrawlBudget.Limit.TIME, owner.get().getReachedLimit());
+            Assert.assertEquals(List.of(), owner.get().getDownloaded());
+            release.countDown();
+            holder.join();
+            joinedCrawl.join();
+            Assert.assertEquals("Joined crawl downloads page itself", List.of(SHARED), joined.get().getDownloaded());
+            Assert.assertEquals(1, downloads(SHARED));
+        }
+    }
+
+    @Test
+    public void test03_released() throws InterruptedException {
+        try (WebCrawler crawler = new WebCrawler(downloader, 2, 2, 2, OPTIONS)) {
+            AtomicReference<Result> hold = new AtomicReference<>();
+            Thread holder = crawl(crawler, HOLD, hold);
+            await(holding);
+            Assert.assertEquals(List.of(SHARED), crawler.download(SHARED, 1).getDownloaded());
+            System.gc();
+            Assert.assertNotNull("Page is kept for crawl that started before download", shared.get().get());
+            release.countDown();
+            holder.join();
+            waitFor(() -> {
+                System.gc();
+                return shared.get().get() == null;
+            });
+            Assert.assertEquals(List.of(SHARED), crawler.download(SHARED, 1).getDownloaded());
+            Assert.assertEquals("Crawl started after download gets a new page", 2, downloads(SHARED));
+        }
+    }
+
+    @Test
+    public void test04_staggered() throws InterruptedException {
+        try (WebCrawler crawler = new WebCrawler(downloader, 2, 2, 2, OPTIONS)) {
+            AtomicReference<Result> hold = new AtomicReference<>();
+            Thread holder = crawl(crawler, HOLD, 2, hold);
+            await(holding);
+            // Other crawl gets the shared page and finishes before the first one reaches it
+            Assert.assertEquals(Set.of(OTHER, SHARED), Set.copyOf(crawler.download(OTHER, 2).getDownloaded()));
+            release.countDown();
+            holder.join();
+            Assert.assertEquals(Set.of(HOLD, SHARED), Set.copyOf(hold.get().getDownloaded()));
+            for (String url : List.of(HOLD, OTHER, SHARED)) {
+                Assert.assertEquals(url, 1, downloads(url));
+            }
+        }
+    }
+}
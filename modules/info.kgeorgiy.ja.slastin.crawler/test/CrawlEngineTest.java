@@ -0,0 +1,69 @@
+package test;
+
+import info.kgeorgiy.ja.slastin.crawler.CrawlEngine;
+import info.kgeorgiy.ja.slastin.crawler.CrawlOptions;
+import info.kgeorgiy.ja.slastin.crawler.WebCrawler;
+import info.kgeorgiy.java.advanced.crawler.Document;
+import info.kgeorgiy.java.advanced.crawler.Downloader;
+import info.kgeorgiy.java.advanced.crawler.Result;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Checks both {@link CrawlEngine engines} and the fallback to platform threads before Java 21.
+ * Site is a tree where every page links to five children on three hosts.
+ */
+public class CrawlEngineTest {
+    private static final int DEPTH = 4;
+    private static final int PAGES = 156;
+    private static final int DOWNLOADERS = 3;
+
+    private final AtomicInteger running = new AtomicInteger();
+    private final AtomicInteger maxRunning = new AtomicInteger();
+
+    private static String url(int page) {
+        return "http://host" + page % 3 + ".test/" + page;
+    }
+
+    private Downloader tree() {
+        return url -> {
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(2);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                running.decrementAndGet();
+            }
+            int page = Integer.parseInt(url.substring(url.lastIndexOf('/') + 1));
+            return (Document) () -> IntStream.rangeClosed(5 * page + 1, 5 * page + 5)
+                    .mapToObj(CrawlEngineTest::url).collect(Collectors.toList());
+        };
+    }
+
+    private void crawl(CrawlEngine requested, CrawlEngine expected) {
+        CrawlOptions options = CrawlOptions.DEFAULT.withEngine(requested);
+        try (WebCrawler crawler = new WebCrawler(tree(), DOWNLOADERS, 2, DOWNLOADERS, options)) {
+            Assert.assertEquals(expected, crawler.getEngine());
+            Result result = crawler.download(url(0), DEPTH);
+            Assert.assertEquals(PAGES, result.getDownloaded().size());
+        }
+        Assert.assertTrue("Too many downloads at once: " + maxRunning.get(), maxRunning.get() <= DOWNLOADERS);
+    }
+
+    @Test
+    public void test01_platform() {
+        crawl(CrawlEngine.PLATFORM_THREADS, CrawlEngine.PLATFORM_THREADS);
+    }
+
+    @Test
+    public void test02_virtual() {
+        crawl(CrawlEngine.VIRTUAL_THREADS, Runtime.version().feature() >= 21
+                ? CrawlEngine.VIRTUAL_THREADS
+                : CrawlEngine.PLATFORM_THREADS);
+    }
+}
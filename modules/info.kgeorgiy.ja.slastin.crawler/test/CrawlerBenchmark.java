@@ -0,0 +1,185 @@
+package test;
+
+import info.kgeorgiy.ja.slastin.crawler.CrawlMode;
+import info.kgeorgiy.ja.slastin.crawler.CrawlOptions;
+import info.kgeorgiy.ja.slastin.crawler.WebCrawler;
+import info.kgeorgiy.java.advanced.crawler.Document;
+import info.kgeorgiy.java.advanced.crawler.Downloader;
+import info.kgeorgiy.java.advanced.crawler.ReplayDownloader;
+import info.kgeorgiy.java.advanced.crawler.Result;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Crawls replay corpora with {@link WebCrawler} for every combination of parameters and prints
+ * pages per second, time to the first downloaded page and allocation rate.
+ * <p>
+ * Usage: {@code CrawlerBenchmark [name=value[,value...]]...}, see {@link #DEFAULTS} for names.
+ * Every combination is crawled {@code warmup} times without measurement, then {@code iterations} times.
+ */
+public class CrawlerBenchmark {
+    private static final Map<String, String> CORPORA = new LinkedHashMap<>();
+
+    static {
+        CORPORA.put("itmo.ru", "https://itmo.ru");
+        CORPORA.put("en.itmo.ru", "https://en.itmo.ru/en/page/50/Partnership.htm");
+        CORPORA.put("nerc.itmo.ru", "http://nerc.itmo.ru/subregions/index.html");
+        CORPORA.put("de.ifmo.ru", "https://de.ifmo.ru/");
+        CORPORA.put("www.kgeorgiy.info", "http://www.kgeorgiy.info");
+    }
+
+    private static final Map<String, String> DEFAULTS = new LinkedHashMap<>();
+
+    static {
+        DEFAULTS.put("corpus", String.join(",", CORPORA.keySet()));
+        DEFAULTS.put("mode", "LEVEL_SYNCHRONOUS,PIPELINED");
+        DEFAULTS.put("depth", "2,3");
+        DEFAULTS.put("downloaders", "10");
+        DEFAULTS.put("extractors", "10");
+        DEFAULTS.put("perHost", "10");
+        DEFAULTS.put("downloadDelay", "10");
+        DEFAULTS.put("extractDelay", "10");
+        DEFAULTS.put("warmup", "1");
+        DEFAULTS.put("iterations", "3");
+    }
+
+    private static final PrintStream OUT = System.out;
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+    public static void main(String[] args) throws IOException {
+        Map<String, List<String>> params = new LinkedHashMap<>();
+        DEFAULTS.forEach((name, values) -> params.put(name, List.of(values.split(","))));
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (eq < 0 || !DEFAULTS.containsKey(arg.substring(0, eq))) {
+                System.err.println("Expected name=value[,value...], names: " + DEFAULTS.keySet());
+                return;
+            }
+            params.put(arg.substring(0, eq), List.of(arg.substring(eq + 1).split(",")));
+        }
+        int warmup = Integer.parseInt(params.get("warmup").get(0));
+        int iterations = Integer.parseInt(params.get("iterations").get(0));
+
+        OUT.format("%-18s %-17s %5s %4s %4s %4s %4s %4s %6s %10s %10s %10s %10s%n",
+                "corpus", "mode", "depth", "dl", "ex", "host", "dd", "ed",
+                "pages", "pages/s", "stddev", "first ms", "alloc MB/s");
+        // ReplayDownloader reports progress to System.out
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        for (List<String> combination : product(new ArrayList<>(params.values()).subList(0, 8))) {
+            Function<Integer, Integer> arg = i -> Integer.parseInt(combination.get(i));
+            Benchmark benchmark = new Benchmark(combination.get(0), CrawlMode.valueOf(combination.get(1)),
+                    arg.apply(2), arg.apply(3), arg.apply(4), arg.apply(5), arg.apply(6), arg.apply(7));
+            for (int i = 0; i < warmup; i++) {
+                benchmark.run();
+            }
+            List<Measurement> measurements = new ArrayList<>();
+            for (int i = 0; i < iterations; i++) {
+                measurements.add(benchmark.run());
+            }
+            benchmark.print(measurements);
+        }
+        System.setOut(OUT);
+    }
+
+    private static List<List<String>> product(List<List<String>> lists) {
+        List<List<String>> result = List.of(List.of());
+        for (List<String> values : lists) {
+            List<List<String>> next = new ArrayList<>();
+            for (List<String> prefix : result) {
+                for (String value : values) {
+                    List<String> combination = new ArrayList<>(prefix);
+                    combination.add(value);
+                    next.add(combination);
+                }
+            }
+            result = next;
+        }
+        return result;
+    }
+
+    private static long allocatedBytes() {
+        if (!(THREADS instanceof com.sun.management.ThreadMXBean)) {
+            return 0;
+        }
+        long[] allocated = ((com.sun.management.ThreadMXBean) THREADS).getThreadAllocatedBytes(THREADS.getAllThreadIds());
+        return Arrays.stream(allocated).filter(bytes -> bytes > 0).sum();
+    }
+
+    private static class Measurement {
+        final int pages;
+        final long elapsed;
+        final long firstResult;
+        final long allocated;
+
+        Measurement(int pages, long elapsed, long firstResult, long allocated) {
+            this.pages = pages;
+            this.elapsed = elapsed;
+            this.firstResult = firstResult;
+            this.allocated = allocated;
+        }
+    }
+
+    private static class Benchmark {
+        final String corpus;
+        final CrawlMode mode;
+        final int depth, downloaders, extractors, perHost, downloadDelay, extractDelay;
+
+        Benchmark(String corpus, CrawlMode mode, int depth, int downloaders, int extractors, int perHost,
+                  int downloadDelay, int extractDelay) {
+            this.corpus = corpus;
+            this.mode = mode;
+            this.depth = depth;
+            this.downloaders = downloaders;
+            this.extractors = extractors;
+            this.perHost = perHost;
+            this.downloadDelay = downloadDelay;
+            this.extractDelay = extractDelay;
+        }
+
+        Measurement run() throws IOException {
+            String url = CORPORA.get(corpus);
+            if (url == null) {
+                throw new IllegalArgumentException("Unknown corpus " + corpus);
+            }
+            // Replay downloader forbids downloading a page twice, so every run needs a new one
+            ReplayDownloader replay = new ReplayDownloader(url, downloadDelay, extractDelay);
+            AtomicLong firstResult = new AtomicLong();
+            Downloader downloader = page -> {
+                Document document = replay.download(page);
+                firstResult.compareAndSet(0, System.nanoTime());
+                return document;
+            };
+            CrawlOptions options = CrawlOptions.DEFAULT.withMode(mode);
+            try (WebCrawler crawler = new WebCrawler(downloader, downloaders, extractors, perHost, options)) {
+                long allocated = allocatedBytes();
+                long start = System.nanoTime();
+                Result result = crawler.download(url, depth);
+                long elapsed = System.nanoTime() - start;
+                // Pool threads are still alive, so their allocations are counted
+                allocated = allocatedBytes() - allocated;
+                long first = firstResult.get() == 0 ? elapsed : firstResult.get() - start;
+                return new Measurement(result.getDownloaded().size() + result.getErrors().size(), elapsed, first, allocated);
+            }
+        }
+
+        void print(List<Measurement> measurements) {
+            double[] rates = measurements.stream().mapToDouble(m -> m.pages * 1e9 / m.elapsed).toArray();
+            double mean = Arrays.stream(rates).average().orElse(0);
+            double deviation = Math.sqrt(Arrays.stream(rates).map(rate -> (rate - mean) * (rate - mean)).sum()
+                    / Math.max(1, rates.length - 1));
+            double first = measurements.stream().mapToLong(m -> m.firstResult).average().orElse(0) / 1e6;
+            double allocation = measurements.stream().mapToDouble(m -> m.allocated * 1e9 / m.elapsed / (1 << 20))
+                    .average().orElse(0);
+            OUT.format("%-18s %-17s %5d %4d %4d %4d %4d %4d %6d %10.1f %10.1f %10.2f %10.1f%n",
+                    corpus, mode, depth, downloaders, extractors, perHost, downloadDelay, extractDelay,
+                    measurements.get(0).pages, mean, deviation, first, allocation);
+        }
+    }
+}
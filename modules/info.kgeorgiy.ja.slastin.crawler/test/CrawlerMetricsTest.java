@@ -0,0 +1,96 @@
+package test;
+
+import info.kgeorgiy.ja.slastin.crawler.CrawlOptions;
+import info.kgeorgiy.ja.slastin.crawler.CrawlerMetricsMXBean;
+import info.kgeorgiy.ja.slastin.crawler.WebCrawler;
+import info.kgeorgiy.java.advanced.crawler.Document;
+import info.kgeorgiy.java.advanced.crawler.Downloader;
+import info.kgeorgiy.java.advanced.crawler.Result;
+import org.junit.Assert;
+import org.junit.Test;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Checks counters of {@link CrawlerMetricsMXBean} and registration of crawler and host beans.
+ * Site is a tree where every page links to ten children on four hosts, every seventh page fails.
+ */
+public class CrawlerMetricsTest {
+    private static final int DEPTH = 3;
+    private static final String DOMAIN = "info.kgeorgiy.ja.slastin.crawler";
+
+    private static String url(int page) {
+        return "http://host" + page % 4 + ".test/" + page;
+    }
+
+    private static Downloader tree() {
+        return url -> {
+            int page = Integer.parseInt(url.substring(url.lastIndexOf('/') + 1));
+            if (page % 7 == 6) {
+                throw new IOException("Page " + page);
+            }
+            return (Document) () -> IntStream.rangeClosed(10 * page + 1, 10 * page + 10)
+                    .mapToObj(CrawlerMetricsTest::url).collect(Collectors.toList());
+        };
+    }
+
+    private static long pages(Result result) {
+        return result.getDownloaded().size() + result.getErrors().size();
+    }
+
+    private static Set<ObjectName> beans(String name) throws JMException {
+        return ManagementFactory.getPlatformMBeanServer()
+                .queryNames(new ObjectName(DOMAIN + ":crawler=" + ObjectName.quote(name) + ",*"), null);
+    }
+
+    @Test
+    public void test01_counters() {
+        try (WebCrawler crawler = new WebCrawler(tree(), 4, 4, 2, CrawlOptions.DEFAULT.withMetrics(true))) {
+            Result result = crawler.download(url(0), DEPTH);
+            CrawlerMetricsMXBean metrics = crawler.getMetrics();
+            Assert.assertEquals(pages(result), metrics.getDownloads());
+            Assert.assertEquals(result.getErrors().size(), metrics.getErrors());
+            Assert.assertEquals(Long.valueOf(result.getErrors().size()),
+                    metrics.getErrorCounts().get(IOException.class.getName()));
+            Assert.assertEquals(0, metrics.getActiveCrawls());
+            Assert.assertEquals(0, metrics.getUnfinishedTasks());
+            Assert.assertEquals(0, metrics.getRunningDownloads());
+        }
+    }
+
+    @Test
+    public void test02_disabled() {
+        try (WebCrawler crawler = new WebCrawler(tree(), 4, 4, 2, CrawlOptions.DEFAULT)) {
+            crawler.download(url(0), DEPTH);
+            Assert.assertEquals(0, crawler.getMetrics().getDownloads());
+        }
+    }
+
+    @Test
+    public void test03_registration() throws JMException {
+        String name = "metrics-test";
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName crawlerName = new ObjectName(DOMAIN + ":type=WebCrawler,name=" + ObjectName.quote(name));
+        try (WebCrawler crawler = new WebCrawler(tree(), 4, 4, 2, CrawlOptions.DEFAULT.withMetricsName(name))) {
+            Assert.assertTrue(server.isRegistered(crawlerName));
+            long pages = pages(crawler.download(url(0), DEPTH));
+            Assert.assertEquals(pages, server.getAttribute(crawlerName, "Downloads"));
+            Set<ObjectName> hosts = beans(name);
+            Assert.assertEquals(4, hosts.size());
+            long downloads = 0;
+            for (ObjectName host : hosts) {
+                downloads += (Long) server.getAttribute(host, "Downloads");
+            }
+            Assert.assertEquals(pages, downloads);
+        }
+        Assert.assertFalse(server.isRegistered(crawlerName));
+        Assert.assertEquals(Set.of(), beans(name));
+    }
+}
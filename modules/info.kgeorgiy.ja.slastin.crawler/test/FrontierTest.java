@@ -0,0 +1,70 @@
+package test;
+
+import info.kgeorgiy.ja.slastin.crawler.CrawlMode;
+import info.kgeorgiy.ja.slastin.crawler.CrawlOptions;
+import info.kgeorgiy.ja.slastin.crawler.UrlScorer;
+import info.kgeorgiy.ja.slastin.crawler.WebCrawler;
+import info.kgeorgiy.java.advanced.crawler.Document;
+import info.kgeorgiy.java.advanced.crawler.Downloader;
+import info.kgeorgiy.java.advanced.crawler.Result;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.*;
+import java.util.regex.Pattern;
+
+/**
+ * Checks order of downloads chosen by priority frontier with a single download thread.
+ */
+public class FrontierTest {
+    private static final UrlScorer IMPORTANT = UrlScorer.matching(Pattern.compile("important"), 10);
+
+    @Test
+    public void test01_order() {
+        Map<String, List<String>> links = Map.of(
+                "http://a/", List.of("http://a/x1", "http://a/x2", "http://a/important",
+                        "http://b/x1", "http://b/important", "http://c/x1"));
+        for (CrawlMode mode : CrawlMode.values()) {
+            // First page of a level starts before the rest are known
+            List<String> order = crawl(links, "http://a/", 2, "http://a/x1", IMPORTANT, mode);
+            Assert.assertEquals(mode.toString(), List.of(
+                    "http://a/", "http://a/x1",
+                    // Every host in turn, better pages first
+                    "http://b/important", "http://c/x1", "http://a/important",
+                    "http://b/x1", "http://a/x2"
+            ), order);
+        }
+    }
+
+    private static List<String> crawl(Map<String, List<String>> links, String root, int depth, String slow,
+                                      UrlScorer scorer, CrawlMode mode) {
+        List<String> order = Collections.synchronizedList(new ArrayList<>());
+        Downloader downloader = url -> {
+            order.add(url);
+            if (url.equals(slow)) {
+                sleep(200);
+            }
+            return () -> {
+                if (url.equals(root)) {
+                    // Download thread finishes the root before its links are known
+                    sleep(100);
+                }
+                return links.getOrDefault(url, List.of());
+            };
+        };
+        CrawlOptions options = CrawlOptions.DEFAULT.withMode(mode).withFrontier(scorer);
+        try (WebCrawler crawler = new WebCrawler(downloader, 1, 1, 10, options)) {
+            Result result = crawler.download(root, depth);
+            Assert.assertEquals(order.size(), result.getDownloaded().size());
+        }
+        return order;
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package test;
+
+import info.kgeorgiy.ja.slastin.crawler.CrawlMode;
+import info.kgeorgiy.ja.slastin.crawler.CrawlOptions;
+import info.kgeorgiy.ja.slastin.crawler.WebCrawler;
+import info.kgeorgiy.java.advanced.crawler.Document;
+import info.kgeorgiy.java.advanced.crawler.Downloader;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeSet;
+
+/**
+ * Compares lock-free and synchronized per-host scheduling on instant downloads from one host,
+ * so that crawl time is dominated by scheduling. Pipelined mode is used, since one level of
+ * level-synchronous crawl is limited by the number of phaser parties.
+ * <p>
+ * Usage: {@code HostSchedulingBenchmark [pages [iterations]]}.
+ */
+public class HostSchedulingBenchmark {
+    public static void main(String[] args) {
+        int pages = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+        int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        List<String> links = new ArrayList<>(pages);
+        for (int i = 1; i < pages; i++) {
+            links.add("http://host.test/" + i);
+        }
+        Downloader downloader = url -> url.endsWith("/0") ? (Document) () -> links : List::of;
+
+        System.out.format("%-8s %8s %15s %15s%n", "threads", "perHost", "lock-free p/s", "synchronized p/s");
+        int processors = Runtime.getRuntime().availableProcessors();
+        for (int threads : new TreeSet<>(List.of(1, 2, processors, 4 * processors))) {
+            double lockFree = 0;
+            double synchronizedRate = 0;
+            for (int i = 0; i < iterations + 1; i++) {
+                double lockFreeRun = run(downloader, threads, pages, true);
+                double synchronizedRun = run(downloader, threads, pages, false);
+                // The first iteration is warmup
+                if (i > 0) {
+                    lockFree += lockFreeRun / iterations;
+                    synchronizedRate += synchronizedRun / iterations;
+                }
+            }
+            System.out.format("%-8d %8d %15.0f %15.0f%n", threads, threads, lockFree, synchronizedRate);
+        }
+    }
+
+    private static double run(Downloader downloader, int threads, int pages, boolean lockFree) {
+        CrawlOptions options = CrawlOptions.DEFAULT.withMode(CrawlMode.PIPELINED).withLockFreeScheduling(lockFree);
+        try (WebCrawler crawler = new WebCrawler(downloader, threads, 1, threads, options)) {
+            long start = System.nanoTime();
+            crawler.download("http://host.test/0", 2);
+            return pages * 1e9 / (System.nanoTime() - start);
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package test;
+
+import info.kgeorgiy.ja.slastin.crawler.CrawlMode;
+import info.kgeorgiy.ja.slastin.crawler.CrawlOptions;
+import info.kgeorgiy.ja.slastin.crawler.UrlScorer;
+import info.kgeorgiy.ja.slastin.crawler.WebCrawler;
+import info.kgeorgiy.java.advanced.crawler.Document;
+import info.kgeorgiy.java.advanced.crawler.Downloader;
+import info.kgeorgiy.java.advanced.crawler.Result;
+import info.kgeorgiy.java.advanced.crawler.URLUtils;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Stress test of per-host scheduling: instant downloads from few hosts maximize contention.
+ * Lost wakeup hangs the crawl and fails by timeout.
+ */
+public class HostSchedulingTest {
+    private static final int HOSTS = 4;
+    private static final int PAGES = 500;
+    private static final int ITERATIONS = 20;
+
+    @Test(timeout = 60_000)
+    public void test01_lockFree() throws IOException {
+        test(CrawlOptions.DEFAULT.withLockFreeScheduling(true));
+    }
+
+    @Test(timeout = 60_000)
+    public void test02_synchronized() throws IOException {
+        test(CrawlOptions.DEFAULT.withLockFreeScheduling(false));
+    }
+
+    @Test(timeout = 60_000)
+    public void test03_frontier() throws IOException {
+        test(CrawlOptions.DEFAULT.withFrontier(UrlScorer.DEPTH));
+    }
+
+    private static void test(CrawlOptions options) throws IOException {
+        for (CrawlMode mode : CrawlMode.values()) {
+            for (int perHost : new int[]{1, 3, 16}) {
+                for (int i = 0; i < ITERATIONS; i++) {
+                    StressDownloader downloader = new StressDownloader(perHost, i);
+                    try (WebCrawler crawler = new WebCrawler(downloader, 16, 4, perHost, options.withMode(mode))) {
+                        Result result = crawler.download(StressDownloader.url(0, 0), 3);
+                        Assert.assertEquals(mode + " " + perHost, HOSTS * PAGES, result.getDownloaded().size());
+                    }
+                    Assert.assertEquals("Too many downloads from one host", 0, downloader.violations.get());
+                    Assert.assertEquals("Duplicate downloads", 0, downloader.duplicates.get());
+                }
+            }
+        }
+    }
+
+    private static class StressDownloader implements Downloader {
+        final int perHost;
+        final List<List<String>> links = new ArrayList<>();
+        final ConcurrentMap<String, AtomicInteger> active = new ConcurrentHashMap<>();
+        final ConcurrentMap<String, Boolean> downloaded = new ConcurrentHashMap<>();
+        final AtomicInteger violations = new AtomicInteger();
+        final AtomicInteger duplicates = new AtomicInteger();
+
+        StressDownloader(int perHost, long seed) {
+            this.perHost = perHost;
+            Random random = new Random(seed);
+            for (int page = 0; page < HOSTS * PAGES; page++) {
+                List<String> pageLinks = new ArrayList<>();
+                for (int i = page == 0 ? 0 : 5; i > 0; i--) {
+                    pageLinks.add(url(random.nextInt(HOSTS), random.nextInt(PAGES)));
+                }
+                links.add(pageLinks);
+            }
+            for (int page = 1; page < HOSTS * PAGES; page++) {
+                links.get(0).add(url(page % HOSTS, page / HOSTS));
+            }
+        }
+
+        static String url(int host, int page) {
+            return "http://host" + host + ".test/" + page;
+        }
+
+        @Override
+        public Document download(String url) throws IOException {
+            if (downloaded.putIfAbsent(url, true) != null) {
+                duplicates.incrementAndGet();
+            }
+            AtomicInteger counter = active.computeIfAbsent(URLUtils.getHost(url), host -> new AtomicInteger());
+            if (counter.incrementAndGet() > perHost) {
+                violations.incrementAndGet();
+            }
+            if (ThreadLocalRandom.current().nextInt(8) == 0) {
+                Thread.yield();
+            }
+            counter.decrementAndGet();
+            String[] parts = url.substring("http://host".length()).split("\\.test/");
+            List<String> pageLinks = links.get(Integer.parseInt(parts[1]) * HOSTS + Integer.parseInt(parts[0]));
+            return () -> pageLinks;
+        }
+    }
+}
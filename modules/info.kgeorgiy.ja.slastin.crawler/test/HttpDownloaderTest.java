@@ -0,0 +1,161 @@
+package test;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import info.kgeorgiy.ja.slastin.crawler.CrawlMode;
+import info.kgeorgiy.ja.slastin.crawler.CrawlOptions;
+import info.kgeorgiy.ja.slastin.crawler.HttpDownloader;
+import info.kgeorgiy.ja.slastin.crawler.LinkExtractor;
+import info.kgeorgiy.ja.slastin.crawler.WebCrawler;
+import info.kgeorgiy.java.advanced.crawler.Result;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Checks {@link HttpDownloader} and {@link WebCrawler} on top of it against a local HTTP server.
+ * Server is reachable by two host names, {@code localhost} and {@code 127.0.0.1}.
+ */
+public class HttpDownloaderTest {
+    private static final int PAGES = 30;
+    private static final long DELAY_MILLIS = 200;
+
+    private final ExecutorService serverPool = Executors.newCachedThreadPool();
+    private final Map<String, AtomicInteger> running = new ConcurrentHashMap<>();
+    private final Map<String, AtomicInteger> maxRunning = new ConcurrentHashMap<>();
+    private HttpServer server;
+    private int port;
+
+    @Before
+    public void start() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/", this::handle);
+        server.setExecutor(serverPool);
+        server.start();
+        port = server.getAddress().getPort();
+    }
+
+    @After
+    public void stop() {
+        server.stop(0);
+        serverPool.shutdownNow();
+    }
+
+    private String url(String host, int page) {
+        return "http://" + host + ":" + port + "/" + page;
+    }
+
+    // Page 0 links to every page on both hosts, other pages link back and to a missing page
+    private void handle(HttpExchange exchange) throws IOException {
+        String host = exchange.getRequestHeaders().getFirst("Host");
+        AtomicInteger current = running.computeIfAbsent(host, h -> new AtomicInteger());
+        int now = current.incrementAndGet();
+        maxRunning.computeIfAbsent(host, h -> new AtomicInteger()).accumulateAndGet(now, Math::max);
+        try {
+            Thread.sleep(DELAY_MILLIS);
+            String path = exchange.getRequestURI().getPath();
+            if (path.equals("/missing")) {
+                exchange.sendResponseHeaders(404, -1);
+                return;
+            }
+            String body = path.equals("/0")
+                    ? IntStream.range(1, PAGES)
+                    .mapToObj(i -> "<a href='" + url(i % 2 == 0 ? "localhost" : "127.0.0.1", i) + "'>" + i + "</a>")
+                    .collect(Collectors.joining())
+                    : "<a href='/0'>root</a><a href='/missing'>missing</a>";
+            byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, bytes.length);
+            try (OutputStream os = exchange.getResponseBody()) {
+                os.write(bytes);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            current.decrementAndGet();
+            exchange.close();
+        }
+    }
+
+    @Test
+    public void test01_download() throws IOException {
+        try (HttpDownloader downloader = new HttpDownloader(2)) {
+            Assert.assertEquals(PAGES - 1, downloader.download(url("localhost", 0)).extractLinks().size());
+            Assert.assertEquals(List.of(url("localhost", 0), url("localhost", 0).replace("/0", "/missing")),
+                    downloader.download(url("localhost", 1)).extractLinks());
+            try {
+                downloader.download(url("localhost", 0).replace("/0", "/missing"));
+                Assert.fail("Error expected");
+            } catch (FileNotFoundException ignored) {
+            }
+        }
+    }
+
+    @Test
+    public void test02_perHost() {
+        try (HttpDownloader downloader = new HttpDownloader(3, LinkExtractor.STREAMING, Duration.ofSeconds(10))) {
+            List<String> urls = IntStream.range(1, 13).mapToObj(i -> url(i % 2 == 0 ? "localhost" : "127.0.0.1", i))
+                    .collect(Collectors.toList());
+            urls.stream().map(downloader::downloadAsync).collect(Collectors.toList()).forEach(future -> {
+                try {
+                    future.join().extractLinks();
+                } catch (IOException e) {
+                    throw new AssertionError(e);
+                }
+            });
+            Assert.assertEquals(Set.of("localhost:" + port, "127.0.0.1:" + port), maxRunning.keySet());
+            maxRunning.values().forEach(max -> Assert.assertEquals("Streams per host", 3, max.get()));
+        }
+    }
+
+    @Test
+    public void test03_crawl() {
+        for (CrawlMode mode : CrawlMode.values()) {
+            maxRunning.clear();
+            try (HttpDownloader downloader = new HttpDownloader(100);
+                 WebCrawler crawler = new WebCrawler(downloader, 100, 4, 10, CrawlOptions.DEFAULT.withMode(mode))) {
+                long start = System.nanoTime();
+                Result result = crawler.download(url("localhost", 0), 3);
+                long elapsed = (System.nanoTime() - start) / 1_000_000;
+
+                Set<String> expected = new HashSet<>();
+                for (int i = 0; i < PAGES; i++) {
+                    expected.add(url(i % 2 == 0 ? "localhost" : "127.0.0.1", i));
+                }
+                expected.add(url("127.0.0.1", 0));
+                Assert.assertEquals(mode.toString(), expected, new HashSet<>(result.getDownloaded()));
+                Assert.assertEquals(Set.of(url("localhost", 0).replace("/0", "/missing"),
+                                url("127.0.0.1", 0).replace("/0", "/missing")),
+                        result.getErrors().keySet());
+                maxRunning.values().forEach(max -> Assert.assertTrue("Crawler perHost", max.get() <= 10));
+                // Three levels of 200ms downloads, every level is downloaded by 10 simultaneous requests per host
+                Assert.assertTrue(mode + ": downloads are not simultaneous, " + elapsed + "ms", elapsed < 12 * DELAY_MILLIS);
+            }
+        }
+    }
+
+    @Test
+    public void test04_closed() throws InterruptedException, TimeoutException {
+        HttpDownloader downloader = new HttpDownloader(2);
+        downloader.close();
+        try {
+            downloader.downloadAsync(url("localhost", 1)).get(10, TimeUnit.SECONDS);
+            Assert.fail("Closed downloader should fail");
+        } catch (ExecutionException e) {
+            Assert.assertTrue(e.getCause() instanceof IOException);
+        }
+    }
+}
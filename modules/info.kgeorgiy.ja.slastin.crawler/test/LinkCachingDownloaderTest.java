@@ -0,0 +1,170 @@
+package test;
+
+import info.kgeorgiy.ja.slastin.crawler.LinkCachingDownloader;
+import info.kgeorgiy.ja.slastin.crawler.SizedDocument;
+import info.kgeorgiy.java.advanced.crawler.Document;
+import info.kgeorgiy.java.advanced.crawler.Downloader;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Checks hits, coalescing, weights, eviction and error expiry of {@link LinkCachingDownloader}.
+ */
+public class LinkCachingDownloaderTest {
+    private static final int DOCUMENT_SIZE = 10_000;
+
+    private final Map<String, AtomicInteger> downloads = new ConcurrentHashMap<>();
+    private final AtomicInteger extractions = new AtomicInteger();
+
+    private int downloads(String url) {
+        AtomicInteger count = downloads.get(url);
+        return count == null ? 0 : count.get();
+    }
+
+    // Every page links to itself, pages under /fail/ fail
+    private Downloader pages(CountDownLatch started, CountDownLatch release) {
+        return url -> {
+            downloads.computeIfAbsent(url, u -> new AtomicInteger()).incrementAndGet();
+            started.countDown();
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            if (url.contains("/fail/")) {
+                throw new IOException("Failed " + url);
+            }
+            return new SizedDocument() {
+                @Override
+                public List<String> extractLinks() {
+                    extractions.incrementAndGet();
+                    return List.of(url);
+                }
+
+                @Override
+                public long size() {
+                    return DOCUMENT_SIZE;
+                }
+            };
+        };
+    }
+
+    private Downloader pages() {
+        return pages(new CountDownLatch(0), new CountDownLatch(0));
+    }
+
+    // Same segment choice as the cache
+    private static int segment(String url) {
+        int hash = url.hashCode();
+        return (hash ^ (hash >>> 16)) & 15;
+    }
+
+    @Test
+    public void test01_hits() throws IOException {
+        LinkCachingDownloader cache = new LinkCachingDownloader(pages(), 100, 1 << 20);
+        String url = "http://host.test/page";
+        Assert.assertEquals(List.of(url), cache.download(url).extractLinks());
+        Assert.assertEquals(List.of(url), cache.download(url).extractLinks());
+        Assert.assertEquals(1, downloads(url));
+        Assert.assertEquals(1, extractions.get());
+        Assert.assertEquals(1, cache.getHitCount());
+        Assert.assertEquals(1, cache.getMissCount());
+    }
+
+    @Test
+    public void test02_coalescing() throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        LinkCachingDownloader cache = new LinkCachingDownloader(pages(started, release), 100, 1 << 20);
+        String url = "http://host.test/page";
+        List<Thread> threads = new ArrayList<>();
+        List<List<String>> results = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            threads.add(new Thread(() -> {
+                try {
+                    List<String> links = cache.download(url).extractLinks();
+                    synchronized (results) {
+                        results.add(links);
+                    }
+                } catch (IOException e) {
+                    throw new AssertionError(e);
+                }
+            }));
+        }
+        threads.get(0).start();
+        Assert.assertTrue(started.await(10, TimeUnit.SECONDS));
+        threads.subList(1, threads.size()).forEach(Thread::start);
+        while (cache.getCoalescedCount() < threads.size() - 1) {
+            Thread.sleep(1);
+        }
+        release.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        Assert.assertEquals(List.of(List.of(url), List.of(url), List.of(url), List.of(url)), results);
+        Assert.assertEquals(1, downloads(url));
+        Assert.assertEquals(1, extractions.get());
+    }
+
+    @Test
+    public void test03_weights() throws IOException {
+        LinkCachingDownloader cache = new LinkCachingDownloader(pages(), 100, 1 << 20);
+        String url = "http://host.test/page";
+        Document document = cache.download(url);
+        Assert.assertTrue("Document is weighed before extraction", cache.getEstimatedBytes() >= DOCUMENT_SIZE);
+        document.extractLinks();
+        Assert.assertTrue("Links replace the document", cache.getEstimatedBytes() < DOCUMENT_SIZE);
+    }
+
+    @Test
+    public void test04_noResurrection() throws IOException {
+        // One entry per segment
+        LinkCachingDownloader cache = new LinkCachingDownloader(pages(), 16, 1 << 20);
+        String first = "http://host.test/0";
+        String second = null;
+        for (int i = 1; second == null; i++) {
+            if (segment("http://host.test/" + i) == segment(first)) {
+                second = "http://host.test/" + i;
+            }
+        }
+        Document evicted = cache.download(first);
+        cache.download(second);
+        Assert.assertEquals(1, cache.getEvictionCount());
+        evicted.extractLinks();
+        cache.download(second);
+        Assert.assertEquals("Extraction of evicted document brought it back", 1, downloads(second));
+        cache.download(first);
+        Assert.assertEquals(2, downloads(first));
+    }
+
+    @Test
+    public void test05_errorExpiry() throws IOException, InterruptedException {
+        LinkCachingDownloader cache = new LinkCachingDownloader(pages(), 100, 1 << 20, Duration.ofMillis(100));
+        String url = "http://host.test/fail/page";
+        for (int i = 0; i < 3; i++) {
+            try {
+                cache.download(url);
+                Assert.fail("Download should fail");
+            } catch (IOException ignored) {
+            }
+        }
+        Assert.assertEquals("Error is cached", 1, downloads(url));
+        Thread.sleep(200);
+        try {
+            cache.download(url);
+            Assert.fail("Download should fail");
+        } catch (IOException ignored) {
+        }
+        Assert.assertEquals("Expired error is retried", 2, downloads(url));
+    }
+}
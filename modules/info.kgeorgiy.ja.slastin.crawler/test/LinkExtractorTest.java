@@ -0,0 +1,96 @@
+package test;
+
+import info.kgeorgiy.ja.slastin.crawler.LinkExtractor;
+import info.kgeorgiy.java.advanced.crawler.ReplayDownloader;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compares {@link LinkExtractor#STREAMING} with {@link LinkExtractor#JSOUP} on pages built
+ * from link lists of the replay corpora.
+ */
+public class LinkExtractorTest {
+    @Test
+    public void test01_tricky() throws IOException {
+        check("http://example.com/dir/page.html", String.join("\n",
+                "﻿<!DOCTYPE html><html><head><title><a href='http://title.com/'></title>",
+                "<script>var s = '<a href=\"http://script.com/\">';</script>",
+                "<style>a[href=\"</a>\"] {}</style><!-- <a href=\"http://comment.com/\"> -->",
+                "<!--><a href=\"after-empty-comment.html\"><?php echo '<a href=\"/php\">' ?>",
+                "</head><body><a href=\"relative.html#fragment\">1</a><A HREF='../up?a=1&amp;b=2'>2</A>",
+                "<a href=/unquoted?x=1&y=2>3</a><a\thref = \"  spaced.html\" >4</a><a/href=\"slash.html\">",
+                "<a name=x>no href</a><a href>empty</a><a href=\"\">empty</a><a href=\"mailto:a@b.c\">",
+                "<a href=\"https://ex&#x61;mple.com/&#108;&lt;\">entities</a><a href=\"http://[bad\">bad</a>",
+                "<a href=\"first.html\" href=\"second.html\"><textarea><a href=\"textarea.html\"></textarea>",
+                "<iframe><a href=\"iframe.html\"></iframe><SCRIPT type=x><a href=\"script.html\"></script >",
+                "<a href=\"last.html\">end</a>"
+        ));
+    }
+
+    @Test
+    public void test02_corpora() throws IOException {
+        for (String url : List.of("https://itmo.ru", "https://en.itmo.ru", "http://nerc.itmo.ru", "https://de.ifmo.ru", "http://www.kgeorgiy.info")) {
+            for (Map.Entry<String, ReplayDownloader.Page> entry : new Corpus(url).getPages().entrySet()) {
+                if (entry.getValue().links != null) {
+                    check(entry.getKey(), toHtml(entry.getKey(), entry.getValue().links));
+                }
+            }
+        }
+    }
+
+    private static void check(String url, String html) throws IOException {
+        URI base = URI.create(url);
+        byte[] bytes = html.getBytes(StandardCharsets.UTF_8);
+        Assert.assertEquals(url,
+                LinkExtractor.JSOUP.extractLinks(base, ByteBuffer.wrap(bytes)),
+                LinkExtractor.STREAMING.extractLinks(base, ByteBuffer.wrap(bytes)));
+    }
+
+    private static String toHtml(String url, List<String> links) {
+        URI uri = URI.create(url);
+        String origin = uri.getScheme() + "://" + uri.getRawAuthority();
+        StringBuilder sb = new StringBuilder("<!DOCTYPE html><html><head><title>Title</title>")
+                .append("<script>document.write('<a href=\"http://script.com/\">')</script>")
+                .append("<!-- <a href=\"http://comment.com/\"> --></head><body>\n");
+        for (int i = 0; i < links.size(); i++) {
+            String link = links.get(i);
+            String relative = link.startsWith(origin + "/") ? link.substring(origin.length()) : link;
+            switch (i % 4) {
+                case 0:
+                    sb.append("<a href=\"").append(escape(link, '"')).append("\">link</a>");
+                    break;
+                case 1:
+                    sb.append("<A class=x HREF='").append(escape(relative, '\'')).append("'>link</A>");
+                    break;
+                case 2:
+                    sb.append("<a\n title=\"a > b\" href = \"").append(escape(link, '"')).append("#top\" >");
+                    break;
+                default:
+                    sb.append("<a name=n href=\"").append(escape(relative, '"')).append("\" href=\"/other\">");
+            }
+            sb.append('\n');
+        }
+        return sb.append("<textarea><a href=\"/textarea\"></textarea></body></html>").toString();
+    }
+
+    private static String escape(String value, char quote) {
+        return value.replace("&", "&amp;").replace(String.valueOf(quote), quote == '"' ? "&quot;" : "&#39;");
+    }
+
+    private static class Corpus extends ReplayDownloader {
+        Corpus(String url) throws IOException {
+            super(url, 0, 0);
+        }
+
+        Map<String, Page> getPages() {
+            return pages;
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package test;
+
+import info.kgeorgiy.ja.slastin.crawler.CrawlMode;
+import info.kgeorgiy.ja.slastin.crawler.CrawlOptions;
+import info.kgeorgiy.ja.slastin.crawler.LinkGraph;
+import info.kgeorgiy.ja.slastin.crawler.LinkGraphBuilder;
+import info.kgeorgiy.ja.slastin.crawler.LinkRanking;
+import info.kgeorgiy.ja.slastin.crawler.WebCrawler;
+import info.kgeorgiy.java.advanced.crawler.Downloader;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Checks link graph recorded by {@link WebCrawler} and rankings over it against sequential implementations.
+ */
+public class LinkGraphTest {
+    private static final int PAGES = 200;
+
+    private static String url(int page) {
+        return "http://host" + page % 3 + ".test/" + page;
+    }
+
+    private static List<String> links(int page) {
+        Random random = new Random(page);
+        return IntStream.range(0, 5).mapToObj(i -> url(random.nextInt(PAGES))).collect(Collectors.toList());
+    }
+
+    private static Set<String> edges(LinkGraph graph) {
+        Set<String> edges = new HashSet<>();
+        for (int v = 0; v < graph.size(); v++) {
+            for (int target : graph.links(v)) {
+                edges.add(graph.url(v) + " " + graph.url(target));
+            }
+        }
+        return edges;
+    }
+
+    @Test
+    public void test01_crawl() {
+        Downloader downloader = url -> () -> links(Integer.parseInt(url.substring(url.lastIndexOf('/') + 1)));
+        List<Set<String>> graphs = new ArrayList<>();
+        for (CrawlMode mode : CrawlMode.values()) {
+            LinkGraphBuilder builder = new LinkGraphBuilder();
+            CrawlOptions options = CrawlOptions.DEFAULT.withMode(mode).withLinkGraph(builder);
+            try (WebCrawler crawler = new WebCrawler(downloader, 4, 4, 2, options)) {
+                crawler.download(url(0), 3);
+            }
+            LinkGraph graph = builder.build();
+            Set<String> expected = new HashSet<>();
+            for (int v = 0; v < graph.size(); v++) {
+                if (graph.outDegree(v) > 0) {
+                    String url = graph.url(v);
+                    links(Integer.parseInt(url.substring(url.lastIndexOf('/') + 1)))
+                            .forEach(link -> expected.add(url + " " + link));
+                }
+            }
+            Assert.assertEquals(expected, edges(graph));
+            Assert.assertEquals(graph.edgeCount(), edges(graph).size());
+            Assert.assertEquals(0, graph.indexOf(url(0)));
+            graphs.add(edges(graph));
+        }
+        Assert.assertEquals("Both modes extract the same pages", graphs.get(0), graphs.get(1));
+    }
+
+    @Test
+    public void test02_file() throws IOException {
+        LinkGraph graph = randomGraph(1000, 5);
+        Path file = Files.createTempFile("graph", ".bin");
+        try {
+            graph.write(file);
+            LinkGraph read = LinkGraph.read(file);
+            Assert.assertEquals(graph.size(), read.size());
+            for (int v = 0; v < graph.size(); v++) {
+                Assert.assertEquals(graph.url(v), read.url(v));
+                Assert.assertArrayEquals(graph.links(v), read.links(v));
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void test03_pageRank() {
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            for (int n : new int[]{1, 10, 50_000}) {
+                LinkGraph graph = randomGraph(n, 4);
+                double[] expected = pageRank(graph, 0.85, 30);
+                double[] actual = LinkRanking.pageRank(graph, 0.85, 0, 30, pool);
+                Assert.assertEquals(1, Arrays.stream(actual).sum(), 1e-9);
+                Assert.assertArrayEquals(expected, actual, 1e-12);
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void test04_hits() {
+        LinkGraphBuilder builder = new LinkGraphBuilder();
+        builder.addPage("http://hub/", List.of("http://a/", "http://b/", "http://c/"));
+        builder.addPage("http://a/", List.of("http://b/"));
+        LinkRanking.Hits hits = LinkRanking.hits(builder.build(), 50);
+        double[] authorities = hits.getAuthorities();
+        double[] hubs = hits.getHubs();
+        Assert.assertEquals(0, authorities[0], 1e-9);
+        Assert.assertTrue(authorities[2] > authorities[1]);
+        Assert.assertEquals(authorities[1], authorities[3], 1e-9);
+        Assert.assertTrue(hubs[0] > hubs[1]);
+        Assert.assertEquals(1, Arrays.stream(hubs).map(h -> h * h).sum(), 1e-9);
+    }
+
+    private static LinkGraph randomGraph(int n, int degree) {
+        Random random = new Random(n);
+        LinkGraphBuilder builder = new LinkGraphBuilder();
+        for (int v = 0; v < n; v++) {
+            builder.intern("http://page/" + v);
+        }
+        for (int v = 0; v < n; v++) {
+            // Some pages have no links
+            int links = random.nextInt(degree + 1);
+            builder.addPage("http://page/" + v, random.ints(links, 0, n).mapToObj(u -> "http://page/" + u)
+                    .collect(Collectors.toList()));
+        }
+        return builder.build();
+    }
+
+    private static double[] pageRank(LinkGraph graph, double damping, int iterations) {
+        int n = graph.size();
+        double[] rank = new double[n];
+        Arrays.fill(rank, 1.0 / n);
+        for (int iteration = 0; iteration < iterations; iteration++) {
+            double[] next = new double[n];
+            double dangling = 0;
+            for (int u = 0; u < n; u++) {
+                if (graph.outDegree(u) == 0) {
+                    dangling += rank[u];
+                }
+                for (int v : graph.links(u)) {
+                    next[v] += damping * rank[u] / graph.outDegree(u);
+                }
+            }
+            for (int v = 0; v < n; v++) {
+                next[v] += (1 - damping + damping * dangling) / n;
+            }
+            rank = next;
+        }
+        return rank;
+    }
+}
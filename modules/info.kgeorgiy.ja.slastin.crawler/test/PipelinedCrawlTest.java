@@ -0,0 +1,232 @@
+package test;
+
+import info.kgeorgiy.ja.slastin.crawler.CrawlEvent;
+import info.kgeorgiy.ja.slastin.crawler.CrawlMode;
+import info.kgeorgiy.ja.slastin.crawler.CrawlOptions;
+import info.kgeorgiy.ja.slastin.crawler.WebCrawler;
+import info.kgeorgiy.java.advanced.crawler.Document;
+import info.kgeorgiy.java.advanced.crawler.Downloader;
+import info.kgeorgiy.java.advanced.crawler.Result;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Queue;
+import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BooleanSupplier;
+import java.util.function.IntFunction;
+
+/**
+ * Checks {@link CrawlMode#PIPELINED} crawl: demand of streaming subscriber, release of pages
+ * and equality of results to level-synchronous crawl.
+ */
+public class PipelinedCrawlTest {
+    private static final String HOST = "http://host.test/";
+    private static final CrawlOptions OPTIONS = CrawlOptions.DEFAULT.withMode(CrawlMode.PIPELINED);
+
+    private final AtomicInteger downloads = new AtomicInteger();
+
+    private static int page(String url) {
+        return Integer.parseInt(url.substring(HOST.length()));
+    }
+
+    private Downloader site(IntFunction<List<String>> links) {
+        return url -> {
+            downloads.incrementAndGet();
+            List<String> pageLinks = links.apply(page(url));
+            return () -> pageLinks;
+        };
+    }
+
+    private static List<String> urls(int from, int to) {
+        List<String> urls = new ArrayList<>();
+        for (int page = from; page < to; page++) {
+            urls.add(HOST + page);
+        }
+        return urls;
+    }
+
+    private static void waitFor(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!condition.getAsBoolean()) {
+            Assert.assertTrue("Condition is not reached", System.nanoTime() < deadline);
+            Thread.sleep(1);
+        }
+    }
+
+    @Test
+    public void test01_slowSubscriber() throws InterruptedException {
+        int pages = 10 * Flow.defaultBufferSize();
+        Downloader downloader = site(page -> page == 0 ? urls(1, pages) : List.of());
+        // Single thread and host permit are shared with the second crawl
+        try (WebCrawler crawler = new WebCrawler(downloader, 1, 1, 1, OPTIONS)) {
+            CountDownLatch release = new CountDownLatch(1);
+            AtomicReference<Flow.Subscription> subscription = new AtomicReference<>();
+            crawler.stream(HOST + 0, 2).subscribe(new Flow.Subscriber<>() {
+                @Override
+                public void onSubscribe(Flow.Subscription s) {
+                    subscription.set(s);
+                    s.request(Long.MAX_VALUE);
+                }
+
+                @Override
+                public void onNext(CrawlEvent item) {
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+
+                @Override
+                public void onError(Throwable throwable) {
+                }
+
+                @Override
+                public void onComplete() {
+                }
+            });
+            waitFor(() -> downloads.get() == Flow.defaultBufferSize());
+            Thread.sleep(100);
+            Assert.assertEquals("Downloads beyond subscriber buffer", Flow.defaultBufferSize(), downloads.get());
+
+            AtomicReference<Result> other = new AtomicReference<>();
+            Thread crawl = new Thread(() -> other.set(crawler.download(HOST + pages, 1)));
+            crawl.start();
+            crawl.join(TimeUnit.SECONDS.toMillis(10));
+            Assert.assertNotNull("Crawl is stalled by slow subscriber", other.get());
+            Assert.assertEquals(List.of(HOST + pages), other.get().getDownloaded());
+
+            subscription.get().cancel();
+            release.countDown();
+        }
+    }
+
+    @Test
+    public void test02_releasedPages() throws InterruptedException {
+        // Root links to children and a held page, every child links to a leaf
+        int children = 100;
+        int hold = 2 * children + 1;
+        List<String> rootLinks = new ArrayList<>(urls(1, children + 1));
+        rootLinks.add(HOST + hold);
+        CountDownLatch release = new CountDownLatch(1);
+        Queue<WeakReference<Document>> leaves = new ConcurrentLinkedQueue<>();
+        Downloader downloader = url -> {
+            int page = page(url);
+            if (page == hold) {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            List<String> links = page == 0 ? rootLinks
+                    : page <= children ? List.of(HOST + (page + children))
+                    : List.of();
+            Document document = () -> links;
+            if (page > children && page != hold) {
+                leaves.add(new WeakReference<>(document));
+            }
+            return document;
+        };
+        try (WebCrawler crawler = new WebCrawler(downloader, 4, 2, 4, OPTIONS)) {
+            AtomicReference<Result> result = new AtomicReference<>();
+            Thread crawl = new Thread(() -> result.set(crawler.download(HOST + 0, 3)));
+            crawl.start();
+            waitFor(() -> leaves.size() == children);
+            // Held page is running at depth 2, so leaves of depth 1 can not be raised
+            waitFor(() -> {
+                System.gc();
+                return leaves.stream().allMatch(leaf -> leaf.get() == null);
+            });
+            release.countDown();
+            crawl.join();
+            Assert.assertEquals(2 * children + 2, result.get().getDownloaded().size());
+        }
+    }
+
+    @Test
+    public void test03_levelSynchronous() {
+        int pages = 300;
+        for (int seed = 0; seed < 20; seed++) {
+            Random random = new Random(seed);
+            List<List<String>> links = new ArrayList<>();
+            for (int page = 0; page < pages; page++) {
+                List<String> pageLinks = new ArrayList<>();
+                for (int i = 0; i < 3; i++) {
+                    pageLinks.add(HOST + random.nextInt(pages));
+                }
+                links.add(pageLinks);
+            }
+            // Random delays reorder pipelined downloads, so pages are raised to greater depth
+            Downloader downloader = url -> {
+                if (ThreadLocalRandom.current().nextInt(4) == 0) {
+                    Thread.yield();
+                }
+                List<String> pageLinks = links.get(page(url));
+                return () -> pageLinks;
+            };
+            for (int depth = 1; depth <= 5; depth++) {
+                Result expected;
+                try (WebCrawler crawler = new WebCrawler(downloader, 8, 4, 8, CrawlOptions.DEFAULT)) {
+                    expected = crawler.download(HOST + 0, depth);
+                }
+                try (WebCrawler crawler = new WebCrawler(downloader, 8, 4, 8, OPTIONS)) {
+                    Result actual = crawler.download(HOST + 0, depth);
+                    Assert.assertEquals("Seed " + seed + ", depth " + depth,
+                            new HashSet<>(expected.getDownloaded()), new HashSet<>(actual.getDownloaded()));
+                }
+            }
+        }
+    }
+
+    private static class ErrorSubscriber implements Flow.Subscriber<CrawlEvent> {
+        final CountDownLatch failed = new CountDownLatch(1);
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+        }
+
+        @Override
+        public void onNext(CrawlEvent item) {
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            failed.countDown();
+        }
+
+        @Override
+        public void onComplete() {
+        }
+    }
+
+    @Test
+    public void test04_closedStream() throws InterruptedException {
+        int pages = 2 * Flow.defaultBufferSize();
+        Downloader downloader = site(page -> page == 0 ? urls(1, pages) : List.of());
+        ErrorSubscriber running = new ErrorSubscriber();
+        ErrorSubscriber late = new ErrorSubscriber();
+        WebCrawler crawler = new WebCrawler(downloader, 2, 2, 2, OPTIONS);
+        try (crawler) {
+            // Subscriber requests nothing, so the crawl waits for demand
+            crawler.stream(HOST + 0, 2).subscribe(running);
+            waitFor(() -> downloads.get() == Flow.defaultBufferSize());
+        }
+        Assert.assertTrue("Crawl is not cancelled", running.failed.await(10, TimeUnit.SECONDS));
+        Assert.assertTrue("Stream threads are running after close", Thread.getAllStackTraces().keySet().stream()
+                .noneMatch(thread -> thread.getName().startsWith("WebCrawler-stream-")));
+        crawler.stream(HOST + 0, 2).subscribe(late);
+        Assert.assertTrue("Closed crawler does not crawl", late.failed.await(10, TimeUnit.SECONDS));
+    }
+}
@@ -0,0 +1,146 @@
+package test;
+
+import info.kgeorgiy.ja.slastin.crawler.CrawlMode;
+import info.kgeorgiy.ja.slastin.crawler.CrawlOptions;
+import info.kgeorgiy.ja.slastin.crawler.ReplayArchive;
+import info.kgeorgiy.ja.slastin.crawler.ReplayArchiveDownloader;
+import info.kgeorgiy.ja.slastin.crawler.WebCrawler;
+import info.kgeorgiy.java.advanced.crawler.ReplayDownloader;
+import info.kgeorgiy.java.advanced.crawler.Result;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.*;
+import java.net.UnknownHostException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Checks that {@link ReplayArchive} keeps pages of a {@link ReplayDownloader} corpus
+ * and that {@link WebCrawler} over {@link ReplayArchiveDownloader} gets the same result as over the corpus.
+ */
+public class ReplayArchiveTest {
+    private static final int PAGES = 300;
+
+    private static String url(int page) {
+        return "http://host" + page % 3 + ".test/" + page + (page % 7 == 0 ? "/страница" : "");
+    }
+
+    // Every tenth page fails, pages past PAGES are only link targets
+    private static ConcurrentMap<String, ReplayDownloader.Page> corpus() {
+        ConcurrentMap<String, ReplayDownloader.Page> pages = new ConcurrentHashMap<>();
+        for (int page = 0; page < PAGES; page++) {
+            Random random = new Random(page);
+            IOException error = page % 10 != 5 ? null
+                    : page % 20 == 5 ? new UnknownHostException("host" + page) : new IOException();
+            List<String> links = IntStream.range(0, 4).mapToObj(i -> url(random.nextInt(PAGES + 20)))
+                    .collect(Collectors.toList());
+            pages.put(url(page), new ReplayDownloader.Page(error == null ? links : null, error));
+        }
+        return pages;
+    }
+
+    private static ReplayArchive archive(Map<String, ReplayDownloader.Page> pages) throws IOException {
+        Path file = Files.createTempFile("replay", ".bin");
+        try {
+            ReplayArchive.convert(pages, file);
+            return ReplayArchive.open(file);
+        } finally {
+            // Mapping outlives the file on Unix-like systems
+            file.toFile().deleteOnExit();
+        }
+    }
+
+    @Test
+    public void test01_pages() throws IOException {
+        ConcurrentMap<String, ReplayDownloader.Page> pages = corpus();
+        ReplayArchive archive = archive(pages);
+        Assert.assertEquals(PAGES + 20, archive.size());
+        for (Map.Entry<String, ReplayDownloader.Page> entry : pages.entrySet()) {
+            int v = archive.indexOf(entry.getKey());
+            Assert.assertEquals(entry.getKey(), archive.url(v));
+            Assert.assertTrue(archive.isPage(v));
+            ReplayDownloader.Page page = entry.getValue();
+            if (page.exception == null) {
+                Assert.assertNull(archive.error(v));
+                Assert.assertEquals(page.links, archive.links(v));
+            } else {
+                Assert.assertEquals(page.exception.getClass(), archive.error(v).getClass());
+                Assert.assertEquals(page.exception.getMessage(), archive.error(v).getMessage());
+                Assert.assertEquals(List.of(), archive.links(v));
+            }
+        }
+        Assert.assertFalse(archive.isPage(archive.indexOf(url(PAGES))));
+        Assert.assertEquals(-1, archive.indexOf("http://host0.test/missing"));
+    }
+
+    @Test
+    public void test02_crawl() throws IOException {
+        ConcurrentMap<String, ReplayDownloader.Page> pages = corpus();
+        Set<String> ok = new HashSet<>();
+        Set<String> bad = new HashSet<>();
+        Set<String> level = Set.of(url(0));
+        for (int depth = 0; depth < 4; depth++) {
+            Set<String> next = new HashSet<>();
+            for (String url : level) {
+                ReplayDownloader.Page page = pages.get(url);
+                if (page == null || page.exception != null) {
+                    bad.add(url);
+                } else if (ok.add(url)) {
+                    next.addAll(page.links);
+                }
+            }
+            next.removeAll(ok);
+            next.removeAll(bad);
+            level = next;
+        }
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(new GZIPOutputStream(bytes))) {
+            out.writeObject(pages);
+        }
+        Path file = Files.createTempFile("replay", ".bin");
+        try {
+            ReplayArchive.convert(new ByteArrayInputStream(bytes.toByteArray()), file);
+            for (CrawlMode mode : CrawlMode.values()) {
+                try (WebCrawler crawler = new WebCrawler(new ReplayArchiveDownloader(file), 4, 4, 2,
+                        CrawlOptions.DEFAULT.withMode(mode))) {
+                    Result result = crawler.download(url(0), 4);
+                    Assert.assertEquals(mode.toString(), ok, new HashSet<>(result.getDownloaded()));
+                    Assert.assertEquals(mode.toString(), bad, result.getErrors().keySet());
+                }
+            }
+        } finally {
+            file.toFile().deleteOnExit();
+        }
+    }
+
+    @Test
+    public void test03_corrupted() throws IOException {
+        Path file = Files.createTempFile("replay", ".bin");
+        try {
+            ReplayArchive.convert(corpus(), file);
+            byte[] bytes = Files.readAllBytes(file);
+            Files.write(file, Arrays.copyOf(bytes, bytes.length - 1));
+            try {
+                ReplayArchive.open(file);
+                Assert.fail("Truncated archive opened");
+            } catch (IOException ignored) {
+            }
+            Files.write(file, new byte[]{1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15, 16});
+            try {
+                ReplayArchive.open(file);
+                Assert.fail("Not an archive opened");
+            } catch (IOException ignored) {
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
+}
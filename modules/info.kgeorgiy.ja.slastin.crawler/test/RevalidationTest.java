@@ -0,0 +1,217 @@
+package test;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import info.kgeorgiy.ja.slastin.crawler.LinkExtractor;
+import info.kgeorgiy.ja.slastin.crawler.SegmentCachingDownloader;
+import info.kgeorgiy.ja.slastin.crawler.SegmentStore;
+import info.kgeorgiy.java.advanced.crawler.Document;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Checks conditional GET of {@link SegmentCachingDownloader} against a local HTTP server.
+ */
+public class RevalidationTest {
+    private static final String LAST_MODIFIED = "Wed, 21 Oct 2015 07:28:00 GMT";
+
+    private final Map<String, String> bodies = new ConcurrentHashMap<>();
+    private final Map<String, AtomicInteger> requests = new ConcurrentHashMap<>();
+    private final AtomicInteger notModified = new AtomicInteger();
+    private final AtomicInteger extractions = new AtomicInteger();
+    // Requests are dropped without response
+    private volatile boolean isFailing;
+    private final LinkExtractor extractor = (base, content) -> {
+        extractions.incrementAndGet();
+        return LinkExtractor.STREAMING.extractLinks(base, content);
+    };
+    private HttpServer server;
+    private Path directory;
+    private String root;
+
+    @Before
+    public void start() throws IOException {
+        bodies.put("/", "<a href='/etag'>1</a><a href='/modified'>2</a><a href='/plain'>3</a>");
+        bodies.put("/etag", "<a href='/'>etag</a>");
+        bodies.put("/modified", "<a href='/'>modified</a>");
+        bodies.put("/plain", "<a href='/'>plain</a>");
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/", this::handle);
+        server.start();
+        root = "http://localhost:" + server.getAddress().getPort() + "/";
+        directory = Files.createTempDirectory(RevalidationTest.class.getName());
+    }
+
+    @After
+    public void stop() throws IOException {
+        server.stop(0);
+        try (var files = Files.walk(directory)) {
+            for (Path file : (Iterable<Path>) files.sorted((a, b) -> b.compareTo(a))::iterator) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        String path = exchange.getRequestURI().getPath();
+        requests.computeIfAbsent(path, p -> new AtomicInteger()).incrementAndGet();
+        if (isFailing) {
+            exchange.close();
+            return;
+        }
+        String body = bodies.get(path);
+        if (body == null) {
+            exchange.sendResponseHeaders(404, -1);
+            exchange.close();
+            return;
+        }
+        String etag = "\"" + Integer.toHexString(body.hashCode()) + "\"";
+        if (path.equals("/") || path.equals("/etag")) {
+            exchange.getResponseHeaders().add("ETag", etag);
+        }
+        if (path.equals("/modified")) {
+            exchange.getResponseHeaders().add("Last-Modified", LAST_MODIFIED);
+        }
+        String ifNoneMatch = exchange.getRequestHeaders().getFirst("If-None-Match");
+        String ifModifiedSince = exchange.getRequestHeaders().getFirst("If-Modified-Since");
+        if (etag.equals(ifNoneMatch) || path.equals("/modified") && LAST_MODIFIED.equals(ifModifiedSince)) {
+            notModified.incrementAndGet();
+            exchange.sendResponseHeaders(304, -1);
+            exchange.close();
+            return;
+        }
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.sendResponseHeaders(200, bytes.length);
+        try (OutputStream os = exchange.getResponseBody()) {
+            os.write(bytes);
+        }
+    }
+
+    private List<String> crawl(SegmentCachingDownloader downloader) throws IOException {
+        List<String> links = downloader.download(root).extractLinks();
+        for (String link : links) {
+            downloader.download(link).extractLinks();
+        }
+        return links;
+    }
+
+    private int requests() {
+        return requests.values().stream().mapToInt(AtomicInteger::get).sum();
+    }
+
+    @Test
+    public void test01_notModified() throws IOException {
+        try (SegmentCachingDownloader downloader = new SegmentCachingDownloader(
+                new SegmentStore(directory), extractor, Duration.ZERO)) {
+            List<String> links = crawl(downloader);
+            Assert.assertEquals(3, links.size());
+            Assert.assertEquals(4, requests());
+            Assert.assertEquals(4, extractions.get());
+
+            Assert.assertEquals(links, crawl(downloader));
+            Assert.assertEquals(8, requests());
+            Assert.assertEquals("Pages with validators", 3, notModified.get());
+            Assert.assertEquals(3, downloader.getNotModifiedCount());
+            Assert.assertEquals("Links are reused, including unchanged page without validators", 4, extractions.get());
+        }
+    }
+
+    @Test
+    public void test02_modified() throws IOException {
+        try (SegmentCachingDownloader downloader = new SegmentCachingDownloader(
+                new SegmentStore(directory), extractor, Duration.ZERO)) {
+            crawl(downloader);
+            bodies.put("/etag", "<a href='/'>etag</a><a href='/new'>new</a>");
+            Assert.assertEquals(2, downloader.download(root + "etag").extractLinks().size());
+            Assert.assertEquals(5, extractions.get());
+            Assert.assertEquals(2, downloader.download(root + "etag").extractLinks().size());
+            Assert.assertEquals(5, extractions.get());
+            Assert.assertEquals(1, notModified.get());
+        }
+    }
+
+    @Test
+    public void test03_ttl() throws IOException {
+        try (SegmentCachingDownloader downloader = new SegmentCachingDownloader(
+                new SegmentStore(directory), extractor, Duration.ofHours(1))) {
+            crawl(downloader);
+            crawl(downloader);
+            Assert.assertEquals(4, requests());
+        }
+        try (SegmentCachingDownloader downloader = new SegmentCachingDownloader(
+                new SegmentStore(directory), extractor, Duration.ZERO)) {
+            crawl(downloader);
+            Assert.assertEquals(8, requests());
+            Assert.assertEquals(3, notModified.get());
+        }
+    }
+
+    @Test
+    public void test04_downloadedContent() throws IOException {
+        try (SegmentCachingDownloader downloader = new SegmentCachingDownloader(
+                new SegmentStore(directory), extractor, Duration.ZERO)) {
+            Document old = downloader.download(root + "etag");
+            bodies.put("/etag", "<a href='/'>etag</a><a href='/new'>new</a>");
+            Document current = downloader.download(root + "etag");
+            Assert.assertEquals("Document keeps content of its download", 1, old.extractLinks().size());
+            Assert.assertEquals(2, current.extractLinks().size());
+            Assert.assertEquals(2, downloader.download(root + "etag").extractLinks().size());
+            Assert.assertEquals("Links of the old content are not reused for the new one", 2, extractions.get());
+        }
+    }
+
+    @Test
+    public void test05_errors() throws IOException {
+        try (SegmentCachingDownloader downloader = new SegmentCachingDownloader(
+                new SegmentStore(directory), extractor, Duration.ZERO)) {
+            String missing = root + "missing";
+            try {
+                downloader.download(missing);
+                Assert.fail("Error expected");
+            } catch (FileNotFoundException ignored) {
+            }
+            bodies.put("/missing", "found");
+            Assert.assertEquals(List.of(), downloader.download(missing).extractLinks());
+            Assert.assertEquals(2, requests.get("/missing").get());
+        }
+        try (SegmentCachingDownloader downloader = new SegmentCachingDownloader(new SegmentStore(directory))) {
+            downloader.download(root + "missing");
+            Assert.assertEquals("Without revalidation documents are kept forever", 2, requests.get("/missing").get());
+        }
+    }
+
+    @Test
+    public void test06_failedRevalidation() throws IOException {
+        try (SegmentCachingDownloader downloader = new SegmentCachingDownloader(
+                new SegmentStore(directory), extractor, Duration.ZERO)) {
+            String url = root + "etag";
+            Assert.assertEquals(1, downloader.download(url).extractLinks().size());
+            isFailing = true;
+            try {
+                downloader.download(url);
+                Assert.fail("Error expected");
+            } catch (IOException ignored) {
+            }
+            isFailing = false;
+            Assert.assertEquals(1, downloader.download(url).extractLinks().size());
+            Assert.assertEquals("Validators are kept", 1, notModified.get());
+            Assert.assertEquals("Stored document and links are kept", 1, extractions.get());
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package test;
+
+import info.kgeorgiy.ja.slastin.crawler.SegmentStore;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.stream.Stream;
+
+/**
+ * Checks recovery and compaction of {@link SegmentStore}.
+ */
+public class SegmentStoreTest {
+    private static final int HEADER_SIZE = 16;
+    private static final int VALUE_SIZE = 100;
+
+    private Path directory;
+
+    @Before
+    public void create() throws IOException {
+        directory = Files.createTempDirectory(SegmentStoreTest.class.getName());
+    }
+
+    @After
+    public void delete() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : (Iterable<Path>) files.sorted((a, b) -> b.compareTo(a))::iterator) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    private static byte[] value(char c) {
+        byte[] value = new byte[VALUE_SIZE];
+        Arrays.fill(value, (byte) c);
+        return value;
+    }
+
+    private static void assertValue(SegmentStore store, String key, char c) {
+        ByteBuffer value = store.get(key);
+        Assert.assertNotNull(key, value);
+        Assert.assertEquals(key, ByteBuffer.wrap(value(c)), value);
+    }
+
+    private static long files(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.count();
+        }
+    }
+
+    @Test
+    public void test01_reopen() throws IOException {
+        try (SegmentStore store = new SegmentStore(directory, 1024)) {
+            for (char c = 'a'; c <= 'z'; c++) {
+                store.put(String.valueOf(c), value(c));
+            }
+            store.put("a", value('A'));
+        }
+        try (SegmentStore store = new SegmentStore(directory, 1024)) {
+            assertValue(store, "a", 'A');
+            for (char c = 'b'; c <= 'z'; c++) {
+                assertValue(store, String.valueOf(c), c);
+            }
+            Assert.assertNull(store.get("missing"));
+        }
+    }
+
+    @Test
+    public void test02_tornRecord() throws IOException {
+        try (SegmentStore store = new SegmentStore(directory, 4096)) {
+            store.put("a", value('a'));
+            store.put("b", value('b'));
+            store.put("c", value('c'));
+        }
+        // Middle of the value of "b", as if "c" reached the disk and "b" did not
+        int record = HEADER_SIZE + 1 + VALUE_SIZE;
+        try (FileChannel channel = FileChannel.open(directory.resolve("segment-00000000"), StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[]{0}), record + HEADER_SIZE + 1 + VALUE_SIZE / 2);
+        }
+        try (SegmentStore store = new SegmentStore(directory, 4096)) {
+            assertValue(store, "a", 'a');
+            Assert.assertNull(store.get("b"));
+            Assert.assertNull(store.get("c"));
+            // Takes exactly the place of "b", so the record of "c" follows it
+            store.put("d", value('d'));
+        }
+        try (SegmentStore store = new SegmentStore(directory, 4096)) {
+            assertValue(store, "a", 'a');
+            assertValue(store, "d", 'd');
+            Assert.assertNull("Record after the torn one is back", store.get("c"));
+        }
+    }
+
+    @Test
+    public void test03_compaction() throws IOException {
+        int record = HEADER_SIZE + 2 + VALUE_SIZE;
+        try (SegmentStore store = new SegmentStore(directory, 1024)) {
+            for (int i = 0; i < 40; i++) {
+                store.put("k" + (char) ('a' + i % 20), value((char) ('a' + i)));
+            }
+            ByteBuffer old = store.get("ka");
+            Assert.assertEquals(40L * record, store.getUsedBytes());
+            Assert.assertEquals(20L * record, store.getLiveBytes());
+            long segments = files(directory);
+
+            store.compact(0.5);
+            Assert.assertEquals(20L * record, store.getLiveBytes());
+            Assert.assertTrue(store.getUsedBytes() < 40L * record);
+            Assert.assertTrue(files(directory) < segments);
+            Assert.assertEquals("Earlier views stay valid", ByteBuffer.wrap(value('u')), old);
+            for (int i = 0; i < 20; i++) {
+                assertValue(store, "k" + (char) ('a' + i), (char) ('a' + 20 + i));
+            }
+        }
+        try (SegmentStore store = new SegmentStore(directory, 1024)) {
+            Assert.assertEquals(20L * record, store.getLiveBytes());
+            for (int i = 0; i < 20; i++) {
+                assertValue(store, "k" + (char) ('a' + i), (char) ('a' + 20 + i));
+            }
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package test;
+
+import info.kgeorgiy.ja.slastin.crawler.DownloaderFactory;
+import info.kgeorgiy.ja.slastin.crawler.ShardedCrawler;
+import info.kgeorgiy.java.advanced.crawler.Document;
+import info.kgeorgiy.java.advanced.crawler.Downloader;
+import info.kgeorgiy.java.advanced.crawler.ReplayDownloader;
+import info.kgeorgiy.java.advanced.crawler.Result;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.HashSet;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Runs {@link ShardedCrawler} with worker processes on this machine.
+ */
+public class ShardedCrawlerTest {
+    // Pages of this corpus are spread over about a hundred hosts at depth 3
+    private static final String URL = "https://de.ifmo.ru/";
+    private static final int DEPTH = 3;
+
+    @Test
+    public void test01_replay() throws IOException {
+        // Replay downloader fails on repeated downloads, so there is one crawl per crawler
+        Result expected = new ReplayDownloader(URL, 0, 0).expected(URL, DEPTH);
+        try (ShardedCrawler crawler = new ShardedCrawler(ShardedCrawler.replay(URL, 0, 0), 3, 10, 10, 10)) {
+            Result actual = crawler.download(URL, DEPTH);
+            Assert.assertEquals(new HashSet<>(expected.getDownloaded()), new HashSet<>(actual.getDownloaded()));
+            Assert.assertEquals(expected.getErrors().keySet(), actual.getErrors().keySet());
+        }
+    }
+
+    @Test
+    public void test02_failedWorker() throws IOException {
+        try (ShardedCrawler crawler = new ShardedCrawler(new HaltingFactory(), 3, 4, 4, 4)) {
+            try {
+                crawler.download("http://host0.test/0", 3);
+                Assert.fail("Crawl should fail");
+            } catch (UncheckedIOException ignored) {
+            }
+            Assert.assertEquals(List.of(), crawler.download("http://host0.test/0", 1).getDownloaded());
+        }
+    }
+
+    /**
+     * Every page links to pages on ten hosts, worker exits when it downloads a page of host 7.
+     */
+    private static class HaltingFactory implements DownloaderFactory {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        public Downloader create() {
+            return url -> {
+                if (url.startsWith("http://host7.")) {
+                    Runtime.getRuntime().halt(1);
+                }
+                return (Document) () -> IntStream.range(0, 10)
+                        .mapToObj(i -> "http://host" + i + ".test/" + i)
+                        .collect(Collectors.toList());
+            };
+        }
+    }
+}
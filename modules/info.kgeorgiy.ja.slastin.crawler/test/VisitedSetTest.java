@@ -0,0 +1,90 @@
+package test;
+
+import info.kgeorgiy.ja.slastin.crawler.CrawlOptions;
+import info.kgeorgiy.ja.slastin.crawler.VisitedSet;
+import info.kgeorgiy.ja.slastin.crawler.WebCrawler;
+import info.kgeorgiy.java.advanced.crawler.Document;
+import info.kgeorgiy.java.advanced.crawler.Downloader;
+import info.kgeorgiy.java.advanced.crawler.Result;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntFunction;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Checks exact {@link VisitedSet visited sets}, including fingerprint tables filled far beyond
+ * the expected number of URLs.
+ */
+public class VisitedSetTest {
+    private static final Map<String, IntFunction<VisitedSet>> SETS = Map.of(
+            "exact", expected -> VisitedSet.exact(),
+            "fingerprints64", VisitedSet::fingerprints64,
+            "fingerprints128", VisitedSet::fingerprints128
+    );
+
+    private static String url(int page) {
+        return "http://host" + page % 10 + ".test/" + page;
+    }
+
+    @Test
+    public void test01_overfilled() {
+        SETS.forEach((name, factory) -> {
+            VisitedSet set = factory.apply(1);
+            long footprint = set.memoryFootprint();
+            for (int i = 0; i < 100_000; i++) {
+                Assert.assertTrue(name + " " + i, set.add(url(i)));
+            }
+            for (int i = 0; i < 100_000; i++) {
+                Assert.assertFalse(name + " " + i, set.add(url(i)));
+            }
+            Assert.assertTrue(name, set.memoryFootprint() > footprint);
+        });
+    }
+
+    @Test
+    public void test02_concurrent() throws InterruptedException {
+        int threads = 8;
+        int urls = 50_000;
+        for (Map.Entry<String, IntFunction<VisitedSet>> entry : SETS.entrySet()) {
+            VisitedSet set = entry.getValue().apply(16);
+            AtomicInteger added = new AtomicInteger();
+            List<Thread> workers = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int shift = t * urls / threads;
+                // Every URL is added by every thread, while the table grows
+                workers.add(new Thread(() -> {
+                    for (int i = 0; i < urls; i++) {
+                        if (set.add(url((i + shift) % urls))) {
+                            added.incrementAndGet();
+                        }
+                    }
+                }));
+            }
+            workers.forEach(Thread::start);
+            for (Thread worker : workers) {
+                worker.join();
+            }
+            Assert.assertEquals(entry.getKey(), urls, added.get());
+        }
+    }
+
+    @Test
+    public void test03_crawl() {
+        Downloader tree = url -> {
+            int page = Integer.parseInt(url.substring(url.lastIndexOf('/') + 1));
+            return (Document) () -> IntStream.rangeClosed(10 * page + 1, 10 * page + 10)
+                    .mapToObj(VisitedSetTest::url).collect(Collectors.toList());
+        };
+        CrawlOptions options = CrawlOptions.DEFAULT.withVisitedSet(() -> VisitedSet.fingerprints64(4));
+        try (WebCrawler crawler = new WebCrawler(tree, 4, 4, 4, options)) {
+            Result result = crawler.download(url(0), 4);
+            Assert.assertEquals(1111, result.getDownloaded().size());
+        }
+    }
+}